@@ -20,7 +20,6 @@ import android.os.Build.VERSION;
 import android.os.Trace;
 import android.text.TextUtils;
 import android.util.Log;
-import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -84,25 +83,10 @@ public class TensorFlowInferenceInterface {
     try {
       if (VERSION.SDK_INT >= 18) {
         Trace.beginSection("initializeTensorFlow");
-        Trace.beginSection("readGraphDef");
       }
 
-      // TODO(ashankar): Can we somehow mmap the contents instead of copying them?
-      byte[] graphDef = new byte[is.available()];
-      final int numBytesRead = is.read(graphDef);
-      if (numBytesRead != graphDef.length) {
-        throw new IOException(
-            "read error: read only "
-                + numBytesRead
-                + " of the graph, expected to read "
-                + graphDef.length);
-      }
-
-      if (VERSION.SDK_INT >= 18) {
-        Trace.endSection(); // readGraphDef.
-      }
-
-      loadGraph(graphDef, g);
+      // Files on disk are memory-mapped, assets are streamed to native memory.
+      loadGraph(is, g);
       is.close();
       Log.i(TAG, "Successfully loaded model from '" + model + "'");
 
@@ -134,23 +118,9 @@ public class TensorFlowInferenceInterface {
     try {
       if (VERSION.SDK_INT >= 18) {
         Trace.beginSection("initializeTensorFlow");
-        Trace.beginSection("readGraphDef");
-      }
-
-      int baosInitSize = is.available() > 16384 ? is.available() : 16384;
-      ByteArrayOutputStream baos = new ByteArrayOutputStream(baosInitSize);
-      int numBytesRead;
-      byte[] buf = new byte[16384];
-      while ((numBytesRead = is.read(buf, 0, buf.length)) != -1) {
-        baos.write(buf, 0, numBytesRead);
-      }
-      byte[] graphDef = baos.toByteArray();
-
-      if (VERSION.SDK_INT >= 18) {
-        Trace.endSection(); // readGraphDef.
       }
 
-      loadGraph(graphDef, g);
+      loadGraph(is, g);
       Log.i(TAG, "Successfully loaded model from the input stream");
 
       if (VERSION.SDK_INT >= 18) {
@@ -548,7 +518,7 @@ public class TensorFlowInferenceInterface {
     }
   }
 
-  private void loadGraph(byte[] graphDef, Graph g) throws IOException {
+  private void loadGraph(InputStream graphDef, Graph g) throws IOException {
     final long startMs = System.currentTimeMillis();
 
     if (VERSION.SDK_INT >= 18) {
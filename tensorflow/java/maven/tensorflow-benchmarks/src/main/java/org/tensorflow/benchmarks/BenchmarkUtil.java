@@ -0,0 +1,109 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.benchmarks;
+
+import java.lang.reflect.Array;
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+import org.tensorflow.Tensor;
+
+/** Helpers shared by the benchmarks. */
+final class BenchmarkUtil {
+
+  /** Parses a shape given as a benchmark parameter, like {@code "64x1024"}. */
+  static long[] parseShape(String shape) {
+    String[] dims = shape.split("x");
+    long[] result = new long[dims.length];
+    for (int i = 0; i < dims.length; ++i) {
+      result[i] = Long.parseLong(dims[i]);
+    }
+    return result;
+  }
+
+  /** Returns the number of elements of a tensor with the given shape. */
+  static int numElements(long[] shape) {
+    int n = 1;
+    for (long dim : shape) {
+      n *= (int) dim;
+    }
+    return n;
+  }
+
+  /** Returns the boxed class of the elements of tensors of the given type. */
+  static Class<?> boxedClass(DataType dtype) {
+    switch (dtype) {
+      case FLOAT:
+        return Float.class;
+      case DOUBLE:
+        return Double.class;
+      case INT32:
+        return Integer.class;
+      case INT64:
+        return Long.class;
+      default:
+        throw new IllegalArgumentException("unsupported data type " + dtype);
+    }
+  }
+
+  /** Returns the primitive class of the elements of tensors of the given type. */
+  static Class<?> primitiveClass(DataType dtype) {
+    switch (dtype) {
+      case FLOAT:
+        return float.class;
+      case DOUBLE:
+        return double.class;
+      case INT32:
+        return int.class;
+      case INT64:
+        return long.class;
+      default:
+        throw new IllegalArgumentException("unsupported data type " + dtype);
+    }
+  }
+
+  /** Allocates a multi-dimensional array of primitives matching the given tensor shape. */
+  static Object newArray(DataType dtype, long[] shape) {
+    int[] dims = new int[shape.length];
+    for (int i = 0; i < shape.length; ++i) {
+      dims[i] = (int) shape[i];
+    }
+    return Array.newInstance(primitiveClass(dtype), dims);
+  }
+
+  static <T> Output<T> constant(Graph g, String name, Object value) {
+    try (Tensor<?> t = Tensor.create(value)) {
+      return g.opBuilder("Const", name)
+          .setAttr("dtype", t.dataType())
+          .setAttr("value", t)
+          .build()
+          .<T>output(0);
+    }
+  }
+
+  static <T> Output<T> placeholder(Graph g, String name, Class<T> type) {
+    return g.opBuilder("Placeholder", name)
+        .setAttr("dtype", DataType.fromClass(type))
+        .build()
+        .<T>output(0);
+  }
+
+  static <T> Output<T> binaryOp(Graph g, String type, String name, Output<T> x, Output<T> y) {
+    return g.opBuilder(type, name).addInput(x).addInput(y).build().<T>output(0);
+  }
+
+  private BenchmarkUtil() {}
+}
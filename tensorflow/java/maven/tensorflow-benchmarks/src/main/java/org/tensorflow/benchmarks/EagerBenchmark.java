@@ -0,0 +1,87 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.EagerSession;
+import org.tensorflow.Operation;
+import org.tensorflow.Output;
+import org.tensorflow.Tensor;
+
+/** Benchmarks the dispatch of operations in an {@link EagerSession}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EagerBenchmark {
+
+  /** Maximum number of operation templates kept by the session, 0 to disable them. */
+  @Param({"0", "1000"})
+  public int maxOperationTemplates;
+
+  private EagerSession session;
+  private Output<Float> x;
+
+  @Setup
+  public void setUp() {
+    session = EagerSession.options().maxOperationTemplates(maxOperationTemplates).build();
+    try (Tensor<Float> t = Tensor.create(new float[] {1f, 2f, 3f, 4f}, Float.class)) {
+      x =
+          session
+              .opBuilder("Const", "x")
+              .setAttr("dtype", t.dataType())
+              .setAttr("value", t)
+              .build()
+              .<Float>output(0);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    session.close();
+  }
+
+  @Benchmark
+  public Operation buildOperation() {
+    return session.opBuilder("Add", "add").addInput(x).addInput(x).build();
+  }
+
+  /** Computes {@code (x + x) * x - x}, like a loop of arithmetic operations written with Ops. */
+  @Benchmark
+  public Output<Float> arithmetic() {
+    Output<Float> y = binaryOp("Add", x, x);
+    y = binaryOp("Mul", y, x);
+    return binaryOp("Sub", y, x);
+  }
+
+  private Output<Float> binaryOp(String type, Output<Float> a, Output<Float> b) {
+    return session.opBuilder(type, type).addInput(a).addInput(b).build().<Float>output(0);
+  }
+}
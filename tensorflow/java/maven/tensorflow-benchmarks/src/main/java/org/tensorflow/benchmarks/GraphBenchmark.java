@@ -0,0 +1,76 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+
+/** Benchmarks building and importing graphs. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GraphBenchmark {
+
+  @Param({"100", "1000"})
+  public int numOperations;
+
+  private byte[] graphDef;
+
+  @Setup
+  public void setUp() {
+    try (Graph g = new Graph()) {
+      build(g, numOperations);
+      graphDef = g.toGraphDef();
+    }
+  }
+
+  @Benchmark
+  public void buildGraph() {
+    try (Graph g = new Graph()) {
+      build(g, numOperations);
+    }
+  }
+
+  @Benchmark
+  public void importGraphDef() {
+    try (Graph g = new Graph()) {
+      g.importGraphDef(graphDef);
+    }
+  }
+
+  /** Builds a chain of additions, counting the initial constant as one of the operations. */
+  private static void build(Graph g, int numOperations) {
+    Output<Float> x = BenchmarkUtil.constant(g, "x", 1f);
+    for (int i = 1; i < numOperations; ++i) {
+      x = BenchmarkUtil.binaryOp(g, "Add", "add" + i, x, x);
+    }
+  }
+}
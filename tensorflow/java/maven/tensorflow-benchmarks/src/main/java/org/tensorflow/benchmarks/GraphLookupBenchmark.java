@@ -0,0 +1,86 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.Graph;
+import org.tensorflow.GraphOperation;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+
+/**
+ * Benchmarks reading a graph shared by many threads, as done by a server resolving the names of
+ * its feeds and fetches on each request.
+ *
+ * <p>Run with {@code -t} to compare the throughput for different numbers of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GraphLookupBenchmark {
+
+  private static final int NUM_OPERATIONS = 1000;
+
+  private Graph graph;
+  private Session session;
+
+  @Setup
+  public void setUp() {
+    graph = new Graph();
+    Output<Float> x = BenchmarkUtil.constant(graph, "x", 1f);
+    for (int i = 1; i < NUM_OPERATIONS; ++i) {
+      x = BenchmarkUtil.binaryOp(graph, "Add", "add" + i, x, x);
+    }
+    session = new Session(graph);
+  }
+
+  @TearDown
+  public void tearDown() {
+    session.close();
+    graph.close();
+  }
+
+  @Benchmark
+  public GraphOperation lookupOperation() {
+    return graph.operation("add" + (NUM_OPERATIONS / 2));
+  }
+
+  @Benchmark
+  public String readOperationType() {
+    return graph.operation("x").type();
+  }
+
+  @Benchmark
+  public Session.Runner buildRunner() {
+    return session.runner().fetch("add1").fetch("add2:0").addTarget("x");
+  }
+}
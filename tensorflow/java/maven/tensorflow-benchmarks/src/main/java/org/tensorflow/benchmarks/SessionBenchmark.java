@@ -0,0 +1,133 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.Graph;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.SessionPool;
+import org.tensorflow.Tensor;
+
+/**
+ * Benchmarks the overhead of running a small graph, {@code y = x * w + b}, through the different
+ * execution paths of a {@link Session}.
+ *
+ * <p>The concurrent benchmarks measure the throughput of all threads together, with one thread per
+ * available processor by default. How it scales is measured by running them again with fewer
+ * threads, as documented in the README of this module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SessionBenchmark {
+
+  @Param({"1", "64"})
+  public int batchSize;
+
+  @Param({"16", "256"})
+  public int numFeatures;
+
+  private Graph graph;
+  private Session session;
+  private Session.Callable callable;
+  private SessionPool pool;
+  private Tensor<Float> x;
+
+  @Setup
+  public void setUp() {
+    graph = new Graph();
+    Output<Float> input = BenchmarkUtil.placeholder(graph, "x", Float.class);
+    Output<Float> w = BenchmarkUtil.constant(graph, "w", new float[numFeatures][numFeatures]);
+    Output<Float> b = BenchmarkUtil.constant(graph, "b", new float[numFeatures]);
+    Output<Float> xw =
+        graph.opBuilder("MatMul", "xw").addInput(input).addInput(w).build().<Float>output(0);
+    BenchmarkUtil.binaryOp(graph, "Add", "y", xw, b);
+    session = new Session(graph);
+    callable = session.runner().feed("x", null).fetch("y").compile();
+    pool = new SessionPool(session, Runtime.getRuntime().availableProcessors());
+    x = Tensor.create(new float[batchSize][numFeatures], Float.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    x.close();
+    pool.close();
+    session.close();
+    graph.close();
+  }
+
+  @Benchmark
+  public void runner() {
+    close(session.runner().feed("x", x).fetch("y").run());
+  }
+
+  @Benchmark
+  public void runnerAsync() throws Exception {
+    close(session.runner().feed("x", x).fetch("y").runAsync().get());
+  }
+
+  @Benchmark
+  public void callable() {
+    close(callable.call(x));
+  }
+
+  @Benchmark
+  public void sessionPool() throws InterruptedException {
+    try (SessionPool.Lease lease = pool.acquire()) {
+      close(lease.runner().feed("x", x).fetch("y").run());
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Threads(Threads.MAX)
+  public void runnerConcurrent() {
+    runner();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @Threads(Threads.MAX)
+  public void sessionPoolConcurrent() throws InterruptedException {
+    sessionPool();
+  }
+
+  private static void close(List<Tensor<?>> tensors) {
+    for (Tensor<?> t : tensors) {
+      t.close();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.benchmarks;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.StringTensorBuilder;
+import org.tensorflow.Tensor;
+import org.tensorflow.Tensors;
+
+/** Benchmarks creating string tensors and reading them back. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StringTensorBenchmark {
+
+  @Param({"1", "1024"})
+  public int numStrings;
+
+  @Param({"16", "1024"})
+  public int stringLength;
+
+  private byte[][] strings;
+  private Tensor<String> tensor;
+  private StringTensorBuilder builder;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    strings = new byte[numStrings][stringLength];
+    for (byte[] s : strings) {
+      random.nextBytes(s);
+    }
+    tensor = Tensors.create(strings);
+    builder = new StringTensorBuilder();
+  }
+
+  @TearDown
+  public void tearDown() {
+    tensor.close();
+  }
+
+  @Benchmark
+  public void createScalar() {
+    Tensors.create(strings[0]).close();
+  }
+
+  @Benchmark
+  public void createVector() {
+    Tensors.create(strings).close();
+  }
+
+  @Benchmark
+  public void createFromBuilder() {
+    for (byte[] s : strings) {
+      builder.append(s);
+    }
+    builder.build().close();
+  }
+
+  @Benchmark
+  public byte[][] copyToArray() {
+    return tensor.copyTo(new byte[numStrings][]);
+  }
+
+  @Benchmark
+  public int iterate() {
+    int numBytes = 0;
+    for (Iterator<byte[]> it = tensor.stringIterator(); it.hasNext(); ) {
+      numBytes += it.next().length;
+    }
+    return numBytes;
+  }
+}
@@ -0,0 +1,137 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.DataType;
+import org.tensorflow.Tensor;
+import org.tensorflow.TensorAllocator;
+
+/** Benchmarks creating tensors of numeric types and reading them back. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TensorBenchmark {
+
+  @Param({"FLOAT", "DOUBLE", "INT32", "INT64"})
+  public String dataType;
+
+  @Param({"1024", "64x1024", "1x224x224x3", "8x16x16x16x8"})
+  public String shape;
+
+  private DataType dtype;
+  private Class<?> type;
+  private long[] dims;
+  private Object array;
+  private Object flatArray;
+  private ByteBuffer data;
+  private Tensor<?> tensor;
+  private TensorAllocator allocator;
+
+  @Setup
+  public void setUp() {
+    dtype = DataType.valueOf(dataType);
+    type = BenchmarkUtil.boxedClass(dtype);
+    dims = BenchmarkUtil.parseShape(shape);
+    array = BenchmarkUtil.newArray(dtype, dims);
+    flatArray = BenchmarkUtil.newArray(dtype, new long[] {BenchmarkUtil.numElements(dims)});
+    data =
+        ByteBuffer.allocateDirect(BenchmarkUtil.numElements(dims) * dtype.byteSize())
+            .order(ByteOrder.nativeOrder());
+    tensor = Tensor.create(array);
+    allocator = new TensorAllocator();
+  }
+
+  @TearDown
+  public void tearDown() {
+    tensor.close();
+    allocator.close();
+  }
+
+  @Benchmark
+  public void createFromArray() {
+    Tensor.create(array).close();
+  }
+
+  @Benchmark
+  public void createFromBuffer() {
+    data.rewind();
+    Tensor.create(type, dims, data).close();
+  }
+
+  @Benchmark
+  public void wrapBuffer() {
+    // Note: TensorFlow falls back to a copy if the buffer is not aligned as it expects
+    data.rewind();
+    Tensor.wrap(type, dims, data).close();
+  }
+
+  @Benchmark
+  public void createFromAllocator() {
+    data.rewind();
+    allocator.recycle(allocator.create(type, dims, data));
+  }
+
+  @Benchmark
+  public Object copyToArray() {
+    return tensor.copyTo(array);
+  }
+
+  @Benchmark
+  public ByteBuffer writeToBuffer() {
+    data.clear();
+    tensor.writeTo(data);
+    return data;
+  }
+
+  @Benchmark
+  public Object readFlat() {
+    switch (dtype) {
+      case FLOAT:
+        tensor.readFloats((float[]) flatArray, 0);
+        break;
+      case DOUBLE:
+        tensor.readDoubles((double[]) flatArray, 0);
+        break;
+      case INT32:
+        tensor.readInts((int[]) flatArray, 0);
+        break;
+      case INT64:
+        tensor.readLongs((long[]) flatArray, 0);
+        break;
+      default:
+        throw new IllegalStateException();
+    }
+    return flatArray;
+  }
+}
@@ -0,0 +1,101 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tensorflow.Tensor;
+
+/**
+ * Benchmarks wrapping large direct buffers in tensors against copying them, from 1 MB to 1 GB.
+ *
+ * <p>The buffer is aligned so that wrapping it never falls back to a copy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TensorWrapBenchmark {
+
+  // Float tensors of 1 MB, 16 MB, 256 MB and 1 GB
+  @Param({"512x512", "4096x1024", "65536x1024", "65536x4096"})
+  public String shape;
+
+  private long[] dims;
+  private ByteBuffer data;
+
+  @Setup
+  public void setUp() {
+    dims = BenchmarkUtil.parseShape(shape);
+    int numBytes = BenchmarkUtil.numElements(dims) * 4;
+    ByteBuffer block = ByteBuffer.allocateDirect(numBytes + MAX_ALIGNMENT);
+    for (int offset = 0; offset < MAX_ALIGNMENT; offset += 4) {
+      block.clear().position(offset).limit(offset + numBytes);
+      ByteBuffer candidate = block.slice().order(ByteOrder.nativeOrder());
+      // The buffer is copied, and released before wrap() returns, if it is not aligned
+      final AtomicBoolean released = new AtomicBoolean();
+      Tensor<Float> t =
+          Tensor.wrap(
+              Float.class,
+              dims,
+              candidate,
+              new Runnable() {
+                @Override
+                public void run() {
+                  released.set(true);
+                }
+              });
+      boolean aligned = !released.get();
+      t.close();
+      if (aligned) {
+        data = candidate;
+        return;
+      }
+    }
+    throw new IllegalStateException("no aligned buffer could be allocated");
+  }
+
+  @Benchmark
+  public void createFromBuffer() {
+    data.rewind();
+    Tensor.create(Float.class, dims, data).close();
+  }
+
+  @Benchmark
+  public void wrapBuffer() {
+    data.rewind();
+    Tensor.wrap(Float.class, dims, data).close();
+  }
+
+  private static final int MAX_ALIGNMENT = 64;
+}
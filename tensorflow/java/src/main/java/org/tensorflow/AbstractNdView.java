@@ -0,0 +1,92 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+/**
+ * Base class for the element views of a {@link Tensor}.
+ *
+ * <p>Views read directly from the native memory of the tensor, locating elements from their
+ * N-dimensional coordinates in row-major order, without copying the tensor data into Java arrays.
+ *
+ * <p>As opposed to its subclasses, this class is package private and therefore its usage is limited
+ * to internal purposes only.
+ */
+abstract class AbstractNdView {
+
+  /**
+   * Returns the shape of the viewed tensor.
+   *
+   * @return an array where the i-th element is the size of the i-th dimension of the tensor.
+   */
+  public long[] shape() {
+    return shape;
+  }
+
+  /** Returns the number of dimensions of the viewed tensor. */
+  public int numDimensions() {
+    return shape.length;
+  }
+
+  /** Returns the total number of elements in the viewed tensor. */
+  public int numElements() {
+    return numElements;
+  }
+
+  AbstractNdView(Tensor<?> tensor) {
+    this.tensor = tensor;
+    this.shape = tensor.shape();
+    this.strides = new long[shape.length];
+    long stride = 1;
+    for (int i = shape.length - 1; i >= 0; --i) {
+      strides[i] = stride;
+      stride *= shape[i];
+    }
+    this.numElements = (int) stride;
+  }
+
+  /**
+   * Computes the position of an element in the flattened tensor buffer.
+   *
+   * @throws IllegalStateException if the viewed tensor has been closed
+   * @throws IndexOutOfBoundsException if {@code indices} does not locate an element of the tensor
+   */
+  int position(long[] indices) {
+    if (tensor.getNativeHandle() == 0L) {
+      throw new IllegalStateException("close() was called on the Tensor");
+    }
+    if (indices.length != shape.length) {
+      throw new IndexOutOfBoundsException(
+          String.format(
+              "expected %d indices to locate an element, got %d", shape.length, indices.length));
+    }
+    long position = 0;
+    for (int i = 0; i < indices.length; ++i) {
+      if (indices[i] < 0 || indices[i] >= shape[i]) {
+        throw new IndexOutOfBoundsException(
+            String.format(
+                "index %d is out of bounds for dimension %d of size %d",
+                indices[i], i, shape[i]));
+      }
+      position += indices[i] * strides[i];
+    }
+    return (int) position;
+  }
+
+  private final Tensor<?> tensor;
+  private final long[] shape;
+  private final long[] strides;
+  private final int numElements;
+}
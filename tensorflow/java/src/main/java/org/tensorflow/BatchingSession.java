@@ -0,0 +1,530 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges concurrent requests into batches executed by a single {@link Session} run.
+ *
+ * <p>Each request provides one tensor per input of a {@link Session.Callable}, whose first
+ * dimension is the number of examples in the request. Requests submitted from any thread are
+ * queued and, once enough examples have been collected or the oldest request has waited long
+ * enough, their inputs are concatenated along the first dimension and fed to the callable at once.
+ * Each output of the run is then split back along its first dimension and returned to the future
+ * of the request it belongs to. For example:
+ *
+ * <pre>{@code
+ * try (SavedModelBundle bundle = SavedModelBundle.load(exportDir, "serve");
+ *     BatchingSession batching =
+ *         BatchingSession.options()
+ *             .maxBatchSize(32)
+ *             .maxQueueDelay(2, TimeUnit.MILLISECONDS)
+ *             .build(bundle.session().runner().feed("x", null).fetch("y").compile())) {
+ *   // from any worker thread
+ *   try (Tensor<Float> x = Tensors.create(new float[][] {features})) {
+ *     try (Tensor<?> y = batching.submit(x).get().get(0)) {
+ *       // use y...
+ *     }
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>The tensors of a request are read when its batch is executed, they must not be closed before
+ * its future completes. Tensors returned by the future must be closed by the caller. The model
+ * must compute each row of its outputs only from the same row of its inputs, and {@link String}
+ * tensors are not supported.
+ *
+ * <p>Batches are executed by a single background thread, which is stopped when the batching
+ * session is closed. The underlying {@link Session} is not owned by this object and must remain
+ * open until then.
+ *
+ * <p>Instances of a {@code BatchingSession} are thread-safe.
+ */
+public final class BatchingSession implements AutoCloseable {
+
+  /** Controls how batches are filled when they are not complete. */
+  public static enum PaddingPolicy {
+
+    /** Batches are executed with the exact number of examples collected. */
+    NONE,
+
+    /** Batches are padded to the next allowed batch size with rows filled with zeros. */
+    PAD_WITH_ZEROS,
+
+    /** Batches are padded to the next allowed batch size by repeating their last row. */
+    REPEAT_LAST_ROW,
+  }
+
+  public static class Options {
+
+    /**
+     * Maximum number of examples executed in a single batch.
+     *
+     * <p>Default is 32.
+     *
+     * @param value a positive number of examples
+     */
+    public Options maxBatchSize(int value) {
+      maxBatchSize = value;
+      return this;
+    }
+
+    /**
+     * Maximum time a request waits in the queue for other requests to join its batch.
+     *
+     * <p>Default is 1 millisecond.
+     *
+     * @param value time to wait, can be zero
+     * @param unit time unit of {@code value}
+     */
+    public Options maxQueueDelay(long value, TimeUnit unit) {
+      maxQueueDelayNanos = unit.toNanos(value);
+      return this;
+    }
+
+    /**
+     * Controls how batches are filled up to one of the allowed batch sizes.
+     *
+     * <p>{@link PaddingPolicy#NONE} is used by default.
+     *
+     * @param value policy to apply
+     * @see #allowedBatchSizes(int...)
+     */
+    public Options paddingPolicy(PaddingPolicy value) {
+      paddingPolicy = value;
+      return this;
+    }
+
+    /**
+     * Sizes to which incomplete batches are padded, if a padding policy is set.
+     *
+     * <p>Limiting the number of distinct batch sizes reduces the number of shapes the model is
+     * executed with. Sizes must be given in increasing order and the last one must be equal to
+     * the maximum batch size. By default, incomplete batches are padded to the maximum batch size.
+     *
+     * @param values allowed batch sizes, in increasing order
+     */
+    public Options allowedBatchSizes(int... values) {
+      allowedBatchSizes = Arrays.copyOf(values, values.length);
+      return this;
+    }
+
+    /**
+     * Builds a batching session executing {@code callable} with the selected options.
+     *
+     * @param callable the signature to execute, each input and output being batched along its
+     *     first dimension
+     * @throws IllegalArgumentException if the options are not valid
+     */
+    public BatchingSession build(Session.Callable callable) {
+      if (maxBatchSize <= 0) {
+        throw new IllegalArgumentException("maxBatchSize must be positive");
+      }
+      if (maxQueueDelayNanos < 0) {
+        throw new IllegalArgumentException("maxQueueDelay cannot be negative");
+      }
+      if (allowedBatchSizes != null) {
+        if (paddingPolicy == PaddingPolicy.NONE) {
+          throw new IllegalArgumentException("allowedBatchSizes requires a padding policy");
+        }
+        int previous = 0;
+        for (int size : allowedBatchSizes) {
+          if (size <= previous) {
+            throw new IllegalArgumentException(
+                "allowedBatchSizes must be positive and in increasing order");
+          }
+          previous = size;
+        }
+        if (previous != maxBatchSize) {
+          throw new IllegalArgumentException(
+              "the last allowed batch size must be equal to maxBatchSize");
+        }
+      }
+      return new BatchingSession(callable, this);
+    }
+
+    private int maxBatchSize;
+    private long maxQueueDelayNanos;
+    private PaddingPolicy paddingPolicy;
+    private int[] allowedBatchSizes;
+
+    private Options() {
+      maxBatchSize = 32;
+      maxQueueDelayNanos = TimeUnit.MILLISECONDS.toNanos(1);
+      paddingPolicy = PaddingPolicy.NONE;
+      allowedBatchSizes = null;
+    }
+  }
+
+  /** Returns an object that configures and builds a {@code BatchingSession} with custom options. */
+  public static BatchingSession.Options options() {
+    return new Options();
+  }
+
+  /**
+   * Queues a request for execution in the next batch.
+   *
+   * @param inputs the values to feed, in the order of the inputs of the callable. All tensors must
+   *     have the same size in their first dimension, which is the number of examples of the request
+   * @return the outputs of the request, in the order of the outputs of the callable
+   * @throws IllegalArgumentException if the inputs are not compatible with the callable or if the
+   *     request has more examples than the maximum batch size
+   * @throws IllegalStateException if this batching session has been closed
+   */
+  public Future<List<Tensor<?>>> submit(Tensor<?>... inputs) {
+    if (inputs.length != callable.numInputs()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "expected %d input tensors, got %d", callable.numInputs(), inputs.length));
+    }
+    long numRows = -1;
+    for (Tensor<?> t : inputs) {
+      if (t.dataType() == DataType.STRING) {
+        throw new IllegalArgumentException("STRING tensors cannot be batched");
+      }
+      if (t.numDimensions() == 0) {
+        throw new IllegalArgumentException("scalar tensors cannot be batched");
+      }
+      if (numRows < 0) {
+        numRows = t.shape()[0];
+      } else if (t.shape()[0] != numRows) {
+        throw new IllegalArgumentException(
+            "all input tensors of a request must have the same size in their first dimension");
+      }
+    }
+    if (numRows < 1) {
+      throw new IllegalArgumentException("a request must have at least one example");
+    }
+    if (numRows > maxBatchSize) {
+      throw new IllegalArgumentException(
+          String.format(
+              "request of %d examples exceeds the maximum batch size of %d",
+              numRows, maxBatchSize));
+    }
+    Request request = new Request(inputs, (int) numRows);
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("close() has been called on the BatchingSession");
+      }
+      queue.add(request);
+    }
+    return request.result;
+  }
+
+  /** Returns the number of batches executed so far. */
+  public synchronized long batchCount() {
+    return batchCount;
+  }
+
+  /**
+   * Stops accepting new requests and waits for the background thread to complete.
+   *
+   * <p>Requests already queued are still executed before this method returns.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      queue.add(SHUTDOWN);
+    }
+    boolean interrupted = false;
+    while (worker.isAlive()) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class Result extends FutureTask<List<Tensor<?>>> {
+
+    Result() {
+      super(NOOP, null);
+    }
+
+    void complete(List<Tensor<?>> outputs) {
+      set(outputs);
+      if (isCancelled()) {
+        for (Tensor<?> t : outputs) {
+          t.close();
+        }
+      }
+    }
+
+    void fail(Throwable cause) {
+      setException(cause);
+    }
+
+    private static final Runnable NOOP =
+        new Runnable() {
+          @Override
+          public void run() {}
+        };
+  }
+
+  private static final class Request {
+
+    Request(Tensor<?>[] inputs, int numRows) {
+      this.inputs = inputs;
+      this.numRows = numRows;
+      this.submitNanos = System.nanoTime();
+    }
+
+    /** Returns true if both requests can be stacked in the same batch. */
+    boolean isCompatibleWith(Request other) {
+      for (int i = 0; i < inputs.length; ++i) {
+        Tensor<?> a = inputs[i];
+        Tensor<?> b = other.inputs[i];
+        if (a.dataType() != b.dataType() || a.numDimensions() != b.numDimensions()) {
+          return false;
+        }
+        for (int d = 1; d < a.numDimensions(); ++d) {
+          if (a.shape()[d] != b.shape()[d]) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    final Tensor<?>[] inputs;
+    final int numRows;
+    final long submitNanos;
+    final Result result = new Result();
+  }
+
+  private static final Request SHUTDOWN = new Request(new Tensor<?>[0], 0);
+
+  private final Session.Callable callable;
+  private final int maxBatchSize;
+  private final long maxQueueDelayNanos;
+  private final PaddingPolicy paddingPolicy;
+  private final int[] allowedBatchSizes;
+  private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+  private final Thread worker;
+  private long batchCount = 0;
+  private boolean closed = false;
+
+  private BatchingSession(Session.Callable callable, Options options) {
+    this.callable = callable;
+    this.maxBatchSize = options.maxBatchSize;
+    this.maxQueueDelayNanos = options.maxQueueDelayNanos;
+    this.paddingPolicy = options.paddingPolicy;
+    this.allowedBatchSizes = options.allowedBatchSizes;
+    this.worker =
+        new Thread("tensorflow-batching") {
+          @Override
+          public void run() {
+            processRequests();
+          }
+        };
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  private void processRequests() {
+    Request next = null;
+    while (true) {
+      Request first = next;
+      next = null;
+      if (first == null) {
+        first = takeUninterruptibly();
+      }
+      if (first == SHUTDOWN) {
+        break;
+      }
+      List<Request> batch = new ArrayList<>();
+      batch.add(first);
+      int numRows = first.numRows;
+      // The delay runs from the submission of the oldest request, which may have been queued
+      // while the previous batch was executing
+      long deadline = first.submitNanos + maxQueueDelayNanos;
+      while (numRows < maxBatchSize) {
+        long remaining = deadline - System.nanoTime();
+        Request r;
+        try {
+          r = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+        } catch (InterruptedException e) {
+          r = null;
+        }
+        if (r == null) {
+          break;
+        }
+        if (r == SHUTDOWN || numRows + r.numRows > maxBatchSize || !first.isCompatibleWith(r)) {
+          // leave it for the next batch
+          next = r;
+          break;
+        }
+        batch.add(r);
+        numRows += r.numRows;
+      }
+      execute(batch);
+    }
+  }
+
+  private Request takeUninterruptibly() {
+    while (true) {
+      try {
+        return queue.take();
+      } catch (InterruptedException e) {
+        // keep waiting, the worker is only stopped by close()
+      }
+    }
+  }
+
+  private void execute(List<Request> batch) {
+    // Skip requests that have been cancelled while waiting in the queue
+    List<Request> requests = new ArrayList<>(batch.size());
+    int numRows = 0;
+    for (Request r : batch) {
+      if (!r.result.isCancelled()) {
+        requests.add(r);
+        numRows += r.numRows;
+      }
+    }
+    if (requests.isEmpty()) {
+      return;
+    }
+    int batchSize = paddedBatchSize(numRows);
+    Tensor<?>[] batchInputs = new Tensor<?>[callable.numInputs()];
+    List<Tensor<?>> batchOutputs = Collections.emptyList();
+    try {
+      for (int i = 0; i < batchInputs.length; ++i) {
+        batchInputs[i] = stack(requests, i, numRows, batchSize);
+      }
+      batchOutputs = callable.call(batchInputs);
+      synchronized (this) {
+        ++batchCount;
+      }
+      split(requests, batchOutputs, batchSize);
+    } catch (Throwable e) {
+      // Errors must not leave futures pending forever nor stop the worker
+      for (Request r : requests) {
+        r.result.fail(e);
+      }
+    } finally {
+      for (Tensor<?> t : batchInputs) {
+        if (t != null) {
+          t.close();
+        }
+      }
+      for (Tensor<?> t : batchOutputs) {
+        t.close();
+      }
+    }
+  }
+
+  private int paddedBatchSize(int numRows) {
+    if (paddingPolicy == PaddingPolicy.NONE) {
+      return numRows;
+    }
+    if (allowedBatchSizes != null) {
+      for (int size : allowedBatchSizes) {
+        if (size >= numRows) {
+          return size;
+        }
+      }
+    }
+    return maxBatchSize;
+  }
+
+  private Tensor<?> stack(List<Request> requests, int input, int numRows, int batchSize) {
+    Tensor<?> first = requests.get(0).inputs[input];
+    long[] shape = Arrays.copyOf(first.shape(), first.numDimensions());
+    shape[0] = batchSize;
+    int rowElements = first.numElements() / requests.get(0).numRows;
+    Tensor<?> stacked = Tensor.allocateForBuffer(first.dataType(), shape, rowElements * batchSize);
+    ByteBuffer dst = stacked.buffer();
+    for (Request r : requests) {
+      dst.put(r.inputs[input].buffer());
+    }
+    if (batchSize > numRows) {
+      int rowBytes = rowElements * first.dataType().byteSize();
+      if (paddingPolicy == PaddingPolicy.REPEAT_LAST_ROW) {
+        ByteBuffer lastRow = dst.duplicate();
+        lastRow.limit(dst.position()).position(dst.position() - rowBytes);
+        for (int i = numRows; i < batchSize; ++i) {
+          dst.put(lastRow.duplicate());
+        }
+      } else {
+        dst.put(new byte[rowBytes * (batchSize - numRows)]);
+      }
+    }
+    return stacked;
+  }
+
+  private void split(List<Request> requests, List<Tensor<?>> batchOutputs, int batchSize) {
+    for (Tensor<?> t : batchOutputs) {
+      if (t.dataType() == DataType.STRING
+          || t.numDimensions() == 0
+          || t.shape()[0] != batchSize) {
+        throw new IllegalStateException(
+            String.format(
+                "%s cannot be split in a batch of size %d", t.toString(), batchSize));
+      }
+    }
+    List<List<Tensor<?>>> results = new ArrayList<>(requests.size());
+    try {
+      for (int i = 0; i < requests.size(); ++i) {
+        results.add(new ArrayList<Tensor<?>>(batchOutputs.size()));
+      }
+      for (Tensor<?> batchOutput : batchOutputs) {
+        ByteBuffer src = batchOutput.buffer();
+        int rowElements = batchOutput.numElements() / batchSize;
+        int rowBytes = rowElements * batchOutput.dataType().byteSize();
+        long[] shape = Arrays.copyOf(batchOutput.shape(), batchOutput.numDimensions());
+        for (int i = 0; i < requests.size(); ++i) {
+          Request r = requests.get(i);
+          shape[0] = r.numRows;
+          Tensor<?> t =
+              Tensor.allocateForBuffer(batchOutput.dataType(), shape, rowElements * r.numRows);
+          results.get(i).add(t);
+          ByteBuffer slice = src.duplicate();
+          slice.limit(src.position() + rowBytes * r.numRows);
+          t.buffer().put(slice);
+          src.position(slice.limit());
+        }
+      }
+    } catch (Throwable e) {
+      for (List<Tensor<?>> result : results) {
+        for (Tensor<?> t : result) {
+          t.close();
+        }
+      }
+      throw e;
+    }
+    for (int i = 0; i < requests.size(); ++i) {
+      requests.get(i).result.complete(results.get(i));
+    }
+  }
+}
@@ -34,11 +34,24 @@ class EagerOperation extends AbstractOperation {
       long[] outputNativeHandles,
       String type,
       String name) {
+    this(session, opNativeHandle, outputNativeHandles, null, type, name);
+  }
+
+  EagerOperation(
+      EagerSession session,
+      long opNativeHandle,
+      long[] outputNativeHandles,
+      long[][] inputShapes,
+      String type,
+      String name) {
     this.session = session;
     this.type = type;
     this.name = name;
     this.nativeRef = new NativeReference(session, this, opNativeHandle, outputNativeHandles);
     this.outputTensors = new AtomicReferenceArray<Tensor<?>>(outputNativeHandles.length);
+    this.outputShapes = new AtomicReferenceArray<long[]>(outputNativeHandles.length);
+    this.outputDataTypes = new DataType[outputNativeHandles.length];
+    this.inputShapes = inputShapes;
   }
 
   @Override
@@ -73,30 +86,64 @@ class EagerOperation extends AbstractOperation {
 
   @Override
   public long[] shape(int outputIndex) {
-    // If the tensor of this output has already been resolved, return its shape.
-    // Otherwise, retrieve the tensor shape from the native library.
-    Tensor<?> tensor = outputTensors.get(outputIndex);
-    if (tensor != null) {
-      return tensor.shape();
+    // If the shape of this output has already been retrieved, return a copy of it. Otherwise, take
+    // it from the resolved tensor, if any, or infer it from the attributes of the operation and the
+    // known shapes of its inputs. Only when it cannot be inferred, take it from the native library,
+    // which waits for the operation to complete when executed asynchronously.
+    long[] shape = outputShapes.get(outputIndex);
+    if (shape == null) {
+      Tensor<?> tensor = outputTensors.get(outputIndex);
+      if (tensor != null) {
+        shape = tensor.shape();
+      } else {
+        if (inputShapes != null) {
+          shape = inferShape(nativeRef.opHandle, inputShapes, outputIndex);
+        }
+        if (shape == null) {
+          long outputNativeHandle = getUnsafeNativeHandle(outputIndex);
+          shape = new long[numDims(outputNativeHandle)];
+          for (int i = 0; i < shape.length; ++i) {
+            shape[i] = dim(outputNativeHandle, i);
+          }
+        }
+      }
+      outputShapes.compareAndSet(outputIndex, null, shape);
     }
-    long outputNativeHandle = getUnsafeNativeHandle(outputIndex);
-    long[] shape = new long[numDims(outputNativeHandle)];
-    for (int i = 0; i < shape.length; ++i) {
-      shape[i] = dim(outputNativeHandle, i);
+    return shape.clone();
+  }
+
+  /**
+   * Returns the shape of an output if it has already been retrieved, without computing it.
+   *
+   * @return the shape, or null if it is not known yet
+   */
+  long[] knownShape(int outputIndex) {
+    long[] shape = outputShapes.get(outputIndex);
+    if (shape == null) {
+      Tensor<?> tensor = outputTensors.get(outputIndex);
+      if (tensor != null) {
+        shape = tensor.shape();
+      }
     }
     return shape;
   }
 
   @Override
   public DataType dtype(int outputIndex) {
-    // If the tensor of this output has already been resolved, return its datatype.
-    // Otherwise, retrieve the tensor datatype from the native library.
-    Tensor<?> tensor = outputTensors.get(outputIndex);
-    if (tensor != null) {
-      return tensor.dataType();
+    // The datatype of an output is known as soon as the operation is enqueued, so it can be
+    // retrieved from the native library without waiting for the operation to complete.
+    DataType dtype = outputDataTypes[outputIndex];
+    if (dtype == null) {
+      Tensor<?> tensor = outputTensors.get(outputIndex);
+      if (tensor != null) {
+        dtype = tensor.dataType();
+      } else {
+        dtype = DataType.fromC(dataType(getUnsafeNativeHandle(outputIndex)));
+      }
+      // DataType values are immutable, so they can be safely shared without synchronization
+      outputDataTypes[outputIndex] = dtype;
     }
-    long outputNativeHandle = getUnsafeNativeHandle(outputIndex);
-    return DataType.fromC(dataType(outputNativeHandle));
+    return dtype;
   }
 
   @Override
@@ -113,6 +160,10 @@ class EagerOperation extends AbstractOperation {
   private final String type;
   private final String name;
   private final AtomicReferenceArray<Tensor<?>> outputTensors;
+  private final AtomicReferenceArray<long[]> outputShapes;
+  private final DataType[] outputDataTypes;
+  // Shapes of the inputs known when the operation was built, null where unknown
+  private final long[][] inputShapes;
 
   private Tensor<?> resolveTensor(int outputIndex) {
     // Take an optimistic approach, where we attempt to resolve the output tensor without locking.
@@ -169,4 +220,6 @@ class EagerOperation extends AbstractOperation {
   private static native int numDims(long handle);
 
   private static native long dim(long handle, int index);
+
+  private static native long[] inferShape(long opHandle, long[][] inputShapes, int outputIndex);
 }
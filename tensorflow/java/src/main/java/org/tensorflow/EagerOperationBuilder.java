@@ -17,43 +17,68 @@ package org.tensorflow;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * An {@link OperationBuilder} for building {@link Operation Operations} that are executed eagerly.
+ *
+ * <p>The device, attributes and inputs of the operation are only passed to the native library
+ * when it is built. If the session keeps {@link EagerOperationTemplates templates} of operations,
+ * operations with the same type, device and attributes as a previous one are built from the same
+ * template, without setting their attributes again.
  */
 final class EagerOperationBuilder implements OperationBuilder {
 
   EagerOperationBuilder(EagerSession session, String type, String name) {
+    session.checkSession();
     this.session = session;
     this.type = type;
     this.name = name;
-    this.nativeRef = new NativeReference(session, this, allocate(session.nativeHandle(), type));
   }
 
   @Override
   public EagerOperation build() {
-    long[] tensorHandles = execute(nativeRef.opHandle);
-    EagerOperation operation =
-        new EagerOperation(session, nativeRef.opHandle, tensorHandles, type, name);
-    // Release our reference to the native op handle now that we transferred its
-    // ownership to the EagerOperation
-    nativeRef.clear();
-    return operation;
+    long opHandle = allocateOp();
+    long[] tensorHandles;
+    try {
+      // The native op retains the tensors of its inputs, which remain reachable through this
+      // builder until then, so they cannot be released meanwhile
+      for (Object input : inputs) {
+        if (input instanceof Output<?>[]) {
+          Output<?>[] inputList = (Output<?>[]) input;
+          long[] inputHandles = new long[inputList.length];
+          for (int i = 0; i < inputList.length; ++i) {
+            inputHandles[i] = inputList[i].getUnsafeNativeHandle();
+          }
+          addInputList(opHandle, inputHandles);
+        } else {
+          addInput(opHandle, ((Output<?>) input).getUnsafeNativeHandle());
+        }
+      }
+      tensorHandles = execute(opHandle);
+    } catch (RuntimeException e) {
+      delete(opHandle);
+      throw e;
+    }
+    // The EagerOperation takes ownership of the native op handle
+    return new EagerOperation(
+        session, opHandle, tensorHandles, inputShapes.toArray(new long[0][]), type, name);
   }
 
   @Override
   public EagerOperationBuilder addInput(Output<?> input) {
-    addInput(nativeRef.opHandle, input.getUnsafeNativeHandle());
+    inputs.add(input);
+    inputShapes.add(knownShape(input));
     return this;
   }
 
   @Override
   public EagerOperationBuilder addInputList(Output<?>[] inputs) {
-    long[] inputHandles = new long[inputs.length];
-    for (int i = 0; i < inputs.length; ++i) {
-      inputHandles[i] = inputs[i].getUnsafeNativeHandle();
+    for (Output<?> input : inputs) {
+      inputShapes.add(knownShape(input));
     }
-    addInputList(nativeRef.opHandle, inputHandles);
+    this.inputs.add(inputs.clone());
     return this;
   }
 
@@ -65,7 +90,8 @@ final class EagerOperationBuilder implements OperationBuilder {
 
   @Override
   public EagerOperationBuilder setDevice(String device) {
-    setDevice(nativeRef.opHandle, device);
+    session.checkSession();
+    this.device = device;
     return this;
   }
 
@@ -77,76 +103,63 @@ final class EagerOperationBuilder implements OperationBuilder {
   @Override
   public EagerOperationBuilder setAttr(String name, String[] values) {
     Charset utf8 = StandardCharsets.UTF_8;
-    Object[] objects = new Object[values.length];
+    byte[][] objects = new byte[values.length][];
     for (int i = 0; i < values.length; ++i) {
       objects[i] = values[i].getBytes(utf8);
     }
-    setAttrStringList(nativeRef.opHandle, name, values);
-    return this;
+    return addAttr(name, objects);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, byte[] values) {
-    setAttrString(nativeRef.opHandle, name, values);
-    return this;
+    return addAttr(name, values);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, long value) {
-    setAttrInt(nativeRef.opHandle, name, value);
-    return this;
+    return addAttr(name, value);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, long[] values) {
-    setAttrIntList(nativeRef.opHandle, name, values);
-    return this;
+    return addAttr(name, values);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, float value) {
-    setAttrFloat(nativeRef.opHandle, name, value);
-    return this;
+    return addAttr(name, value);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, float[] values) {
-    setAttrFloatList(nativeRef.opHandle, name, values);
-    return this;
+    return addAttr(name, values);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, boolean value) {
-    setAttrBool(nativeRef.opHandle, name, value);
-    return this;
+    return addAttr(name, value);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, boolean[] values) {
-    setAttrBoolList(nativeRef.opHandle, name, values);
-    return this;
+    return addAttr(name, values);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, DataType value) {
-    setAttrType(nativeRef.opHandle, name, value.c());
-    return this;
+    return addAttr(name, value);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, DataType[] values) {
-    int[] c = new int[values.length];
-    for (int i = 0; i < values.length; ++i) {
-      c[i] = values[i].c();
-    }
-    setAttrTypeList(nativeRef.opHandle, name, c);
-    return this;
+    return addAttr(name, values);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, Tensor<?> value) {
-    setAttrTensor(nativeRef.opHandle, name, value.getNativeHandle());
-    return this;
+    // Tensor values are not compared, operations with tensor attributes are never templated
+    templated = false;
+    return addAttr(name, value);
   }
 
   @Override
@@ -158,12 +171,110 @@ final class EagerOperationBuilder implements OperationBuilder {
 
   @Override
   public EagerOperationBuilder setAttr(String name, Shape value) {
-    setAttrShape(nativeRef.opHandle, name, value.asArray(), value.numDimensions());
-    return this;
+    return addAttr(name, value);
   }
 
   @Override
   public EagerOperationBuilder setAttr(String name, Shape[] values) {
+    return addAttr(name, values);
+  }
+
+  private final EagerSession session;
+  private final String type;
+  private final String name;
+  // Names and values of the attributes, alternately
+  private final List<Object> attrs = new ArrayList<>();
+  // Inputs, either as an Output or as an Output[] for input lists, kept until the operation is
+  // built so that their tensors are not released before
+  private final List<Object> inputs = new ArrayList<>();
+  // Shapes of the inputs already known, one per input tensor, used to infer the output shapes
+  private final List<long[]> inputShapes = new ArrayList<>();
+  private String device = null;
+  private boolean templated = true;
+
+  private EagerOperationBuilder addAttr(String name, Object value) {
+    session.checkSession();
+    attrs.add(name);
+    attrs.add(value);
+    return this;
+  }
+
+  private static long[] knownShape(Output<?> input) {
+    Operation op = input.op();
+    return op instanceof EagerOperation ? ((EagerOperation) op).knownShape(input.index()) : null;
+  }
+
+  private long allocateOp() {
+    long contextHandle = session.nativeHandle();
+    EagerOperationTemplates templates = session.operationTemplates();
+    if (templates == null || !templated) {
+      return allocateAndConfigure(contextHandle);
+    }
+    EagerOperationTemplates.Key key =
+        new EagerOperationTemplates.Key(type, device, attrs.toArray());
+    long templateHandle = templates.get(key);
+    if (templateHandle == 0L) {
+      if (!templates.hasCapacity()) {
+        return allocateAndConfigure(contextHandle);
+      }
+      templateHandle = templates.put(key, allocateAndConfigure(contextHandle));
+    }
+    return allocateFromTemplate(contextHandle, templateHandle);
+  }
+
+  private long allocateAndConfigure(long contextHandle) {
+    long opHandle = allocate(contextHandle, type);
+    try {
+      if (device != null) {
+        setDevice(opHandle, device);
+      }
+      for (int i = 0; i < attrs.size(); i += 2) {
+        setAttr(opHandle, (String) attrs.get(i), attrs.get(i + 1));
+      }
+    } catch (RuntimeException e) {
+      delete(opHandle);
+      throw e;
+    }
+    return opHandle;
+  }
+
+  private static void setAttr(long opHandle, String name, Object value) {
+    if (value instanceof byte[]) {
+      setAttrString(opHandle, name, (byte[]) value);
+    } else if (value instanceof byte[][]) {
+      setAttrStringList(opHandle, name, (byte[][]) value);
+    } else if (value instanceof Long) {
+      setAttrInt(opHandle, name, (Long) value);
+    } else if (value instanceof long[]) {
+      setAttrIntList(opHandle, name, (long[]) value);
+    } else if (value instanceof Float) {
+      setAttrFloat(opHandle, name, (Float) value);
+    } else if (value instanceof float[]) {
+      setAttrFloatList(opHandle, name, (float[]) value);
+    } else if (value instanceof Boolean) {
+      setAttrBool(opHandle, name, (Boolean) value);
+    } else if (value instanceof boolean[]) {
+      setAttrBoolList(opHandle, name, (boolean[]) value);
+    } else if (value instanceof DataType) {
+      setAttrType(opHandle, name, ((DataType) value).c());
+    } else if (value instanceof DataType[]) {
+      DataType[] values = (DataType[]) value;
+      int[] c = new int[values.length];
+      for (int i = 0; i < values.length; ++i) {
+        c[i] = values[i].c();
+      }
+      setAttrTypeList(opHandle, name, c);
+    } else if (value instanceof Tensor) {
+      setAttrTensor(opHandle, name, ((Tensor<?>) value).getNativeHandle());
+    } else if (value instanceof Shape) {
+      Shape shape = (Shape) value;
+      setAttrShape(opHandle, name, shape.asArray(), shape.numDimensions());
+    } else {
+      setAttrShapeList(opHandle, name, (Shape[]) value);
+    }
+  }
+
+  private static void setAttrShapeList(long opHandle, String name, Shape[] values) {
     int[] numDimensions = new int[values.length];
     int totalNumDimensions = 0;
     for (int idx = 0; idx < values.length; ++idx) {
@@ -184,42 +295,14 @@ final class EagerOperationBuilder implements OperationBuilder {
         }
       }
     }
-    setAttrShapeList(nativeRef.opHandle, name, shapes, numDimensions);
-    return this;
-  }
-
-  private static class NativeReference extends EagerSession.NativeReference {
-
-    NativeReference(EagerSession session, EagerOperationBuilder operation, long opHandle) {
-      super(session, operation);
-      this.opHandle = opHandle;
-    }
-
-    @Override
-    public void clear() {
-      super.clear();
-      opHandle = 0L;
-    }
-
-    @Override
-    synchronized void delete() {
-      if (opHandle != 0L) {
-        EagerOperationBuilder.delete(opHandle);
-        opHandle = 0L;
-      }
-    }
-
-    private long opHandle;
+    setAttrShapeList(opHandle, name, shapes, numDimensions);
   }
 
-  private final EagerSession session;
-  private final String type;
-  private final String name;
-  private final NativeReference nativeRef;
-
   private static native long allocate(long ctxHandle, String type);
 
-  private static native void delete(long opHandle);
+  private static native long allocateFromTemplate(long ctxHandle, long templateHandle);
+
+  static native void delete(long opHandle);
 
   private static native long[] execute(long opHandle);
 
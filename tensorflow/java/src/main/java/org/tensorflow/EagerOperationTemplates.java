@@ -0,0 +1,153 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Native operations configured with a given device and set of attributes, used as templates for
+ * building eager operations of the same kind.
+ *
+ * <p>Building an operation from a template copies its attributes natively, instead of looking up
+ * the operation definition and setting each attribute with a separate call to the native library.
+ * Templates never have inputs: attributes inferred from the inputs of an operation are still
+ * computed when the inputs are added to it.
+ *
+ * <p>Templates are kept until the session is closed. Once {@code capacity} templates have been
+ * created, new kinds of operations are built without one.
+ */
+final class EagerOperationTemplates {
+
+  /** Identifies the operations that can be built from the same template. */
+  static final class Key {
+
+    /**
+     * Creates a key.
+     *
+     * @param type the type of the operation
+     * @param device the device of the operation, or null if none has been set
+     * @param attrs the names and values of the attributes explicitly set on the operation,
+     *     alternately, which are modified in place
+     */
+    Key(String type, String device, Object[] attrs) {
+      this.type = type;
+      this.device = device;
+      this.attrs = attrs;
+      for (int i = 1; i < attrs.length; i += 2) {
+        // Shapes are only equal when fully known, compare their dimensions instead
+        if (attrs[i] instanceof Shape) {
+          attrs[i] = dims((Shape) attrs[i]);
+        } else if (attrs[i] instanceof Shape[]) {
+          Shape[] shapes = (Shape[]) attrs[i];
+          long[][] dims = new long[shapes.length][];
+          for (int j = 0; j < shapes.length; ++j) {
+            dims[j] = dims(shapes[j]);
+          }
+          attrs[i] = dims;
+        }
+      }
+      int h = type.hashCode();
+      h = 31 * h + (device != null ? device.hashCode() : 0);
+      this.hashCode = 31 * h + Arrays.deepHashCode(attrs);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hashCode == other.hashCode
+          && type.equals(other.type)
+          && (device != null ? device.equals(other.device) : other.device == null)
+          && Arrays.deepEquals(attrs, other.attrs);
+    }
+
+    private final String type;
+    private final String device;
+    private final Object[] attrs;
+    private final int hashCode;
+
+    private static long[] dims(Shape shape) {
+      long[] dims = shape.asArray();
+      return dims != null ? dims : UNKNOWN_RANK;
+    }
+
+    private static final long[] UNKNOWN_RANK = new long[] {-2};
+  }
+
+  EagerOperationTemplates(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /** Returns the handle of the template for {@code key}, or 0 if there is none. */
+  long get(Key key) {
+    Long templateHandle = templates.get(key);
+    return templateHandle != null ? templateHandle : 0L;
+  }
+
+  /** Returns the number of templates. */
+  int size() {
+    return size.get();
+  }
+
+  /** Returns true if a new template can be added. */
+  boolean hasCapacity() {
+    return size.get() < capacity;
+  }
+
+  /**
+   * Adds a template for {@code key}.
+   *
+   * <p>If another thread added a template for the same key concurrently, {@code templateHandle} is
+   * deleted and the existing template is returned instead.
+   *
+   * @return the handle of the template for {@code key}
+   */
+  long put(Key key, long templateHandle) {
+    Long existingHandle = templates.putIfAbsent(key, templateHandle);
+    if (existingHandle != null) {
+      EagerOperationBuilder.delete(templateHandle);
+      return existingHandle;
+    }
+    size.incrementAndGet();
+    return templateHandle;
+  }
+
+  /** Deletes all templates. */
+  void deleteAll() {
+    for (Long templateHandle : templates.values()) {
+      EagerOperationBuilder.delete(templateHandle);
+    }
+    templates.clear();
+    size.set(0);
+  }
+
+  private final ConcurrentMap<Key, Long> templates = new ConcurrentHashMap<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final int capacity;
+}
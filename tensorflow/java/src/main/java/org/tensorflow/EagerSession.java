@@ -18,10 +18,15 @@ package org.tensorflow;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
-import java.util.IdentityHashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An environment for executing TensorFlow operations eagerly.
@@ -116,6 +121,12 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
     ON_SESSION_CLOSE,
   }
 
+  /** Default maximum number of unused native resources pending release before back-pressure. */
+  public static final int DEFAULT_MAX_PENDING_RESOURCES = 10000;
+
+  /** Default maximum number of operation templates kept by a session. */
+  public static final int DEFAULT_MAX_OPERATION_TEMPLATES = 1000;
+
   public static class Options {
 
     /**
@@ -125,6 +136,12 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
      * operations might return "non-ready" outputs). When set to false, all operations are executed
      * synchronously.
      *
+     * <p>In asynchronous mode, building an operation only enqueues it: the calling thread waits for
+     * the execution only when the value of an output is requested, by calling {@link
+     * Output#tensor()}, or when {@link EagerSession#sync()} is invoked. The data type of an output
+     * is known without waiting, while its shape is only known once the operation has executed.
+     * Errors raised by an operation may be reported by any of these later calls.
+     *
      * <p>Synchronous execution is used by default.
      *
      * @param value true for asynchronous execution, false for synchronous.
@@ -161,6 +178,54 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
       return this;
     }
 
+    /**
+     * Controls the maximum number of unused native resources that can be pending release before
+     * threads allocating new ones start releasing them themselves.
+     *
+     * <p>When the background thread cannot keep up with the rate at which unused resources are
+     * collected, or when cleanup only happens on safe points, this limit bounds the backlog of
+     * resources waiting to be released. Resources still in use never count towards it. It has no
+     * effect with {@link ResourceCleanupStrategy#ON_SESSION_CLOSE}.
+     *
+     * <p>A resource is only known to be unused once the garbage collector has collected the object
+     * owning it. This limit therefore cannot bound the native memory of a session if the garbage
+     * collector does not run, which it does based on the pressure on the Java heap only. Closing
+     * tensors explicitly remains the only way to release their memory deterministically.
+     *
+     * <p>{@link #DEFAULT_MAX_PENDING_RESOURCES} is used by default.
+     *
+     * @param value maximum number of resources pending release before applying back-pressure
+     * @see EagerSession#pendingResourceCount()
+     */
+    public Options maxPendingResources(int value) {
+      if (value <= 0) {
+        throw new IllegalArgumentException("maxPendingResources must be positive");
+      }
+      maxPendingResources = value;
+      return this;
+    }
+
+    /**
+     * Controls the maximum number of operation templates kept by the session.
+     *
+     * <p>Operations built with the same type, device and attributes as a previous one, like those
+     * repeatedly executed in a loop, are created from a native template of that operation instead
+     * of setting each of their attributes again. Operations with tensor attributes are never
+     * built from a template. Templates are released when the session is closed.
+     *
+     * <p>{@link #DEFAULT_MAX_OPERATION_TEMPLATES} is used by default. A value of 0 disables
+     * templates.
+     *
+     * @param value maximum number of templates kept by the session
+     */
+    public Options maxOperationTemplates(int value) {
+      if (value < 0) {
+        throw new IllegalArgumentException("maxOperationTemplates cannot be negative");
+      }
+      maxOperationTemplates = value;
+      return this;
+    }
+
     /**
      * Configures the session based on the data found in the provided buffer, which is serialized
      * TensorFlow config proto.
@@ -185,12 +250,16 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
     private boolean async;
     private DevicePlacementPolicy devicePlacementPolicy;
     private ResourceCleanupStrategy resourceCleanupStrategy;
+    private int maxPendingResources;
+    private int maxOperationTemplates;
     private byte[] config;
 
     private Options() {
       async = false;
       devicePlacementPolicy = DevicePlacementPolicy.SILENT;
       resourceCleanupStrategy = ResourceCleanupStrategy.IN_BACKGROUND;
+      maxPendingResources = DEFAULT_MAX_PENDING_RESOURCES;
+      maxOperationTemplates = DEFAULT_MAX_OPERATION_TEMPLATES;
       config = null;
     }
   }
@@ -325,6 +394,9 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
         nativeResources.stopCleanupThread();
       }
       nativeResources.deleteAll();
+      if (operationTemplates != null) {
+        operationTemplates.deleteAll();
+      }
       delete(nativeHandle);
       nativeHandle = 0L;
     }
@@ -339,6 +411,47 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
     return new EagerOperationBuilder(this, type, name);
   }
 
+  /**
+   * Waits for all operations enqueued in this session to complete.
+   *
+   * <p>This only has an effect on sessions executing operations {@link Options#async(boolean)
+   * asynchronously}. If any of these operations has failed, the error is thrown by this method and
+   * cleared, so that operations built afterwards can be executed normally.
+   *
+   * @throws IllegalStateException if the session has been closed
+   */
+  public void sync() {
+    sync(nativeHandle());
+  }
+
+  /**
+   * Returns the number of native resources currently held by this session.
+   *
+   * <p>This includes resources of objects that are still in use, as well as those of objects that
+   * have been garbage collected but whose resources have not been released yet.
+   */
+  public int heldResourceCount() {
+    return nativeResources.heldCount();
+  }
+
+  /**
+   * Returns the number of native resources of garbage collected objects that are waiting to be
+   * released by this session.
+   *
+   * <p>Objects collected since the session last looked for garbage are not counted yet, which
+   * happens at least every time a batch of resources is released.
+   *
+   * @see Options#maxPendingResources(int)
+   */
+  public int pendingResourceCount() {
+    return nativeResources.pendingCount();
+  }
+
+  /** Returns the number of native resources released by this session since its creation. */
+  public long releasedResourceCount() {
+    return nativeResources.releasedCount();
+  }
+
   long nativeHandle() {
     checkSession();
     return nativeHandle;
@@ -409,48 +522,96 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
   /**
    * Collects native references attached to this session and releases their resources if they are no
    * longer needed.
+   *
+   * <p>References are registered in a concurrent set, so that threads attaching and detaching them
+   * do not contend on a single lock. References enqueued by the garbage collector are moved to a
+   * pending queue, where they are counted, and released from there in batches. Threads attaching
+   * new references help releasing them when too many are pending.
    */
   private static class NativeResourceCollector {
 
+    NativeResourceCollector(boolean cleanupOnAttach, int maxPendingRefs) {
+      this.cleanupOnAttach = cleanupOnAttach;
+      this.maxPendingRefs = maxPendingRefs;
+    }
+
     void attach(NativeReference nativeRef) {
-      synchronized (nativeRefs) {
-        nativeRefs.put(nativeRef, null);
+      nativeRefs.add(nativeRef);
+      int n = heldCount.incrementAndGet();
+      if (!cleanupOnAttach) {
+        return;
+      }
+      // Look for garbage only once in a while, as the number of references in use is unrelated
+      // to the number of those pending release
+      if (n % COLLECT_INTERVAL == 0) {
+        collect();
+      }
+      int excess = pendingCount.get() - maxPendingRefs;
+      if (excess > 0) {
+        releasePending(excess);
       }
     }
 
     void detach(NativeReference nativeRef) {
-      synchronized (nativeRefs) {
-        nativeRefs.remove(nativeRef);
+      if (nativeRefs.remove(nativeRef)) {
+        heldCount.decrementAndGet();
       }
     }
 
     void delete(NativeReference nativeRef) {
-      synchronized (nativeRefs) {
-        if (!nativeRefs.keySet().remove(nativeRef)) {
-          return; // safety check
-        }
+      if (!nativeRefs.remove(nativeRef)) {
+        return; // safety check
       }
+      heldCount.decrementAndGet();
       nativeRef.delete();
+      releasedCount.incrementAndGet();
     }
 
     void deleteAll() {
-      synchronized (nativeRefs) {
-        for (NativeReference nativeRef : nativeRefs.keySet()) {
-          nativeRef.delete();
-        }
-        nativeRefs.clear();
+      for (NativeReference nativeRef : nativeRefs) {
+        delete(nativeRef);
       }
+      pendingRefs.clear();
+      pendingCount.set(0);
     }
 
     void tryCleanup() {
+      collect();
+      releasePending(Integer.MAX_VALUE);
+    }
+
+    /** Moves the references enqueued by the garbage collector to the pending ones. */
+    void collect() {
       Reference<?> nativeRef;
-      synchronized (nativeRefs) {
-        while ((nativeRef = garbageQueue.poll()) != null) {
-          delete((NativeReference) nativeRef);
-        }
+      while ((nativeRef = garbageQueue.poll()) != null) {
+        addPending((NativeReference) nativeRef);
       }
     }
 
+    /** Releases up to {@code max} pending references and returns how many were released. */
+    int releasePending(int max) {
+      int n = 0;
+      NativeReference nativeRef;
+      while (n < max && (nativeRef = pendingRefs.poll()) != null) {
+        delete(nativeRef);
+        pendingCount.decrementAndGet();
+        ++n;
+      }
+      return n;
+    }
+
+    int heldCount() {
+      return heldCount.get();
+    }
+
+    int pendingCount() {
+      return pendingCount.get();
+    }
+
+    long releasedCount() {
+      return releasedCount.get();
+    }
+
     synchronized void startCleanupThread() {
       if (cleanupInBackground) {
         return; // ignore if cleanup thread is already running
@@ -463,8 +624,14 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
               public void run() {
                 try {
                   while (cleanupInBackground) {
-                    NativeReference nativeRef = (NativeReference) garbageQueue.remove();
-                    delete(nativeRef);
+                    // Block until a first reference is available, then release the backlog in
+                    // batches, collecting the references enqueued meanwhile between each of them
+                    // so that the pending count stays accurate.
+                    addPending((NativeReference) garbageQueue.remove());
+                    do {
+                      collect();
+                    } while (releasePending(CLEANUP_BATCH_SIZE) == CLEANUP_BATCH_SIZE
+                        && cleanupInBackground);
                   }
                 } catch (InterruptedException e) {
                   // exit
@@ -479,36 +646,72 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
 
     void stopCleanupThread() {
       cleanupInBackground = false;
-      cleanupService.shutdownNow(); // returns without waiting for the thread to stop
+      cleanupService.shutdownNow();
+      try {
+        // wait for the batch being released, if any, before the session is deleted
+        cleanupService.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void addPending(NativeReference nativeRef) {
+      pendingRefs.add(nativeRef);
+      pendingCount.incrementAndGet();
     }
 
+    private static final int CLEANUP_BATCH_SIZE = 256;
+    private static final int COLLECT_INTERVAL = 64;
+
     private final ExecutorService cleanupService = Executors.newSingleThreadExecutor();
-    private final Map<NativeReference, Void> nativeRefs = new IdentityHashMap<>();
+    private final Set<NativeReference> nativeRefs =
+        Collections.newSetFromMap(new ConcurrentHashMap<NativeReference, Boolean>());
     private final ReferenceQueue<Object> garbageQueue = new ReferenceQueue<>();
+    private final ConcurrentLinkedQueue<NativeReference> pendingRefs =
+        new ConcurrentLinkedQueue<>();
+    private final AtomicInteger heldCount = new AtomicInteger();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong releasedCount = new AtomicLong();
+    private final boolean cleanupOnAttach;
+    private final int maxPendingRefs;
     private volatile boolean cleanupInBackground = false;
   }
 
   private static volatile EagerSession defaultSession = null;
 
-  private final NativeResourceCollector nativeResources = new NativeResourceCollector();
+  private final NativeResourceCollector nativeResources;
   private final ResourceCleanupStrategy resourceCleanupStrategy;
+  private final EagerOperationTemplates operationTemplates;
   private long nativeHandle;
 
   private EagerSession(Options options) {
     this.nativeHandle = allocate(options.async, options.devicePlacementPolicy.code, options.config);
     this.resourceCleanupStrategy = options.resourceCleanupStrategy;
+    this.nativeResources =
+        new NativeResourceCollector(
+            resourceCleanupStrategy != ResourceCleanupStrategy.ON_SESSION_CLOSE,
+            options.maxPendingResources);
+    this.operationTemplates =
+        options.maxOperationTemplates > 0
+            ? new EagerOperationTemplates(options.maxOperationTemplates)
+            : null;
 
     if (resourceCleanupStrategy == ResourceCleanupStrategy.IN_BACKGROUND) {
       nativeResources.startCleanupThread();
     }
   }
 
-  private void checkSession() {
+  void checkSession() {
     if (nativeHandle == 0L) {
       throw new IllegalStateException("Eager session has been closed");
     }
   }
 
+  // Returns null if operations are not built from templates
+  EagerOperationTemplates operationTemplates() {
+    return operationTemplates;
+  }
+
   // For tests
   ResourceCleanupStrategy resourceCleanupStrategy() {
     return resourceCleanupStrategy;
@@ -518,6 +721,8 @@ public final class EagerSession implements ExecutionEnvironment, AutoCloseable {
 
   private static native void delete(long handle);
 
+  private static native void sync(long handle);
+
   static {
     TensorFlow.init();
   }
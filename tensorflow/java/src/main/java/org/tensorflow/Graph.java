@@ -15,12 +15,28 @@ limitations under the License.
 
 package org.tensorflow;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * A data flow graph representing a TensorFlow computation.
  *
- * <p>Instances of a Graph are thread-safe.
+ * <p>Instances of a Graph are thread-safe. Looking up operations and reading their attributes can
+ * be done concurrently by multiple threads, while importing a graph definition or building a while
+ * loop is done exclusively.
  *
  * <p><b>WARNING:</b> Resources consumed by the Graph object must be explicitly freed by invoking
  * the {@link #close()} method then the Graph object is no longer needed.
@@ -45,21 +61,27 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
    */
   @Override
   public void close() {
-    synchronized (nativeHandleLock) {
+    writeLock.lock();
+    try {
       if (nativeHandle == 0) {
         return;
       }
-      while (refcount > 0) {
+      closing = true;
+      while (refcount.get() > 0) {
         try {
-          nativeHandleLock.wait();
+          noMoreReferences.await();
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
           // Possible leak of the graph in this case?
           return;
         }
       }
+      operations.clear();
+      outputs.clear();
       delete(nativeHandle);
       nativeHandle = 0;
+    } finally {
+      writeLock.unlock();
     }
   }
 
@@ -69,13 +91,58 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
    * <p>Or {@code null} if no such operation exists in the Graph.
    */
   public GraphOperation operation(String name) {
-    synchronized (nativeHandleLock) {
-      long oph = operation(nativeHandle, name);
-      if (oph == 0) {
-        return null;
+    readLock.lock();
+    try {
+      GraphOperation op = operations.get(name);
+      if (op == null) {
+        long oph = operation(nativeHandle, name);
+        if (oph == 0) {
+          return null;
+        }
+        op = new GraphOperation(this, oph);
+        operations.put(name, op);
+      }
+      return op;
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the output referred to by {@code name}.
+   *
+   * @param name either the name of an operation, referring to its first output, or a string of the
+   *     form <tt>operation_name:output_index</tt>
+   * @throws IllegalArgumentException if no such operation exists in the Graph
+   */
+  @SuppressWarnings("rawtypes")
+  Output<?> output(String name) {
+    Output<?> output = outputs.get(name);
+    if (output == null) {
+      String opName = name;
+      int index = 0;
+      int colon = name.lastIndexOf(':');
+      if (colon != -1 && colon != name.length() - 1) {
+        try {
+          index = Integer.parseInt(name.substring(colon + 1));
+          opName = name.substring(0, colon);
+        } catch (NumberFormatException e) {
+          // the colon is part of the operation name
+        }
+      }
+      GraphOperation op = operation(opName);
+      if (op == null) {
+        throw new IllegalArgumentException("No Operation named [" + opName + "] in the Graph");
       }
-      return new GraphOperation(this, oph);
+      output = new Output(op, index);
+      outputs.put(name, output);
     }
+    return output;
+  }
+
+  // Called by GraphOperationBuilder when an operation is added to the graph.
+  void indexOperation(String name, GraphOperation op) {
+    operations.put(name, op);
   }
 
   /**
@@ -88,6 +155,22 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
     return new OperationIterator(this);
   }
 
+  /**
+   * Returns the operations of the Graph and the metadata of their outputs.
+   *
+   * <p>As opposed to iterating over {@link #operations()} and querying each operation and output,
+   * which requires a native call for each of them, the snapshot is collected in a single native
+   * call, making it well suited for inspecting large graphs.
+   */
+  public GraphSnapshot snapshot() {
+    readLock.lock();
+    try {
+      return new GraphSnapshot(this, snapshot(nativeHandle));
+    } finally {
+      readLock.unlock();
+    }
+  }
+
   /**
    * Returns a builder to add {@link Operation}s to the Graph.
    *
@@ -127,9 +210,139 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
     if (graphDef == null || prefix == null) {
       throw new IllegalArgumentException("graphDef and prefix cannot be null");
     }
-    synchronized (nativeHandleLock) {
+    writeLock.lock();
+    try {
       importGraphDef(nativeHandle, graphDef, prefix);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Import a serialized representation of a TensorFlow graph from a direct buffer.
+   *
+   * @throws IllegalArgumentException if graphDef is not a recognized serialization of a graph.
+   * @see #importGraphDef(ByteBuffer, String)
+   */
+  public void importGraphDef(ByteBuffer graphDef) throws IllegalArgumentException {
+    importGraphDef(graphDef, "");
+  }
+
+  /**
+   * Import a serialized representation of a TensorFlow graph from a direct buffer.
+   *
+   * <p>The remaining bytes of the buffer are read by the native library without being copied on
+   * the Java heap. The position of the buffer is not modified.
+   *
+   * @param graphDef a direct buffer containing the serialized representation of a TensorFlow graph.
+   * @param prefix a prefix that will be prepended to names in graphDef
+   * @throws IllegalArgumentException if graphDef is not a direct buffer or is not a recognized
+   *     serialization of a graph.
+   */
+  public void importGraphDef(ByteBuffer graphDef, String prefix) throws IllegalArgumentException {
+    if (graphDef == null || prefix == null) {
+      throw new IllegalArgumentException("graphDef and prefix cannot be null");
+    }
+    if (!graphDef.isDirect()) {
+      throw new IllegalArgumentException("graphDef must be a direct buffer");
+    }
+    writeLock.lock();
+    try {
+      importGraphDefFromBuffer(
+          nativeHandle, graphDef, graphDef.position(), graphDef.remaining(), prefix);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Import a serialized representation of a TensorFlow graph from a file.
+   *
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file does not contain a recognized serialization of a
+   *     graph.
+   * @see #importGraphDef(File, String)
+   */
+  public void importGraphDef(File graphDef) throws IOException {
+    importGraphDef(graphDef, "");
+  }
+
+  /**
+   * Import a serialized representation of a TensorFlow graph from a file.
+   *
+   * <p>The file is mapped in memory instead of being read on the Java heap, which avoids large
+   * allocations when loading big graphs.
+   *
+   * @param graphDef a file containing the serialized representation of a TensorFlow graph.
+   * @param prefix a prefix that will be prepended to names in graphDef
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file does not contain a recognized serialization of a
+   *     graph.
+   */
+  public void importGraphDef(File graphDef, String prefix) throws IOException {
+    if (graphDef == null || prefix == null) {
+      throw new IllegalArgumentException("graphDef and prefix cannot be null");
+    }
+    try (RandomAccessFile file = new RandomAccessFile(graphDef, "r")) {
+      FileChannel channel = file.getChannel();
+      importGraphDef(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), prefix);
+    }
+  }
+
+  /**
+   * Import a serialized representation of a TensorFlow graph from a stream.
+   *
+   * @throws IOException if the stream cannot be read
+   * @throws IllegalArgumentException if the stream does not contain a recognized serialization of
+   *     a graph.
+   * @see #importGraphDef(InputStream, String)
+   */
+  public void importGraphDef(InputStream graphDef) throws IOException {
+    importGraphDef(graphDef, "");
+  }
+
+  /**
+   * Import a serialized representation of a TensorFlow graph from a stream.
+   *
+   * <p>The stream is read until its end into native memory, without accumulating its content on
+   * the Java heap. If it is a {@link FileInputStream}, the rest of the file is mapped in memory
+   * instead. The stream is not closed by this method.
+   *
+   * @param graphDef a stream containing the serialized representation of a TensorFlow graph.
+   * @param prefix a prefix that will be prepended to names in graphDef
+   * @throws IOException if the stream cannot be read
+   * @throws IllegalArgumentException if the stream does not contain a recognized serialization of
+   *     a graph.
+   */
+  public void importGraphDef(InputStream graphDef, String prefix) throws IOException {
+    if (graphDef == null || prefix == null) {
+      throw new IllegalArgumentException("graphDef and prefix cannot be null");
+    }
+    if (graphDef instanceof FileInputStream) {
+      FileChannel channel = ((FileInputStream) graphDef).getChannel();
+      long position = channel.position();
+      importGraphDef(
+          channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position), prefix);
+      channel.position(channel.size());
+      return;
     }
+    ReadableByteChannel channel = Channels.newChannel(graphDef);
+    ByteBuffer buffer =
+        ByteBuffer.allocateDirect(Math.max(graphDef.available(), MIN_STREAM_BUFFER_SIZE));
+    while (channel.read(buffer) >= 0) {
+      if (!buffer.hasRemaining()) {
+        if (buffer.capacity() == Integer.MAX_VALUE) {
+          throw new IOException("graphDef is too large");
+        }
+        ByteBuffer newBuffer =
+            ByteBuffer.allocateDirect((int) Math.min(buffer.capacity() * 2L, Integer.MAX_VALUE));
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+      }
+    }
+    buffer.flip();
+    importGraphDef(buffer, prefix);
   }
 
   /**
@@ -139,8 +352,11 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
    * @see #importGraphDef(byte[], String)
    */
   public byte[] toGraphDef() {
-    synchronized (nativeHandleLock) {
+    readLock.lock();
+    try {
       return toGraphDef(nativeHandle);
+    } finally {
+      readLock.unlock();
     }
   }
 
@@ -283,27 +499,27 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
     Output<?>[] outputs = new Output<?>[noutputs];
     long[] outputHandlesAndIndices = new long[noutputs * 2];
 
-    synchronized (subgraph.nativeHandleLock) {
-      try (Reference ref = subgraph.ref()) {
-
-        for (int i = 0; i < ninputs; i++) {
-          Operation op = new GraphOperation(subgraph, inputHandles[i]);
-          inputs[i] = op.output(inputIndices[i]);
-        }
+    subgraph.writeLock.lock();
+    try (Reference ref = subgraph.ref()) {
+      for (int i = 0; i < ninputs; i++) {
+        Operation op = new GraphOperation(subgraph, inputHandles[i]);
+        inputs[i] = op.output(inputIndices[i]);
+      }
 
-        for (int i = 0; i < noutputs; i++) {
-          Operation op = new GraphOperation(subgraph, outputHandles[i]);
-          outputs[i] = op.output(outputIndices[i]);
-        }
+      for (int i = 0; i < noutputs; i++) {
+        Operation op = new GraphOperation(subgraph, outputHandles[i]);
+        outputs[i] = op.output(outputIndices[i]);
+      }
 
-        subgraphBuilder.buildSubgraph(subgraph, inputs, outputs);
+      subgraphBuilder.buildSubgraph(subgraph, inputs, outputs);
 
-        for (int i = 0, j = noutputs; i < noutputs; i++, j++) {
-          outputHandlesAndIndices[i] = outputs[i].getUnsafeNativeHandle();
-          outputHandlesAndIndices[j] = (long) outputs[i].index();
-        }
+      for (int i = 0, j = noutputs; i < noutputs; i++, j++) {
+        outputHandlesAndIndices[i] = outputs[i].getUnsafeNativeHandle();
+        outputHandlesAndIndices[j] = (long) outputs[i].index();
       }
       return outputHandlesAndIndices;
+    } finally {
+      subgraph.writeLock.unlock();
     }
   }
 
@@ -326,29 +542,46 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
     int[] inputIndices = new int[ninputs];
     Output<?>[] outputs = new Output<?>[ninputs];
 
-    synchronized (nativeHandleLock) {
-      try (Reference ref = ref()) {
-
-        for (int i = 0; i < ninputs; i++) {
-          inputHandles[i] = inputs[i].getUnsafeNativeHandle();
-          inputIndices[i] = inputs[i].index();
-        }
+    writeLock.lock();
+    try (Reference ref = ref()) {
+      for (int i = 0; i < ninputs; i++) {
+        inputHandles[i] = inputs[i].getUnsafeNativeHandle();
+        inputIndices[i] = inputs[i].index();
+      }
 
-        long[] outputHandlesAndIndices =
-            whileLoop(nativeHandle, inputHandles, inputIndices, name, cgBuilder, bgBuilder);
+      long[] outputHandlesAndIndices =
+          whileLoop(nativeHandle, inputHandles, inputIndices, name, cgBuilder, bgBuilder);
 
-        for (int i = 0, j = ninputs; i < ninputs; ++i, ++j) {
-          Operation op = new GraphOperation(this, outputHandlesAndIndices[i]);
-          outputs[i] = op.output((int) outputHandlesAndIndices[j]);
-        }
+      for (int i = 0, j = ninputs; i < ninputs; ++i, ++j) {
+        Operation op = new GraphOperation(this, outputHandlesAndIndices[i]);
+        outputs[i] = op.output((int) outputHandlesAndIndices[j]);
       }
       return outputs;
+    } finally {
+      writeLock.unlock();
     }
   }
 
-  private final Object nativeHandleLock = new Object();
+  private static final int MIN_STREAM_BUFFER_SIZE = 64 * 1024;
+
+  // The native graph is thread-safe on its own: this lock only guards the validity of its handle,
+  // so that readers can proceed concurrently, and serializes the few mutations that must not
+  // interleave with each other.
+  private final ReentrantReadWriteLock nativeHandleLock = new ReentrantReadWriteLock();
+  private final Lock readLock = nativeHandleLock.readLock();
+  private final Lock writeLock = nativeHandleLock.writeLock();
+  private final Condition noMoreReferences = writeLock.newCondition();
+  private final AtomicInteger refcount = new AtomicInteger();
+  private volatile boolean closing = false;
   private long nativeHandle;
-  private int refcount = 0;
+
+  // Operations can only be added to a graph, never renamed or removed, so a name found once keeps
+  // referring to the same operation until the graph is closed. Names that are not found are not
+  // cached, as the operation may be added later by a builder or an import.
+  private final ConcurrentHashMap<String, GraphOperation> operations =
+      new ConcurrentHashMap<String, GraphOperation>();
+  private final ConcurrentHashMap<String, Output<?>> outputs =
+      new ConcurrentHashMap<String, Output<?>>();
 
   // Related native objects (such as the TF_Operation object backing an Operation instance)
   // have a validity tied to that of the Graph. The handles to those native objects are not
@@ -356,38 +589,46 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
   //
   // Instances of the Reference class should be used to ensure the Graph has not been closed
   // while dependent handles are in use.
+  //
+  // Acquiring or releasing a Reference only takes the read lock, so it does not block other
+  // readers. The write lock is only taken on release when close() is waiting for the last one.
   class Reference implements AutoCloseable {
     private Reference() {
-      synchronized (Graph.this.nativeHandleLock) {
-        active = Graph.this.nativeHandle != 0;
-        if (!active) {
+      readLock.lock();
+      try {
+        if (Graph.this.nativeHandle == 0) {
           throw new IllegalStateException("close() has been called on the Graph");
         }
-        active = true;
-        Graph.this.refcount++;
+        handle = Graph.this.nativeHandle;
+        refcount.incrementAndGet();
+      } finally {
+        readLock.unlock();
       }
     }
 
     @Override
     public void close() {
-      synchronized (Graph.this.nativeHandleLock) {
-        if (!active) {
+      synchronized (this) {
+        if (handle == 0) {
           return;
         }
-        active = false;
-        if (--Graph.this.refcount == 0) {
-          Graph.this.nativeHandleLock.notifyAll();
+        handle = 0;
+      }
+      if (refcount.decrementAndGet() == 0 && closing) {
+        writeLock.lock();
+        try {
+          noMoreReferences.signalAll();
+        } finally {
+          writeLock.unlock();
         }
       }
     }
 
-    public long nativeHandle() {
-      synchronized (Graph.this.nativeHandleLock) {
-        return active ? Graph.this.nativeHandle : 0;
-      }
+    public synchronized long nativeHandle() {
+      return handle;
     }
 
-    private boolean active;
+    private long handle;
   }
 
   Reference ref() {
@@ -452,9 +693,18 @@ public final class Graph implements ExecutionEnvironment, AutoCloseable {
   // (see TF_GraphNextOperation)
   private static native long[] nextOperation(long handle, int position);
 
+  // This method returns, in order: the Operation native handles, their names, their types, the
+  // offsets of their outputs in the following arrays (plus the total number of outputs), the data
+  // type and number of dimensions of each output (-1 if unknown) and all the known dimensions.
+  private static native Object[] snapshot(long handle);
+
   private static native void importGraphDef(long handle, byte[] graphDef, String prefix)
       throws IllegalArgumentException;
 
+  private static native void importGraphDefFromBuffer(
+      long handle, ByteBuffer graphDef, int offset, int length, String prefix)
+      throws IllegalArgumentException;
+
   private static native byte[] toGraphDef(long handle);
 
   private static native long[] addGradients(
@@ -22,6 +22,7 @@ public final class GraphOperationBuilder implements OperationBuilder {
 
   GraphOperationBuilder(Graph graph, String type, String name) {
     this.graph = graph;
+    this.opName = name;
     Graph.Reference r = graph.ref();
     try {
       this.unsafeNativeHandle = allocate(r.nativeHandle(), type, name);
@@ -41,6 +42,7 @@ public final class GraphOperationBuilder implements OperationBuilder {
     try {
       GraphOperation op = new GraphOperation(graph, finish(unsafeNativeHandle));
       unsafeNativeHandle = 0;
+      graph.indexOperation(opName, op);
       return op;
     } finally {
       r.close();
@@ -297,6 +299,7 @@ public final class GraphOperationBuilder implements OperationBuilder {
 
   private long unsafeNativeHandle;
   private Graph graph;
+  private final String opName;
 
   private static native long allocate(long graphHandle, String type, String name);
 
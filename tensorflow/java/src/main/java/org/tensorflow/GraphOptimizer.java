@@ -0,0 +1,179 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.Collection;
+
+/**
+ * Produces smaller versions of a {@link Graph} that only compute a given set of outputs.
+ *
+ * <p>Frozen graphs often contain operations that are not needed for inference, like those used for
+ * training, as well as chains of operations that only depend on constants. Optimizing such a graph
+ * before creating a {@link Session} reduces its memory footprint and the latency of its first run.
+ * For example:
+ *
+ * <pre>{@code
+ * GraphOptimizer.Result result = GraphOptimizer.optimize(graph, Arrays.asList(output));
+ * try (Graph optimized = result.graph();
+ *     Session s = new Session(optimized)) {
+ *   // run s...
+ * }
+ * }</pre>
+ *
+ * <p>The operations kept in the optimized graph have the same names as in the original graph, so
+ * that they can be fed and fetched the same way.
+ */
+public final class GraphOptimizer {
+
+  /** Default maximum size of a constant produced by folding. */
+  public static final long DEFAULT_MAX_CONSTANT_BYTES = 10L * 1024 * 1024;
+
+  /** An optimized graph and statistics about its optimization. */
+  public static final class Result {
+
+    /**
+     * Returns the optimized graph.
+     *
+     * <p><b>WARNING:</b> The caller assumes ownership of the returned graph and must invoke its
+     * {@link Graph#close()} method when it is no longer needed.
+     */
+    public Graph graph() {
+      return graph;
+    }
+
+    /** Returns the number of operations of the original graph that are not in the optimized one. */
+    public long removedOperationCount() {
+      return removedOperationCount;
+    }
+
+    /** Returns the number of operations that have been replaced by a constant. */
+    public long foldedOperationCount() {
+      return foldedOperationCount;
+    }
+
+    /**
+     * Returns the difference between the serialized sizes of the original and optimized graphs, in
+     * bytes.
+     *
+     * <p>This can be negative, if folding constants produced values larger than the operations
+     * that computed them.
+     */
+    public long bytesSaved() {
+      return bytesSaved;
+    }
+
+    private Result(Graph graph, long[] stats) {
+      this.graph = graph;
+      this.removedOperationCount = stats[0] - stats[1];
+      this.foldedOperationCount = stats[2];
+      this.bytesSaved = stats[3] - stats[4];
+    }
+
+    private final Graph graph;
+    private final long removedOperationCount;
+    private final long foldedOperationCount;
+    private final long bytesSaved;
+  }
+
+  /**
+   * Returns a copy of {@code graph} without the operations that are not needed to compute {@code
+   * fetches}.
+   *
+   * <p>Operations fed when running the graph must be part of {@code fetches} if they are not
+   * needed to compute the other ones.
+   *
+   * @param graph the graph to prune, which is not modified
+   * @param fetches the outputs or targets that will be evaluated on the pruned graph
+   * @throws IllegalArgumentException if an operation of {@code fetches} is not in {@code graph}
+   */
+  public static Result prune(Graph graph, Collection<? extends Operand<?>> fetches) {
+    return optimize(graph, fetches, false, 0);
+  }
+
+  /**
+   * Returns a copy of {@code graph} without the operations that are not needed to compute {@code
+   * fetches}, and where the values that only depend on constants are precomputed.
+   *
+   * <p>Constant values are computed by running the graph once in a temporary {@link Session}.
+   * Operations that are stateful, like random number generators, or that are part of a control flow
+   * are never folded. Neither are values that are larger than {@link #DEFAULT_MAX_CONSTANT_BYTES}.
+   *
+   * @param graph the graph to optimize, which is not modified
+   * @param fetches the outputs or targets that will be evaluated on the optimized graph
+   * @throws IllegalArgumentException if an operation of {@code fetches} is not in {@code graph}
+   */
+  public static Result optimize(Graph graph, Collection<? extends Operand<?>> fetches) {
+    return optimize(graph, fetches, true, DEFAULT_MAX_CONSTANT_BYTES);
+  }
+
+  /**
+   * Returns a copy of {@code graph} without the operations that are not needed to compute {@code
+   * fetches}, and where the values that only depend on constants are precomputed.
+   *
+   * @param graph the graph to optimize, which is not modified
+   * @param fetches the outputs or targets that will be evaluated on the optimized graph
+   * @param maxConstantBytes the maximum size of a value to precompute
+   * @throws IllegalArgumentException if an operation of {@code fetches} is not in {@code graph}
+   * @see #optimize(Graph, Collection)
+   */
+  public static Result optimize(
+      Graph graph, Collection<? extends Operand<?>> fetches, long maxConstantBytes) {
+    return optimize(graph, fetches, true, maxConstantBytes);
+  }
+
+  private static Result optimize(
+      Graph graph,
+      Collection<? extends Operand<?>> fetches,
+      boolean foldConstants,
+      long maxConstantBytes) {
+    String[] fetchNames = new String[fetches.size()];
+    int idx = 0;
+    for (Operand<?> fetch : fetches) {
+      fetchNames[idx++] = fetch.asOutput().op().name();
+    }
+    long[] stats = new long[5];
+    try (Graph.Reference ref = graph.ref()) {
+      long handle =
+          optimize(ref.nativeHandle(), fetchNames, foldConstants, maxConstantBytes, stats);
+      return new Result(new Graph(handle), stats);
+    }
+  }
+
+  private GraphOptimizer() {}
+
+  /**
+   * Optimizes a graph.
+   *
+   * @param graphHandle handle to the graph to optimize
+   * @param fetchNames names of the operations to keep, with all the operations they depend on
+   * @param foldConstants whether constant subgraphs should be evaluated
+   * @param maxConstantBytes the maximum size of a value produced by folding
+   * @param stats will be filled with the number of operations in the original graph and in the
+   *     optimized graph, the number of folded operations, and the size of the serialized original
+   *     and optimized graphs
+   * @return a handle to the optimized graph
+   */
+  private static native long optimize(
+      long graphHandle,
+      String[] fetchNames,
+      boolean foldConstants,
+      long maxConstantBytes,
+      long[] stats);
+
+  static {
+    TensorFlow.init();
+  }
+}
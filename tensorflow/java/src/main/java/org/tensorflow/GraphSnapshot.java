@@ -0,0 +1,151 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The operations of a {@link Graph} and the metadata of their outputs, as they were when {@link
+ * Graph#snapshot()} was called.
+ *
+ * <p>All the metadata is collected at once and stored in flat arrays, so that enumerating the
+ * operations of a large graph does not cost a native call per operation or output. Operations are
+ * identified by their position in the snapshot, in the order in which they were added to the
+ * graph. For example:
+ *
+ * <pre>{@code
+ * GraphSnapshot snapshot = graph.snapshot();
+ * for (int i = 0; i < snapshot.numOperations(); ++i) {
+ *   if (snapshot.type(i).equals("Placeholder")) {
+ *     System.out.println(snapshot.name(i) + ": " + snapshot.shape(i, 0));
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>A snapshot does not reflect operations added to the graph after its creation. Instances of a
+ * {@code GraphSnapshot} are immutable and thread-safe.
+ */
+public final class GraphSnapshot {
+
+  /** Returns the number of operations in this snapshot. */
+  public int numOperations() {
+    return names.length;
+  }
+
+  /** Returns the name of the {@code i}-th operation. */
+  public String name(int i) {
+    return names[i];
+  }
+
+  /** Returns the type of the {@code i}-th operation, like {@code "MatMul"}. */
+  public String type(int i) {
+    return types[i];
+  }
+
+  /** Returns the number of outputs of the {@code i}-th operation. */
+  public int numOutputs(int i) {
+    return outputOffsets[i + 1] - outputOffsets[i];
+  }
+
+  /** Returns the data type of the {@code outputIdx}-th output of the {@code i}-th operation. */
+  public DataType dataType(int i, int outputIdx) {
+    return DataType.fromC(dtypes[outputIndex(i, outputIdx)]);
+  }
+
+  /**
+   * Returns the (possibly partially known) shape of the {@code outputIdx}-th output of the {@code
+   * i}-th operation.
+   */
+  public Shape shape(int i, int outputIdx) {
+    int o = outputIndex(i, outputIdx);
+    if (numDims[o] < 0) {
+      return Shape.unknown();
+    }
+    return new Shape(Arrays.copyOfRange(dims, dimOffsets[o], dimOffsets[o] + numDims[o]));
+  }
+
+  /**
+   * Returns the {@code i}-th operation.
+   *
+   * <p>The operation can only be used as long as the graph is not closed.
+   */
+  public GraphOperation operation(int i) {
+    return new GraphOperation(graph, opHandles[i]);
+  }
+
+  /**
+   * Returns the position of the operation named {@code name} in this snapshot, or -1 if there is no
+   * such operation.
+   */
+  public int indexOf(String name) {
+    Integer i = nameIndex().get(name);
+    return i != null ? i : -1;
+  }
+
+  // Requires: values are the arrays returned by Graph.snapshot(long), in the same order.
+  GraphSnapshot(Graph graph, Object[] values) {
+    this.graph = graph;
+    this.opHandles = (long[]) values[0];
+    this.names = (String[]) values[1];
+    this.types = (String[]) values[2];
+    this.outputOffsets = (int[]) values[3];
+    this.dtypes = (int[]) values[4];
+    this.numDims = (int[]) values[5];
+    this.dims = (long[]) values[6];
+    this.dimOffsets = new int[numDims.length];
+    int offset = 0;
+    for (int o = 0; o < numDims.length; ++o) {
+      dimOffsets[o] = offset;
+      offset += Math.max(numDims[o], 0);
+    }
+  }
+
+  private final Graph graph;
+  private final long[] opHandles;
+  private final String[] names;
+  private final String[] types;
+  private final int[] outputOffsets;
+  private final int[] dtypes;
+  private final int[] numDims;
+  private final long[] dims;
+  private final int[] dimOffsets;
+  private volatile Map<String, Integer> nameIndex;
+
+  private int outputIndex(int i, int outputIdx) {
+    if (outputIdx < 0 || outputIdx >= numOutputs(i)) {
+      throw new IndexOutOfBoundsException(
+          String.format(
+              "invalid output index (%d) for an operation that has %d outputs",
+              outputIdx, numOutputs(i)));
+    }
+    return outputOffsets[i] + outputIdx;
+  }
+
+  // Built on first use, as enumerating the operations does not need it.
+  private Map<String, Integer> nameIndex() {
+    Map<String, Integer> index = nameIndex;
+    if (index == null) {
+      index = new HashMap<>(names.length * 2);
+      for (int i = 0; i < names.length; ++i) {
+        index.put(names[i], i);
+      }
+      nameIndex = index;
+    }
+    return index;
+  }
+}
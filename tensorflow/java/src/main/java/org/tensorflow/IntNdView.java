@@ -0,0 +1,46 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.nio.IntBuffer;
+
+/**
+ * A view of the elements of an {@link Integer} tensor, read directly from its native memory.
+ *
+ * <p>The view is only valid as long as the tensor it was obtained from is not closed.
+ *
+ * @see Tensor#intView()
+ */
+public final class IntNdView extends AbstractNdView {
+
+  /**
+   * Returns the element located at the given coordinates.
+   *
+   * @param indices the index of the element in each dimension of the tensor
+   * @throws IllegalStateException if the viewed tensor has been closed
+   * @throws IndexOutOfBoundsException if {@code indices} does not locate an element of the tensor
+   */
+  public int get(long... indices) {
+    return buffer.get(position(indices));
+  }
+
+  IntNdView(Tensor<?> tensor) {
+    super(tensor);
+    buffer = tensor.buffer().asIntBuffer();
+  }
+
+  private final IntBuffer buffer;
+}
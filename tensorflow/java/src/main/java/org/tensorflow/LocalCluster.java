@@ -0,0 +1,396 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A cluster of {@link Server}s running in the current process, listening on loopback ports.
+ *
+ * <p>A local cluster runs distributed graphs on a single machine, for example to measure how
+ * partitioning a graph across several workers affects its throughput before deploying it on many
+ * machines. Operations are assigned to the tasks of the cluster by setting their device to one of
+ * those returned by {@link #device(String, int)}. For example:
+ *
+ * <pre>{@code
+ * LocalCluster cluster = LocalCluster.builder().addJob("worker", 2).start();
+ * try (Graph g = new Graph()) {
+ *   String[] devices = cluster.devices("worker");
+ *   for (int i = 0; i < numPartitions; ++i) {
+ *     g.opBuilder("MatMul", "partition" + i).setDevice(devices[i % devices.length])...
+ *   }
+ *   try (Session s = new Session(g, cluster.target("worker", 0), null)) {
+ *     // run s...
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>The ports of the servers are picked among those that are free when the cluster is started.
+ *
+ * <p><b>WARNING:</b> Servers using the "grpc" protocol cannot be stopped once started, and keep
+ * running until the process exits, even after the cluster has been closed.
+ *
+ * <p>Instances of a {@code LocalCluster} are thread-safe.
+ */
+public final class LocalCluster implements AutoCloseable {
+
+  /** Default protocol used by the servers of a cluster. */
+  public static final String DEFAULT_PROTOCOL = "grpc";
+
+  /** Configures and starts a {@code LocalCluster}. */
+  public static final class Builder {
+
+    /**
+     * Adds a job to the cluster.
+     *
+     * @param name the name of the job, like "worker" or "ps"
+     * @param numTasks the number of tasks of the job, each run by its own server
+     * @throws IllegalArgumentException if {@code name} is not a valid job name or has already been
+     *     added, or if {@code numTasks} is not positive
+     */
+    public Builder addJob(String name, int numTasks) {
+      if (!JOB_NAME.matcher(name).matches()) {
+        throw new IllegalArgumentException("invalid job name: \"" + name + "\"");
+      }
+      if (jobs.containsKey(name)) {
+        throw new IllegalArgumentException("job \"" + name + "\" has already been added");
+      }
+      if (numTasks <= 0) {
+        throw new IllegalArgumentException("numTasks must be positive");
+      }
+      jobs.put(name, numTasks);
+      return this;
+    }
+
+    /**
+     * Sets the protocol used by the servers to communicate, {@link #DEFAULT_PROTOCOL} by default.
+     */
+    public Builder withProtocol(String protocol) {
+      this.protocol = protocol;
+      return this;
+    }
+
+    /**
+     * Sets the configuration of the sessions created on the servers.
+     *
+     * @param configProto Serialized <a
+     *     href="https://www.tensorflow.org/code/tensorflow/core/protobuf/config.proto">ConfigProto
+     *     protocol buffer</a>.
+     */
+    public Builder withConfigProto(byte[] configProto) {
+      this.configProto = configProto;
+      return this;
+    }
+
+    /**
+     * Starts all the servers of the cluster.
+     *
+     * @throws IllegalStateException if no job has been added
+     * @throws TensorFlowException if a server cannot be started
+     */
+    public LocalCluster start() {
+      if (jobs.isEmpty()) {
+        throw new IllegalStateException("a cluster must have at least one job");
+      }
+      Map<String, List<String>> addresses = new LinkedHashMap<>();
+      int[] ports = freePorts(jobs);
+      int i = 0;
+      for (Map.Entry<String, Integer> job : jobs.entrySet()) {
+        List<String> jobAddresses = new ArrayList<>(job.getValue());
+        for (int task = 0; task < job.getValue(); ++task) {
+          jobAddresses.add("localhost:" + ports[i++]);
+        }
+        addresses.put(job.getKey(), jobAddresses);
+      }
+      return new LocalCluster(addresses, protocol, configProto);
+    }
+
+    private Builder() {}
+
+    private final Map<String, Integer> jobs = new LinkedHashMap<>();
+    private String protocol = DEFAULT_PROTOCOL;
+    private byte[] configProto = null;
+  }
+
+  /** Returns a builder for a new {@code LocalCluster}. */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Returns the names of the jobs of the cluster, in the order they were added. */
+  public List<String> jobs() {
+    return new ArrayList<>(addresses.keySet());
+  }
+
+  /**
+   * Returns the number of tasks of a job.
+   *
+   * @throws IllegalArgumentException if the cluster has no such job
+   */
+  public int numTasks(String job) {
+    return addresses(job).size();
+  }
+
+  /**
+   * Returns the address of a task, like {@code "localhost:4321"}.
+   *
+   * @throws IllegalArgumentException if the cluster has no such task
+   */
+  public String address(String job, int task) {
+    List<String> jobAddresses = addresses(job);
+    if (task < 0 || task >= jobAddresses.size()) {
+      throw new IllegalArgumentException(
+          String.format("job \"%s\" has no task %d", job, task));
+    }
+    return jobAddresses.get(task);
+  }
+
+  /**
+   * Returns the server running a task.
+   *
+   * @throws IllegalArgumentException if the cluster has no such task
+   */
+  public Server server(String job, int task) {
+    address(job, task);
+    return servers.get(job).get(task);
+  }
+
+  /**
+   * Returns the target of a {@link Session} connecting to a task, which acts as the master of the
+   * graphs it runs.
+   *
+   * @throws IllegalArgumentException if the cluster has no such task
+   * @see Session#Session(Graph, String, byte[])
+   */
+  public String target(String job, int task) {
+    return server(job, task).target();
+  }
+
+  /**
+   * Returns the device placing an operation on a task, to pass to {@link
+   * GraphOperationBuilder#setDevice(String)}.
+   *
+   * <p>The device the operation runs on, among those of the task, is chosen by the runtime.
+   *
+   * @throws IllegalArgumentException if the cluster has no such task
+   */
+  public String device(String job, int task) {
+    address(job, task);
+    return String.format("/job:%s/replica:0/task:%d", job, task);
+  }
+
+  /**
+   * Returns the device placing an operation on a given device of a task, to pass to {@link
+   * GraphOperationBuilder#setDevice(String)}.
+   *
+   * @param job the job of the task
+   * @param task the index of the task in its job
+   * @param deviceType the type of the device, like "CPU" or "GPU"
+   * @param deviceIndex the index of the device among those of the same type on the task
+   * @throws IllegalArgumentException if the cluster has no such task
+   */
+  public String device(String job, int task, String deviceType, int deviceIndex) {
+    return device(job, task) + String.format("/device:%s:%d", deviceType, deviceIndex);
+  }
+
+  /**
+   * Returns the devices of all the tasks of a job, in order.
+   *
+   * <p>Assigning operations to these devices in turn spreads them evenly across the job.
+   *
+   * @throws IllegalArgumentException if the cluster has no such job
+   */
+  public String[] devices(String job) {
+    String[] devices = new String[numTasks(job)];
+    for (int task = 0; task < devices.length; ++task) {
+      devices[task] = device(job, task);
+    }
+    return devices;
+  }
+
+  /**
+   * Stops and releases the servers of the cluster, when their protocol supports it.
+   *
+   * <p>Servers that cannot be stopped keep running until the process exits. If the calling thread
+   * is interrupted while a server is stopping, the remaining servers are still stopped and the
+   * interrupt status of the thread is restored.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (List<Server> jobServers : servers.values()) {
+      for (Server server : jobServers) {
+        try {
+          server.close();
+        } catch (UnsupportedOperationException e) {
+          // The server cannot be stopped, it keeps running and is not released
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private static final Pattern JOB_NAME = Pattern.compile("[a-zA-Z][_a-zA-Z0-9]*");
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final Map<String, List<String>> addresses;
+  private final Map<String, List<Server>> servers = new LinkedHashMap<>();
+  private boolean closed = false;
+
+  private LocalCluster(Map<String, List<String>> addresses, String protocol, byte[] configProto) {
+    this.addresses = addresses;
+    try {
+      for (Map.Entry<String, List<String>> job : addresses.entrySet()) {
+        List<Server> jobServers = new ArrayList<>(job.getValue().size());
+        servers.put(job.getKey(), jobServers);
+        for (int task = 0; task < job.getValue().size(); ++task) {
+          Server server =
+              new Server(serverDef(addresses, job.getKey(), task, protocol, configProto));
+          jobServers.add(server);
+          server.start();
+        }
+      }
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private List<String> addresses(String job) {
+    List<String> jobAddresses = addresses.get(job);
+    if (jobAddresses == null) {
+      throw new IllegalArgumentException("cluster has no job \"" + job + "\"");
+    }
+    return Collections.unmodifiableList(jobAddresses);
+  }
+
+  // Binds all the sockets before releasing any of them, so that no port is returned twice. Another
+  // process may still bind one of these ports before the servers are started.
+  private static int[] freePorts(Map<String, Integer> jobs) {
+    List<ServerSocket> sockets = new ArrayList<>();
+    try {
+      for (int numTasks : jobs.values()) {
+        for (int task = 0; task < numTasks; ++task) {
+          sockets.add(new ServerSocket(0, 0, InetAddress.getLoopbackAddress()));
+        }
+      }
+      int[] ports = new int[sockets.size()];
+      for (int i = 0; i < ports.length; ++i) {
+        ports[i] = sockets.get(i).getLocalPort();
+      }
+      return ports;
+    } catch (IOException e) {
+      throw new IllegalStateException("no free port is available", e);
+    } finally {
+      for (ServerSocket socket : sockets) {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  /**
+   * Serializes the ServerDef of a task.
+   *
+   * <p>The messages used, from <a
+   * href="https://www.tensorflow.org/code/tensorflow/core/protobuf/tensorflow_server.proto">
+   * tensorflow_server.proto</a> and <a
+   * href="https://www.tensorflow.org/code/tensorflow/core/protobuf/cluster.proto">
+   * cluster.proto</a>, are:
+   *
+   * <pre>
+   * message ServerDef {
+   *   ClusterDef cluster = 1;
+   *   string job_name = 2;
+   *   int32 task_index = 3;
+   *   ConfigProto default_session_config = 4;
+   *   string protocol = 5;
+   * }
+   * message ClusterDef {
+   *   repeated JobDef job = 1;
+   * }
+   * message JobDef {
+   *   string name = 1;
+   *   map&lt;int32, string&gt; tasks = 2;
+   * }
+   * </pre>
+   */
+  static byte[] serverDef(
+      Map<String, List<String>> addresses,
+      String jobName,
+      int taskIndex,
+      String protocol,
+      byte[] configProto) {
+    ByteArrayOutputStream cluster = new ByteArrayOutputStream();
+    for (Map.Entry<String, List<String>> job : addresses.entrySet()) {
+      ByteArrayOutputStream jobDef = new ByteArrayOutputStream();
+      writeBytes(jobDef, 1, job.getKey().getBytes(UTF_8));
+      for (int task = 0; task < job.getValue().size(); ++task) {
+        // Map fields are encoded as repeated key/value messages
+        ByteArrayOutputStream taskEntry = new ByteArrayOutputStream();
+        writeVarint(taskEntry, 1, task);
+        writeBytes(taskEntry, 2, job.getValue().get(task).getBytes(UTF_8));
+        writeBytes(jobDef, 2, taskEntry.toByteArray());
+      }
+      writeBytes(cluster, 1, jobDef.toByteArray());
+    }
+    ByteArrayOutputStream serverDef = new ByteArrayOutputStream();
+    writeBytes(serverDef, 1, cluster.toByteArray());
+    writeBytes(serverDef, 2, jobName.getBytes(UTF_8));
+    writeVarint(serverDef, 3, taskIndex);
+    if (configProto != null) {
+      writeBytes(serverDef, 4, configProto);
+    }
+    writeBytes(serverDef, 5, protocol.getBytes(UTF_8));
+    return serverDef.toByteArray();
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, int field, long value) {
+    writeRawVarint(out, field << 3);
+    writeRawVarint(out, value);
+  }
+
+  private static void writeBytes(ByteArrayOutputStream out, int field, byte[] value) {
+    writeRawVarint(out, (field << 3) | 2);
+    writeRawVarint(out, value.length);
+    out.write(value, 0, value.length);
+  }
+
+  private static void writeRawVarint(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+}
@@ -0,0 +1,348 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads SavedModels on demand and shares them between callers, within a memory budget.
+ *
+ * <p>Models are identified by a base path and a version, and loaded from the {@code
+ * <path>/<version>} directory, following the layout used by TensorFlow Serving. A model is loaded
+ * the first time it is checked out, and stays loaded while it fits in the budget of the registry.
+ * When loading a model exceeds that budget, the least recently used models that are not checked
+ * out are closed. For example:
+ *
+ * <pre>{@code
+ * try (ModelRegistry.Model model = registry.checkout("/models/mnist", 3)) {
+ *   Session.Runner runner = model.bundle().session().runner();
+ *   // run the model...
+ * }
+ * }</pre>
+ *
+ * <p>A checked out model is never closed before all its checkouts are closed, so the runs of its
+ * session never race with its eviction.
+ *
+ * <p>The memory used by a model is estimated from the size of its variables on disk and of its
+ * graph definition, which is a lower bound of the native memory it uses once loaded.
+ *
+ * <p>Instances of a {@code ModelRegistry} are thread-safe.
+ */
+public final class ModelRegistry implements AutoCloseable {
+
+  /**
+   * A checkout of a model from the registry.
+   *
+   * <p>The model remains loaded at least until this checkout is closed. Instances of a {@code
+   * Model} are thread-safe.
+   */
+  public final class Model implements AutoCloseable {
+
+    /** Returns the base path of the model. */
+    public String path() {
+      return entry.path;
+    }
+
+    /** Returns the version of the model. */
+    public long version() {
+      return entry.version;
+    }
+
+    /**
+     * Returns the loaded model.
+     *
+     * @throws IllegalStateException if this checkout has been closed
+     */
+    public SavedModelBundle bundle() {
+      if (closed.get()) {
+        throw new IllegalStateException("Model checkout has been closed");
+      }
+      return entry.bundle;
+    }
+
+    /** Returns the estimated memory used by the model, in bytes. */
+    public long estimatedBytes() {
+      return entry.estimatedBytes;
+    }
+
+    /**
+     * Releases this checkout.
+     *
+     * <p>The model is not closed, unless it has been evicted from the registry meanwhile and this
+     * was its last checkout.
+     */
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(entry);
+      }
+    }
+
+    private Model(Entry entry) {
+      this.entry = entry;
+    }
+
+    private final Entry entry;
+    private final AtomicBoolean closed = new AtomicBoolean();
+  }
+
+  /**
+   * Creates a registry loading the models tagged with "serve".
+   *
+   * @param maxBytes the memory budget of the registry
+   */
+  public ModelRegistry(long maxBytes) {
+    this(maxBytes, "serve");
+  }
+
+  /**
+   * Creates a registry.
+   *
+   * @param maxBytes the memory budget of the registry
+   * @param tags the tags identifying the MetaGraphDef to load from each model
+   * @throws IllegalArgumentException if {@code maxBytes} is negative
+   */
+  public ModelRegistry(long maxBytes, String... tags) {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("maxBytes cannot be negative");
+    }
+    this.maxBytes = maxBytes;
+    this.tags = tags.clone();
+  }
+
+  /**
+   * Checks out a model, loading it if needed.
+   *
+   * <p>Concurrent checkouts of a model that is not loaded yet wait for a single thread to load it,
+   * and fail with the same exception if it cannot be loaded. Paths resolving to the same directory
+   * designate the same model. The caller must close the returned checkout once it no longer uses
+   * the model.
+   *
+   * @param path the base path of the model
+   * @param version the version of the model, a subdirectory of {@code path}
+   * @return a checkout of the loaded model
+   * @throws IllegalStateException if the registry has been closed
+   * @throws TensorFlowException if the model cannot be loaded
+   */
+  public Model checkout(String path, long version) {
+    File exportDir = versionDir(path, version);
+    String key;
+    try {
+      key = exportDir.getCanonicalPath();
+    } catch (IOException e) {
+      key = exportDir.getAbsolutePath();
+    }
+    Entry entry;
+    boolean loading = false;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("Model registry has been closed");
+      }
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry(key, path, version, exportDir);
+        entries.put(key, entry);
+        loading = true;
+      }
+      ++entry.refCount;
+    }
+    if (loading) {
+      load(entry);
+    } else {
+      entry.awaitLoaded();
+    }
+    return new Model(entry);
+  }
+
+  /** Returns the number of models currently loaded. */
+  public synchronized int size() {
+    int n = 0;
+    for (Entry entry : entries.values()) {
+      if (entry.bundle != null) {
+        ++n;
+      }
+    }
+    return n;
+  }
+
+  /** Returns the estimated memory used by the models currently loaded, in bytes. */
+  public synchronized long usedBytes() {
+    return usedBytes;
+  }
+
+  /**
+   * Closes all the models of this registry.
+   *
+   * <p>Models that are still checked out are closed when their last checkout is closed.
+   */
+  @Override
+  public void close() {
+    List<SavedModelBundle> toClose = new ArrayList<>();
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (Entry entry : entries.values()) {
+        entry.evicted = true;
+        if (entry.refCount == 0 && entry.bundle != null) {
+          toClose.add(entry.bundle);
+        }
+      }
+      entries.clear();
+      usedBytes = 0;
+    }
+    closeAll(toClose);
+  }
+
+  private static final class Entry {
+
+    Entry(String key, String path, long version, File exportDir) {
+      this.key = key;
+      this.path = path;
+      this.version = version;
+      this.exportDir = exportDir;
+    }
+
+    void awaitLoaded() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          loaded.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    final String key;
+    final String path;
+    final long version;
+    final File exportDir;
+    final CountDownLatch loaded = new CountDownLatch(1);
+    // Written before loaded is counted down, and read after awaiting it
+    SavedModelBundle bundle;
+    long estimatedBytes;
+    RuntimeException failure;
+    // Guarded by the registry
+    int refCount = 0;
+    boolean evicted = false;
+  }
+
+  private final long maxBytes;
+  private final String[] tags;
+  // Entries in access order, the least recently used first
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long usedBytes = 0;
+  private boolean closed = false;
+
+  private void load(Entry entry) {
+    try {
+      entry.bundle = SavedModelBundle.load(entry.exportDir.getPath(), tags);
+      entry.estimatedBytes = estimateBytes(entry.exportDir, entry.bundle);
+    } catch (RuntimeException e) {
+      entry.failure = e;
+      synchronized (this) {
+        entries.remove(entry.key);
+      }
+      entry.loaded.countDown();
+      throw e;
+    }
+    entry.loaded.countDown();
+
+    List<SavedModelBundle> toClose = new ArrayList<>();
+    synchronized (this) {
+      if (entry.evicted) {
+        // The registry has been closed while loading, the bundle is closed on release
+        return;
+      }
+      usedBytes += entry.estimatedBytes;
+      Iterator<Entry> it = entries.values().iterator();
+      while (usedBytes > maxBytes && it.hasNext()) {
+        Entry lru = it.next();
+        if (lru.refCount == 0 && lru.bundle != null) {
+          it.remove();
+          lru.evicted = true;
+          usedBytes -= lru.estimatedBytes;
+          toClose.add(lru.bundle);
+        }
+      }
+    }
+    closeAll(toClose);
+  }
+
+  private void release(Entry entry) {
+    SavedModelBundle toClose = null;
+    synchronized (this) {
+      if (--entry.refCount == 0 && entry.evicted && entry.bundle != null) {
+        toClose = entry.bundle;
+      }
+    }
+    if (toClose != null) {
+      toClose.close();
+    }
+  }
+
+  // Version directories may be zero-padded, e.g. "00000123" for version 123.
+  private static File versionDir(String path, long version) {
+    File[] dirs = new File(path).listFiles();
+    if (dirs != null) {
+      for (File dir : dirs) {
+        try {
+          if (dir.isDirectory() && Long.parseLong(dir.getName()) == version) {
+            return dir;
+          }
+        } catch (NumberFormatException e) {
+          // not a version directory
+        }
+      }
+    }
+    return new File(path, Long.toString(version));
+  }
+
+  private static void closeAll(List<SavedModelBundle> bundles) {
+    for (SavedModelBundle bundle : bundles) {
+      bundle.close();
+    }
+  }
+
+  // Variables are restored from the files of the variables directory, and the graph is built from
+  // the GraphDef of the MetaGraphDef.
+  private static long estimateBytes(File exportDir, SavedModelBundle bundle) {
+    long bytes = bundle.metaGraphDef().length;
+    File[] variableFiles = new File(exportDir, "variables").listFiles();
+    if (variableFiles != null) {
+      for (File file : variableFiles) {
+        bytes += file.length();
+      }
+    }
+    return bytes;
+  }
+}
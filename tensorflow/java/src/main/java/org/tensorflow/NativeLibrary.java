@@ -16,9 +16,16 @@ limitations under the License.
 package org.tensorflow;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * Helper class for loading the TensorFlow Java native library.
@@ -38,11 +45,19 @@ import java.io.InputStream;
  * set of ClassLoader resources (under org/tensorflow/native/OS-ARCH). The resources paths used for
  * lookup must be consistent with any packaging (such as on Maven Central) of the TensorFlow Java
  * native libraries.
+ *
+ * <p>By default, the libraries are extracted to a new temporary directory every time they are
+ * loaded. When the org.tensorflow.NativeLibrary.CACHE_DIR system property is set, they are instead
+ * extracted once to a subdirectory of that directory named after their checksums, and reused by
+ * all the JVMs loading the same libraries afterwards. Only directories that are not writable by
+ * untrusted users should be used as a cache.
  */
 final class NativeLibrary {
   private static final boolean DEBUG =
       System.getProperty("org.tensorflow.NativeLibrary.DEBUG") != null;
   private static final String JNI_LIBNAME = "tensorflow_jni";
+  private static final String CACHE_DIR =
+      System.getProperty("org.tensorflow.NativeLibrary.CACHE_DIR");
 
   public static void load() {
     if (isLoaded() || tryLoadLibrary()) {
@@ -61,15 +76,14 @@ final class NativeLibrary {
     final String jniLibName = System.mapLibraryName(JNI_LIBNAME);
     final String jniResourceName = makeResourceName(jniLibName);
     log("jniResourceName: " + jniResourceName);
-    final InputStream jniResource =
-        NativeLibrary.class.getClassLoader().getResourceAsStream(jniResourceName);
+    final URL jniResource = NativeLibrary.class.getClassLoader().getResource(jniResourceName);
     // Extract the JNI's dependency
     final String frameworkLibName =
         maybeAdjustForMacOS(System.mapLibraryName("tensorflow_framework"));
     final String frameworkResourceName = makeResourceName(frameworkLibName);
     log("frameworkResourceName: " + frameworkResourceName);
-    final InputStream frameworkResource =
-        NativeLibrary.class.getClassLoader().getResourceAsStream(frameworkResourceName);
+    final URL frameworkResource =
+        NativeLibrary.class.getClassLoader().getResource(frameworkResourceName);
     // Do not complain if the framework resource wasn't found. This may just mean that we're
     // building with --config=monolithic (in which case it's not needed and not included).
     if (jniResource == null) {
@@ -82,23 +96,33 @@ final class NativeLibrary {
                   + " org.tensorflow.NativeLibrary.DEBUG=1 to the system properties of the JVM.",
               os(), architecture()));
     }
+    if (frameworkResource == null) {
+      log(
+          frameworkResourceName
+              + " not found. This is fine assuming "
+              + jniResourceName
+              + " is not built to depend on it.");
+    }
+    final long startTime = System.nanoTime();
+    String jniLibPath = null;
+    if (CACHE_DIR != null) {
+      try {
+        jniLibPath =
+            extractToCache(
+                new File(CACHE_DIR), frameworkResource, frameworkLibName, jniResource, jniLibName);
+      } catch (IOException e) {
+        log("unable to use native library cache: " + e.toString());
+      }
+    }
     try {
-      // Create a temporary directory for the extracted resource and its dependencies.
-      final File tempPath = createTemporaryDirectory();
-      // Deletions are in the reverse order of requests, so we need to request that the directory be
-      // deleted first, so that it is empty when the request is fulfilled.
-      tempPath.deleteOnExit();
-      final String tempDirectory = tempPath.getCanonicalPath();
-      if (frameworkResource != null) {
-        extractResource(frameworkResource, frameworkLibName, tempDirectory);
-      } else {
-        log(
-            frameworkResourceName
-                + " not found. This is fine assuming "
-                + jniResourceName
-                + " is not built to depend on it.");
+      if (jniLibPath == null) {
+        jniLibPath =
+            extractToTemporaryDirectory(
+                frameworkResource, frameworkLibName, jniResource, jniLibName);
       }
-      System.load(extractResource(jniResource, jniLibName, tempDirectory));
+      log(String.format("native libraries ready in %d ms", elapsedMillis(startTime)));
+      System.load(jniLibPath);
+      log(String.format("native libraries loaded in %d ms", elapsedMillis(startTime)));
     } catch (IOException e) {
       throw new UnsatisfiedLinkError(
           String.format(
@@ -144,6 +168,21 @@ final class NativeLibrary {
     return libFilename.substring(0, libFilename.length() - suffix.length()) + ".so";
   }
 
+  private static String extractToTemporaryDirectory(
+      URL frameworkResource, String frameworkLibName, URL jniResource, String jniLibName)
+      throws IOException {
+    // Create a temporary directory for the extracted resource and its dependencies.
+    final File tempPath = createTemporaryDirectory();
+    // Deletions are in the reverse order of requests, so we need to request that the directory be
+    // deleted first, so that it is empty when the request is fulfilled.
+    tempPath.deleteOnExit();
+    final String tempDirectory = tempPath.getCanonicalPath();
+    if (frameworkResource != null) {
+      extractResource(frameworkResource.openStream(), frameworkLibName, tempDirectory);
+    }
+    return extractResource(jniResource.openStream(), jniLibName, tempDirectory);
+  }
+
   private static String extractResource(
       InputStream resource, String resourceName, String extractToDirectory) throws IOException {
     final File dst = new File(extractToDirectory, resourceName);
@@ -155,6 +194,114 @@ final class NativeLibrary {
     return dstPath;
   }
 
+  /**
+   * Extracts the libraries to a subdirectory of {@code cacheDir} named after their checksums,
+   * unless they already are.
+   *
+   * @return the path of the JNI library, or null if the checksums of the libraries are unknown
+   */
+  private static String extractToCache(
+      File cacheDir,
+      URL frameworkResource,
+      String frameworkLibName,
+      URL jniResource,
+      String jniLibName)
+      throws IOException {
+    final JarEntry jniEntry = jarEntry(jniResource);
+    final JarEntry frameworkEntry = frameworkResource != null ? jarEntry(frameworkResource) : null;
+    if (jniEntry == null || (frameworkResource != null && frameworkEntry == null)) {
+      log("checksums of the native libraries are unknown, not using the cache");
+      return null;
+    }
+    // Both libraries are extracted to the same directory, as the JNI library expects to find the
+    // framework library next to it.
+    String key = checksum(jniEntry);
+    if (frameworkEntry != null) {
+      key += "-" + checksum(frameworkEntry);
+    }
+    final File dir = new File(cacheDir, key);
+    if (!dir.mkdirs() && !dir.isDirectory()) {
+      throw new IOException("cannot create directory " + dir);
+    }
+    if (frameworkEntry != null) {
+      extractToCache(frameworkResource, frameworkEntry, new File(dir, frameworkLibName));
+    }
+    final File jniLib = new File(dir, jniLibName);
+    extractToCache(jniResource, jniEntry, jniLib);
+    return jniLib.getCanonicalPath();
+  }
+
+  private static void extractToCache(URL resource, JarEntry entry, File dst) throws IOException {
+    if (isExtracted(entry, dst)) {
+      log("reusing cached native library: " + dst);
+      return;
+    }
+    log("extracting native library to: " + dst);
+    // Other JVMs may be loading the same library concurrently, so it is first extracted to a
+    // temporary file that is then atomically renamed, once complete.
+    final File tmp = File.createTempFile(dst.getName(), ".tmp", dst.getParentFile());
+    try {
+      final CheckedInputStream src = new CheckedInputStream(resource.openStream(), new CRC32());
+      final long nbytes = copy(src, tmp);
+      if (nbytes != entry.getSize() || src.getChecksum().getValue() != entry.getCrc()) {
+        throw new IOException("checksum mismatch while extracting " + resource);
+      }
+      if (!tmp.renameTo(dst)) {
+        // Some platforms cannot rename to an existing file, which may have been extracted by
+        // another JVM meanwhile, or be corrupted
+        if (isExtracted(entry, dst)) {
+          return;
+        }
+        if (!dst.delete() || !tmp.renameTo(dst)) {
+          throw new IOException("cannot move " + tmp + " to " + dst);
+        }
+      }
+      log(String.format("copied %d bytes to %s", nbytes, dst));
+    } finally {
+      tmp.delete();
+    }
+  }
+
+  // Returns true if dst has the same size and checksum as the archive entry.
+  private static boolean isExtracted(JarEntry entry, File dst) throws IOException {
+    if (!dst.isFile() || dst.length() != entry.getSize()) {
+      return false;
+    }
+    final CRC32 crc = new CRC32();
+    final InputStream src = new FileInputStream(dst);
+    try {
+      byte[] buffer = new byte[1 << 20]; // 1MB
+      int n;
+      while ((n = src.read(buffer)) >= 0) {
+        crc.update(buffer, 0, n);
+      }
+    } finally {
+      src.close();
+    }
+    return crc.getValue() == entry.getCrc();
+  }
+
+  // Returns the entry of a resource packaged in a .jar, if its size and checksum are known.
+  private static JarEntry jarEntry(URL resource) throws IOException {
+    final URLConnection connection = resource.openConnection();
+    if (!(connection instanceof JarURLConnection)) {
+      return null;
+    }
+    final JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+    if (entry == null || entry.getSize() < 0 || entry.getCrc() < 0) {
+      return null;
+    }
+    return entry;
+  }
+
+  private static String checksum(JarEntry entry) {
+    return String.format("%08x%016x", entry.getCrc(), entry.getSize());
+  }
+
+  private static long elapsedMillis(long startTime) {
+    return (System.nanoTime() - startTime) / 1000000;
+  }
+
   private static String os() {
     final String p = System.getProperty("os.name").toLowerCase();
     if (p.contains("linux")) {
@@ -15,6 +15,14 @@ limitations under the License.
 
 package org.tensorflow;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * SavedModelBundle represents a model loaded from storage.
  *
@@ -29,7 +37,112 @@ public class SavedModelBundle implements AutoCloseable {
   public static final class Loader {
     /** Load a <code>SavedModelBundle</code> with the configured options. */
     public SavedModelBundle load() {
-      return SavedModelBundle.load(exportDir, tags, configProto, runOptions);
+      SavedModelBundle bundle = SavedModelBundle.load(exportDir, tags, configProto, runOptions);
+      List<Tensor<?>> recordedInputs = new ArrayList<>();
+      try {
+        List<WarmupRequest> requests = new ArrayList<>();
+        if (recordedWarmup) {
+          requests.addAll(recordedWarmupRequests(exportDir, recordedInputs));
+        }
+        if (warmupRequests != null) {
+          requests.addAll(warmupRequests);
+        }
+        if (!requests.isEmpty()) {
+          bundle.warmup(requests, maxWarmupRounds, warmupTolerance);
+        }
+      } catch (RuntimeException e) {
+        bundle.close();
+        throw e;
+      } finally {
+        for (Tensor<?> input : recordedInputs) {
+          input.close();
+        }
+      }
+      return bundle;
+    }
+
+    /**
+     * Sets requests to run on the model before it is returned by {@link #load()}.
+     *
+     * <p>The first runs of a model are slower than the following ones, as the runtime lazily
+     * initializes its kernels and memory pools. Warming up the model with requests similar to
+     * those it will serve moves that cost to its loading.
+     *
+     * <p>All requests are run in rounds, until the duration of a round differs from the previous
+     * one by less than 10%, or after 10 rounds. The durations of each request are then available
+     * from {@link SavedModelBundle#warmupLatencies()}.
+     *
+     * @param requests the requests to run, in order
+     * @see #withWarmup(List, int, float)
+     */
+    public Loader withWarmup(List<? extends WarmupRequest> requests) {
+      return withWarmup(requests, DEFAULT_MAX_WARMUP_ROUNDS, DEFAULT_WARMUP_TOLERANCE);
+    }
+
+    /**
+     * Sets requests to run on the model before it is returned by {@link #load()}.
+     *
+     * @param requests the requests to run, in order
+     * @param maxRounds the maximum number of times all requests are run
+     * @param tolerance the relative difference of durations between two rounds under which the
+     *     latency of the model is considered stable
+     * @throws IllegalArgumentException if {@code maxRounds} is not positive or {@code tolerance}
+     *     is negative
+     */
+    public Loader withWarmup(
+        List<? extends WarmupRequest> requests, int maxRounds, float tolerance) {
+      if (maxRounds <= 0) {
+        throw new IllegalArgumentException("maxRounds must be positive");
+      }
+      if (tolerance < 0.0f) {
+        throw new IllegalArgumentException("tolerance cannot be negative");
+      }
+      this.warmupRequests = requests;
+      this.maxWarmupRounds = maxRounds;
+      this.warmupTolerance = tolerance;
+      return this;
+    }
+
+    /**
+     * Warms up the model with the requests recorded in its {@code
+     * assets.extra/tf_serving_warmup_requests} file, like TensorFlow Serving does.
+     *
+     * <p>That file holds <a
+     * href="https://github.com/tensorflow/serving/blob/master/tensorflow_serving/apis/prediction_log.proto">PredictionLog
+     * protocol buffers</a> in the TFRecord format. Each of them runs the signature of its predict
+     * request with the recorded inputs, before the requests set by {@link #withWarmup(List)}. The
+     * model is not warmed up with recorded requests if it has no such file.
+     *
+     * <p>Rounds of requests are run as for {@link #withWarmup(List)}.
+     *
+     * @see #withRecordedWarmup(int, float)
+     */
+    public Loader withRecordedWarmup() {
+      return withRecordedWarmup(DEFAULT_MAX_WARMUP_ROUNDS, DEFAULT_WARMUP_TOLERANCE);
+    }
+
+    /**
+     * Warms up the model with the requests recorded in its {@code
+     * assets.extra/tf_serving_warmup_requests} file.
+     *
+     * @param maxRounds the maximum number of times all requests are run
+     * @param tolerance the relative difference of durations between two rounds under which the
+     *     latency of the model is considered stable
+     * @throws IllegalArgumentException if {@code maxRounds} is not positive or {@code tolerance}
+     *     is negative
+     * @see #withRecordedWarmup()
+     */
+    public Loader withRecordedWarmup(int maxRounds, float tolerance) {
+      if (maxRounds <= 0) {
+        throw new IllegalArgumentException("maxRounds must be positive");
+      }
+      if (tolerance < 0.0f) {
+        throw new IllegalArgumentException("tolerance cannot be negative");
+      }
+      this.recordedWarmup = true;
+      this.maxWarmupRounds = maxRounds;
+      this.warmupTolerance = tolerance;
+      return this;
     }
 
     /**
@@ -59,9 +172,16 @@ public class SavedModelBundle implements AutoCloseable {
     /**
      * Sets the set of tags that identify the specific graph in the saved model to load.
      *
+     * <p>No graph is selected until this method is called, so loading a model without setting its
+     * tags fails.
+     *
      * @param tags the tags identifying the specific MetaGraphDef to load.
+     * @throws IllegalArgumentException if {@code tags} is null
      */
     public Loader withTags(String... tags) {
+      if (tags == null) {
+        throw new IllegalArgumentException("tags cannot be null");
+      }
       this.tags = tags;
       return this;
     }
@@ -71,9 +191,227 @@ public class SavedModelBundle implements AutoCloseable {
     }
 
     private String exportDir = null;
-    private String[] tags = null;
+    private String[] tags = new String[0];
     private byte[] configProto = null;
     private byte[] runOptions = null;
+    private List<? extends WarmupRequest> warmupRequests = null;
+    private boolean recordedWarmup = false;
+    private int maxWarmupRounds;
+    private float warmupTolerance;
+  }
+
+  /**
+   * A request run on a model while it is loaded.
+   *
+   * @see Loader#withWarmup(List)
+   */
+  public interface WarmupRequest {
+
+    /**
+     * Runs the request.
+     *
+     * <p>Implementations must close all the tensors they get from the model.
+     *
+     * @param bundle the model being loaded
+     */
+    void run(SavedModelBundle bundle);
+  }
+
+  /**
+   * Returns a warm-up request running a signature of the model.
+   *
+   * <p>The fetched outputs are discarded. The caller remains the owner of {@code inputs}, which
+   * must not be closed before the model is loaded.
+   *
+   * @param signatureKey the key of the signature to run
+   * @param inputs the values to feed, by logical input name
+   * @see Signature#run(Map)
+   */
+  public static WarmupRequest warmupRequest(
+      final String signatureKey, final Map<String, Tensor<?>> inputs) {
+    return new WarmupRequest() {
+      @Override
+      public void run(SavedModelBundle bundle) {
+        for (Tensor<?> output : bundle.signature(signatureKey).run(inputs).values()) {
+          output.close();
+        }
+      }
+    };
+  }
+
+  /**
+   * A named set of inputs and outputs of the model, as defined by one of its <a
+   * href="https://www.tensorflow.org/code/tensorflow/core/protobuf/meta_graph.proto">SignatureDef
+   * protocol buffers</a>.
+   *
+   * <p>The tensors of a signature are identified by logical names, independent of the names of the
+   * operations in the graph. They are resolved and compiled into a {@link Session.Callable} the
+   * first time the signature is run, so that each run only needs the values to feed. For example:
+   *
+   * <pre>{@code
+   * SavedModelBundle.Signature signature = bundle.signature("serving_default");
+   * Map<String, Tensor<?>> outputs = signature.run(Collections.singletonMap("x", x));
+   * }</pre>
+   *
+   * <p>Instances of a {@code Signature} are thread-safe and remain valid as long as the bundle is
+   * not closed.
+   */
+  public final class Signature {
+
+    /** Returns the key identifying this signature in the model, like "serving_default". */
+    public String key() {
+      return key;
+    }
+
+    /** Returns the method name of this signature, like "tensorflow/serving/predict". */
+    public String methodName() {
+      return methodName;
+    }
+
+    /** Returns the logical names of the inputs of this signature, in alphabetical order. */
+    public List<String> inputNames() {
+      return inputNames;
+    }
+
+    /** Returns the logical names of the outputs of this signature, in alphabetical order. */
+    public List<String> outputNames() {
+      return outputNames;
+    }
+
+    /**
+     * Returns the output of the graph fed by an input of this signature.
+     *
+     * @param name the logical name of the input
+     * @throws IllegalArgumentException if this signature has no such input
+     */
+    public Output<?> input(String name) {
+      return resolved().inputs[indexOf(inputNames, name, "input")];
+    }
+
+    /**
+     * Returns the output of the graph fetched by an output of this signature.
+     *
+     * @param name the logical name of the output
+     * @throws IllegalArgumentException if this signature has no such output
+     */
+    public Output<?> output(String name) {
+      return resolved().outputs[indexOf(outputNames, name, "output")];
+    }
+
+    /**
+     * Returns a callable feeding all the inputs of this signature and fetching all its outputs, in
+     * the order of {@link #inputNames()} and {@link #outputNames()}.
+     *
+     * <p>This avoids looking up the tensors by their logical names on each call.
+     */
+    public Session.Callable callable() {
+      return resolved().callable;
+    }
+
+    /**
+     * Runs this signature.
+     *
+     * <p><b>WARNING:</b> The caller assumes ownership of all returned {@link Tensor}s, i.e., the
+     * caller must call {@link Tensor#close()} on all values of the returned map to free up
+     * resources.
+     *
+     * @param inputs the values to feed, by logical input name
+     * @return the values of all the outputs, by logical output name
+     * @throws IllegalArgumentException if {@code inputs} does not contain a value for each input of
+     *     this signature, or contains values for unknown inputs
+     */
+    public Map<String, Tensor<?>> run(Map<String, Tensor<?>> inputs) {
+      if (inputs.size() != inputNames.size()) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Signature \"%s\" expects inputs %s, got %s", key, inputNames, inputs.keySet()));
+      }
+      Tensor<?>[] values = new Tensor<?>[inputNames.size()];
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = inputs.get(inputNames.get(i));
+        if (values[i] == null) {
+          throw new IllegalArgumentException(
+              String.format(
+                  "Signature \"%s\" expects inputs %s, got %s",
+                  key, inputNames, inputs.keySet()));
+        }
+      }
+      List<Tensor<?>> outputs = callable().call(values);
+      Map<String, Tensor<?>> ret = new LinkedHashMap<>(outputs.size() * 2);
+      for (int i = 0; i < outputs.size(); ++i) {
+        ret.put(outputNames.get(i), outputs.get(i));
+      }
+      return ret;
+    }
+
+    private Signature(
+        String key,
+        String methodName,
+        List<String> inputNames,
+        List<String> outputNames,
+        String[] inputTensorNames,
+        String[] outputTensorNames) {
+      this.key = key;
+      this.methodName = methodName;
+      this.inputNames = inputNames;
+      this.outputNames = outputNames;
+      this.inputTensorNames = inputTensorNames;
+      this.outputTensorNames = outputTensorNames;
+    }
+
+    // The tensors of a signature, once resolved in the graph.
+    private final class Resolved {
+
+      Resolved() {
+        inputs = new Output<?>[inputTensorNames.length];
+        for (int i = 0; i < inputs.length; ++i) {
+          inputs[i] = graph.output(inputTensorNames[i]);
+        }
+        outputs = new Output<?>[outputTensorNames.length];
+        for (int i = 0; i < outputs.length; ++i) {
+          outputs[i] = graph.output(outputTensorNames[i]);
+        }
+        Session.Runner runner = session.runner();
+        for (Output<?> input : inputs) {
+          runner.feed(input, null);
+        }
+        for (Output<?> output : outputs) {
+          runner.fetch(output);
+        }
+        callable = runner.compile();
+      }
+
+      final Output<?>[] inputs;
+      final Output<?>[] outputs;
+      final Session.Callable callable;
+    }
+
+    private final String key;
+    private final String methodName;
+    private final List<String> inputNames;
+    private final List<String> outputNames;
+    private final String[] inputTensorNames;
+    private final String[] outputTensorNames;
+    private volatile Resolved resolved;
+
+    private Resolved resolved() {
+      Resolved r = resolved;
+      if (r == null) {
+        // Concurrent threads may resolve the signature more than once, which is harmless.
+        r = new Resolved();
+        resolved = r;
+      }
+      return r;
+    }
+
+    private int indexOf(List<String> names, String name, String kind) {
+      int idx = names.indexOf(name);
+      if (idx < 0) {
+        throw new IllegalArgumentException(
+            String.format("Signature \"%s\" has no %s named \"%s\"", key, kind, name));
+      }
+      return idx;
+    }
   }
 
   /**
@@ -116,6 +454,44 @@ public class SavedModelBundle implements AutoCloseable {
     return metaGraphDef;
   }
 
+  /** Returns the keys of all the signatures of the model, in alphabetical order. */
+  public List<String> signatureKeys() {
+    return signatureKeys;
+  }
+
+  /**
+   * Returns a signature of the model.
+   *
+   * <p>The signatures are parsed from the MetaGraphDef once, when the model is loaded. Sparse
+   * inputs and outputs are not supported and are omitted from the returned signature.
+   *
+   * @param key the key of the signature, like "serving_default"
+   * @throws IllegalArgumentException if the model has no signature with this key
+   */
+  public Signature signature(String key) {
+    Signature signature = signatures.get(key);
+    if (signature == null) {
+      throw new IllegalArgumentException(
+          String.format("Model has no signature \"%s\", available: %s", key, signatureKeys));
+    }
+    return signature;
+  }
+
+  /**
+   * Returns how long each warm-up request took to run, in nanoseconds.
+   *
+   * <p>The returned array has one row per round, with the durations of the requests in the order
+   * they were given to {@link Loader#withWarmup(List)}. It is empty if the model was not warmed
+   * up.
+   */
+  public long[][] warmupLatencies() {
+    long[][] copy = new long[warmupLatencies.length][];
+    for (int i = 0; i < copy.length; ++i) {
+      copy[i] = warmupLatencies[i].clone();
+    }
+    return copy;
+  }
+
   /** Returns the graph that describes the computation performed by the model. */
   public Graph graph() {
     return graph;
@@ -143,11 +519,97 @@ public class SavedModelBundle implements AutoCloseable {
   private final Graph graph;
   private final Session session;
   private final byte[] metaGraphDef;
+  private final List<String> signatureKeys;
+  private final Map<String, Signature> signatures;
+  private long[][] warmupLatencies = new long[0][];
+
+  private static final int DEFAULT_MAX_WARMUP_ROUNDS = 10;
+  private static final float DEFAULT_WARMUP_TOLERANCE = 0.1f;
 
   private SavedModelBundle(Graph graph, Session session, byte[] metaGraphDef) {
     this.graph = graph;
     this.session = session;
     this.metaGraphDef = metaGraphDef;
+
+    // See signatures(byte[]) for the layout of the values
+    Object[] values = signatures(metaGraphDef);
+    String[] keys = (String[]) values[0];
+    String[] methodNames = (String[]) values[1];
+    int[] numInputs = (int[]) values[2];
+    int[] numOutputs = (int[]) values[3];
+    String[] names = (String[]) values[4];
+    String[] tensorNames = (String[]) values[5];
+    Map<String, Signature> signatures = new HashMap<>(keys.length * 2);
+    int offset = 0;
+    for (int i = 0; i < keys.length; ++i) {
+      int inputsEnd = offset + numInputs[i];
+      int outputsEnd = inputsEnd + numOutputs[i];
+      signatures.put(
+          keys[i],
+          new Signature(
+              keys[i],
+              methodNames[i],
+              Collections.unmodifiableList(Arrays.asList(names).subList(offset, inputsEnd)),
+              Collections.unmodifiableList(Arrays.asList(names).subList(inputsEnd, outputsEnd)),
+              Arrays.copyOfRange(tensorNames, offset, inputsEnd),
+              Arrays.copyOfRange(tensorNames, inputsEnd, outputsEnd)));
+      offset = outputsEnd;
+    }
+    this.signatureKeys = Collections.unmodifiableList(Arrays.asList(keys));
+    this.signatures = signatures;
+  }
+
+  // Reads the predict requests recorded for TensorFlow Serving. The tensors they feed are added to
+  // inputs, and must be closed by the caller.
+  private static List<WarmupRequest> recordedWarmupRequests(
+      String exportDir, List<Tensor<?>> inputs) {
+    // See warmupRecords(String) for the layout of the values
+    Object[] values = warmupRecords(exportDir);
+    if (values == null) {
+      return Collections.emptyList();
+    }
+    String[] signatureKeys = (String[]) values[0];
+    int[] numInputs = (int[]) values[1];
+    String[] names = (String[]) values[2];
+    long[] tensorHandles = (long[]) values[3];
+    Tensor<?>[] tensors = new Tensor<?>[tensorHandles.length];
+    for (int i = 0; i < tensorHandles.length; ++i) {
+      tensors[i] = Tensor.fromHandle(tensorHandles[i]);
+      inputs.add(tensors[i]);
+    }
+    List<WarmupRequest> requests = new ArrayList<>(signatureKeys.length);
+    int offset = 0;
+    for (int i = 0; i < signatureKeys.length; ++i) {
+      Map<String, Tensor<?>> feeds = new HashMap<>(numInputs[i] * 2);
+      for (int j = offset; j < offset + numInputs[i]; ++j) {
+        feeds.put(names[j], tensors[j]);
+      }
+      requests.add(warmupRequest(signatureKeys[i], feeds));
+      offset += numInputs[i];
+    }
+    return requests;
+  }
+
+  private void warmup(List<? extends WarmupRequest> requests, int maxRounds, float tolerance) {
+    List<long[]> latencies = new ArrayList<>();
+    long previousRoundNanos = -1;
+    for (int round = 0; round < maxRounds; ++round) {
+      long[] roundLatencies = new long[requests.size()];
+      long roundNanos = 0;
+      for (int i = 0; i < roundLatencies.length; ++i) {
+        long start = System.nanoTime();
+        requests.get(i).run(this);
+        roundLatencies[i] = System.nanoTime() - start;
+        roundNanos += roundLatencies[i];
+      }
+      latencies.add(roundLatencies);
+      if (previousRoundNanos >= 0
+          && Math.abs(roundNanos - previousRoundNanos) <= tolerance * previousRoundNanos) {
+        break;
+      }
+      previousRoundNanos = roundNanos;
+    }
+    warmupLatencies = latencies.toArray(new long[latencies.size()][]);
   }
 
   /**
@@ -166,6 +628,24 @@ public class SavedModelBundle implements AutoCloseable {
   private static native SavedModelBundle load(
       String exportDir, String[] tags, byte[] config, byte[] runOptions);
 
+  /**
+   * Parses the signatures of a MetaGraphDef.
+   *
+   * @return the keys of the signatures, their method names, their number of inputs, their number
+   *     of outputs, and the logical and tensor names of the inputs then outputs of each signature,
+   *     all sorted by key and by name
+   */
+  private static native Object[] signatures(byte[] metaGraphDef);
+
+  /**
+   * Reads the warm-up requests recorded in the assets of a SavedModel.
+   *
+   * @return null if the model has no recorded requests, otherwise the keys of the signatures run by
+   *     the requests, their number of inputs, then the names and the handles of the tensors fed to
+   *     each request, which are owned by the caller
+   */
+  private static native Object[] warmupRecords(String exportDir);
+
   static {
     TensorFlow.init();
   }
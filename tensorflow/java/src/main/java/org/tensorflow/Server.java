@@ -81,6 +81,16 @@ public final class Server implements AutoCloseable {
     stop(nativeHandle);
   }
 
+  /**
+   * Returns the target to which a {@link Session} connects to run its graph on this server, like
+   * {@code "grpc://localhost:4321"}.
+   *
+   * @see Session#Session(Graph, String, byte[])
+   */
+  public synchronized String target() {
+    return target(nativeHandle);
+  }
+
   /** Blocks until the server has been successfully stopped. */
   public void join() {
     long handle = 0;
@@ -123,6 +133,8 @@ public final class Server implements AutoCloseable {
 
   private static native void delete(long nativeHandle);
 
+  private static native String target(long nativeHandle);
+
   private long nativeHandle;
 
   private int numJoining;
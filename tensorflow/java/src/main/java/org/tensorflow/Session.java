@@ -17,6 +17,16 @@ package org.tensorflow;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Driver for {@link Graph} execution.
@@ -63,11 +73,30 @@ public final class Session implements AutoCloseable {
    *     protocol buffer.
    */
   public Session(Graph g, byte[] config) {
+    this(g, null, config);
+  }
+
+  /**
+   * Construct a new session with the associated {@link Graph}, running its computation on a
+   * (possibly remote) TensorFlow server.
+   *
+   * @param g The {@link Graph} the created Session will operate on.
+   * @param target The execution engine to connect to, like the {@link Server#target()} of a
+   *     server of a cluster, or null to run the graph in process.
+   * @param config Configuration parameters for the session specified as a serialized <a
+   *     href="https://www.tensorflow.org/code/tensorflow/core/protobuf/config.proto">ConfigProto</a>
+   *     protocol buffer, or null.
+   * @throws IllegalArgumentException if the config is not a valid serialization of the ConfigProto
+   *     protocol buffer.
+   */
+  public Session(Graph g, String target, byte[] config) {
     graph = g;
     Graph.Reference r = g.ref();
     try {
       nativeHandle =
-          (config == null) ? allocate(r.nativeHandle()) : allocate2(r.nativeHandle(), null, config);
+          (target == null && config == null)
+              ? allocate(r.nativeHandle())
+              : allocate2(r.nativeHandle(), target, config);
       graphRef = g.ref();
     } finally {
       r.close();
@@ -84,8 +113,9 @@ public final class Session implements AutoCloseable {
   /**
    * Release resources associated with the Session.
    *
-   * <p>Blocks until there are no active executions ({@link Session.Runner#run()} calls). A Session
-   * is not usable after close returns.
+   * <p>Blocks until there are no active executions ({@link Session.Runner#run()} calls, including
+   * asynchronous runs that have been submitted but not completed yet). A Session is not usable
+   * after close returns.
    */
   @Override
   public void close() {
@@ -105,6 +135,10 @@ public final class Session implements AutoCloseable {
       }
       delete(nativeHandle);
       nativeHandle = 0;
+      if (executor != null) {
+        executor.shutdown();
+        executor = null;
+      }
     }
   }
 
@@ -217,13 +251,7 @@ public final class Session implements AutoCloseable {
      * @throws execption if the operation is not a {@link GraphOperation}
      */
     public Runner addTarget(Operation operation) {
-      if (!(operation instanceof GraphOperation)) {
-        throw new IllegalArgumentException(
-            "Operation of type "
-                + operation.getClass().getName()
-                + " is not supported in graph sessions");
-      }
-      targets.add((GraphOperation) operation);
+      targets.add(toGraphOperation(operation));
       return this;
     }
     
@@ -284,13 +312,111 @@ public final class Session implements AutoCloseable {
       return runHelper(true);
     }
 
+    /**
+     * Execute the graph fragments necessary to compute all requested fetches, without blocking the
+     * calling thread.
+     *
+     * <p>The run is executed by a thread of a pool owned by this session, whose size is bounded by
+     * the number of available processors. Additional runs are queued until a thread is available.
+     *
+     * <p>Feeds, fetches and targets are captured when this method is invoked, so the runner can be
+     * modified or reused right away. The fed tensors however are only read when the run is
+     * executed, they must not be closed before the returned future completes. Closing the session
+     * blocks until all submitted runs are completed.
+     *
+     * <p><b>WARNING:</b> The caller assumes ownership of all {@link Tensor}s returned by the
+     * future. If the future is cancelled, tensors produced by a run that had already started are
+     * released automatically.
+     *
+     * @return a future completed with the fetched tensors, in the same order as the fetches
+     * @throws IllegalStateException if the session has been closed
+     */
+    public Future<List<Tensor<?>>> runAsync() {
+      return runAsync(executor());
+    }
+
+    /**
+     * Execute the graph fragments necessary to compute all requested fetches with the given
+     * executor, without blocking the calling thread.
+     *
+     * <p>This is exactly like {@link #runAsync()}, but the run is executed by {@code executor}
+     * instead of the threads owned by this session.
+     *
+     * @param executor executes the run
+     * @return a future completed with the fetched tensors, in the same order as the fetches
+     * @throws IllegalStateException if the session has been closed
+     * @throws java.util.concurrent.RejectedExecutionException if the run cannot be accepted for
+     *     execution
+     */
+    public Future<List<Tensor<?>>> runAsync(Executor executor) {
+      return runAsyncHelper(executor, false);
+    }
+
+    /**
+     * Execute graph fragments to compute requested fetches and return metadata about the run,
+     * without blocking the calling thread.
+     *
+     * <p>This is exactly like {@link #runAsync()}, but the future is completed with the metadata
+     * of the run in addition to the requested Tensors, as returned by {@link
+     * #runAndFetchMetadata()}.
+     *
+     * @throws IllegalStateException if the session has been closed
+     */
+    public Future<Run> runAndFetchMetadataAsync() {
+      return runAndFetchMetadataAsync(executor());
+    }
+
+    /**
+     * Execute graph fragments to compute requested fetches and return metadata about the run with
+     * the given executor, without blocking the calling thread.
+     *
+     * @see #runAndFetchMetadataAsync()
+     * @param executor executes the run
+     * @throws IllegalStateException if the session has been closed
+     * @throws java.util.concurrent.RejectedExecutionException if the run cannot be accepted for
+     *     execution
+     */
+    public Future<Run> runAndFetchMetadataAsync(Executor executor) {
+      return runAsyncHelper(executor, true);
+    }
+
+    /**
+     * Compiles the feeds, fetches and targets of this runner into a reusable {@link Callable}.
+     *
+     * <p>Operation names are resolved and native handles are packed only once, when this method is
+     * invoked. Each subsequent {@link Callable#call(Tensor[])} only needs the values to feed,
+     * provided in the same order as they were added to this runner. The tensors fed to this runner
+     * are only used to identify the feed signature and may be {@code null}. For example:
+     *
+     * <pre>{@code
+     * Session.Callable c = s.runner().feed("x", null).fetch("y").compile();
+     * try (Tensor<?> x = Tensor.create(2.0f);
+     *     Tensor<?> y = c.call(x).get(0)) {
+     *   System.out.println(y.floatValue());
+     * }
+     * }</pre>
+     *
+     * <p>The runner can still be used or modified after this call, without affecting the returned
+     * {@code Callable}.
+     */
+    public Callable compile() {
+      return new Callable(inputs, outputs, targets, runOptions);
+    }
+
+    private <T> Future<T> runAsyncHelper(Executor executor, boolean wantMetadata) {
+      AsyncRun<T> run =
+          new AsyncRun<T>(
+              compile(), inputTensors.toArray(new Tensor<?>[inputTensors.size()]), wantMetadata);
+      run.submit(executor);
+      return run;
+    }
+
     private Run runHelper(boolean wantMetadata) {
       long[] inputTensorHandles = new long[inputTensors.size()];
       long[] inputOpHandles = new long[inputs.size()];
       int[] inputOpIndices = new int[inputs.size()];
       long[] outputOpHandles = new long[outputs.size()];
       int[] outputOpIndices = new int[outputs.size()];
-      long[] targetOpHandles = new long[targets.size()];
       long[] outputTensorHandles = new long[outputs.size()];
 
       // It's okay to use Operation.getUnsafeNativeHandle() here since the safety depends on the
@@ -299,114 +425,337 @@ public final class Session implements AutoCloseable {
       for (Tensor<?> t : inputTensors) {
         inputTensorHandles[idx++] = t.getNativeHandle();
       }
-      idx = 0;
-      for (Output<?> o : inputs) {
-        inputOpHandles[idx] = o.getUnsafeNativeHandle();
-        inputOpIndices[idx] = o.index();
-        idx++;
+      packOutputs(inputs, inputOpHandles, inputOpIndices);
+      packOutputs(outputs, outputOpHandles, outputOpIndices);
+      long[] targetOpHandles = packTargets(targets);
+      return runNative(
+          runOptions,
+          inputTensorHandles,
+          inputOpHandles,
+          inputOpIndices,
+          outputOpHandles,
+          outputOpIndices,
+          targetOpHandles,
+          wantMetadata,
+          outputTensorHandles);
+    }
+
+    // Clears all feeds, fetches, targets and options so this runner can be reused for another
+    // execution, while keeping the capacity already allocated by its lists.
+    void reset() {
+      inputs.clear();
+      inputTensors.clear();
+      outputs.clear();
+      targets.clear();
+      runOptions = null;
+    }
+
+    private ArrayList<Output<?>> inputs = new ArrayList<Output<?>>();
+    private ArrayList<Tensor<?>> inputTensors = new ArrayList<Tensor<?>>();
+    private ArrayList<Output<?>> outputs = new ArrayList<Output<?>>();
+    private ArrayList<GraphOperation> targets = new ArrayList<GraphOperation>();
+    private byte[] runOptions = null;
+  }
+
+  /** Create a Runner to execute graph operations and evaluate Tensors. */
+  public Runner runner() {
+    return new Runner();
+  }
+
+  /**
+   * A precompiled signature of feeds, fetches and targets that can be executed repeatedly.
+   *
+   * <p>A {@code Callable} is created by {@link Runner#compile()}. As opposed to a {@link Runner},
+   * which resolves and packs its arguments on every run, a {@code Callable} prepares everything
+   * that does not depend on the fed values once, making it well suited for executing the same
+   * signature many times, like when serving a model.
+   *
+   * <p>Instances of a {@code Callable} are thread-safe and remain valid as long as the {@code
+   * Session} that created them is not closed.
+   */
+  public final class Callable {
+
+    /**
+     * Executes the graph fragments necessary to compute all fetches of this callable.
+     *
+     * <p><b>WARNING:</b> The caller assumes ownership of all returned {@link Tensor}s, i.e., the
+     * caller must call {@link Tensor#close()} on all elements of the returned list to free up
+     * resources.
+     *
+     * @param inputs values to feed, in the same order as the feeds of the runner this callable was
+     *     compiled from
+     * @return the fetched tensors, in the same order as the fetches of the runner
+     * @throws IllegalArgumentException if the number of inputs does not match the number of feeds
+     */
+    public List<Tensor<?>> call(Tensor<?>... inputs) {
+      return callHelper(inputs, false).outputs;
+    }
+
+    /**
+     * Executes the graph fragments necessary to compute all fetches of this callable and returns
+     * metadata about the run.
+     *
+     * <p>This is exactly like {@link #call(Tensor[])}, but in addition to the requested Tensors,
+     * also returns metadata about the graph execution in the form of a serialized <a
+     * href="https://www.tensorflow.org/code/tensorflow/core/protobuf/config.proto">RunMetadata
+     * protocol buffer</a>.
+     */
+    public Run callAndFetchMetadata(Tensor<?>... inputs) {
+      return callHelper(inputs, true);
+    }
+
+    /** Returns the number of tensors to feed on each call. */
+    public int numInputs() {
+      return inputOpHandles.length;
+    }
+
+    /** Returns the number of tensors fetched on each call. */
+    public int numOutputs() {
+      return outputOpHandles.length;
+    }
+
+    private Callable(
+        List<Output<?>> inputs,
+        List<Output<?>> outputs,
+        List<GraphOperation> targets,
+        byte[] runOptions) {
+      inputOpHandles = new long[inputs.size()];
+      inputOpIndices = new int[inputs.size()];
+      outputOpHandles = new long[outputs.size()];
+      outputOpIndices = new int[outputs.size()];
+      this.runOptions = runOptions;
+
+      // As for Runner, the validity of those handles is guaranteed by graphRef.
+      packOutputs(inputs, inputOpHandles, inputOpIndices);
+      packOutputs(outputs, outputOpHandles, outputOpIndices);
+      targetOpHandles = packTargets(targets);
+    }
+
+    private Run callHelper(Tensor<?>[] inputs, boolean wantMetadata) {
+      if (inputs.length != inputOpHandles.length) {
+        throw new IllegalArgumentException(
+            "Expected " + inputOpHandles.length + " input tensors, got " + inputs.length);
+      }
+      long[] inputTensorHandles = new long[inputs.length];
+      for (int i = 0; i < inputs.length; ++i) {
+        inputTensorHandles[i] = inputs[i].getNativeHandle();
       }
-      idx = 0;
-      for (Output<?> o : outputs) {
-        outputOpHandles[idx] = o.getUnsafeNativeHandle();
-        outputOpIndices[idx] = o.index();
-        idx++;
+      // The packed handle arrays are only read by the native layer, so they can safely be shared
+      // between concurrent calls.
+      return runNative(
+          runOptions,
+          inputTensorHandles,
+          inputOpHandles,
+          inputOpIndices,
+          outputOpHandles,
+          outputOpIndices,
+          targetOpHandles,
+          wantMetadata,
+          new long[outputOpHandles.length]);
+    }
+
+    private final long[] inputOpHandles;
+    private final int[] inputOpIndices;
+    private final long[] outputOpHandles;
+    private final int[] outputOpIndices;
+    private final long[] targetOpHandles;
+    private final byte[] runOptions;
+  }
+
+  /**
+   * Prepares the execution of a graph in multiple steps, feeding and fetching a subset of the given
+   * values at each step.
+   *
+   * <p>As opposed to a {@link Runner}, which requires all feeds to be known before computing any
+   * fetch, a partial run lets the caller feed values as they become available and fetch
+   * intermediate results in between, without re-running the operations already executed in the
+   * previous steps. For example:
+   *
+   * <pre>{@code
+   * try (Session.PartialRun p = s.partialRunSetup(
+   *         Arrays.asList(a, b), Arrays.asList(c, d), Collections.<Operation>emptyList())) {
+   *   Tensor<?> cValue = p.feed(a, aValue).fetch(c).run().get(0);
+   *   // ... later
+   *   Tensor<?> dValue = p.feed(b, bValue).fetch(d).run().get(0);
+   * }
+   * }</pre>
+   *
+   * <p>Each value must be fed or fetched once across all the steps of the run.
+   *
+   * @param feeds all the values that will be fed during this run
+   * @param fetches all the values that will be fetched during this run
+   * @param targets all the operations that will be executed during this run without being fetched
+   * @throws IllegalArgumentException if a target is not a {@link GraphOperation}
+   */
+  public PartialRun partialRunSetup(
+      List<Output<?>> feeds, List<Output<?>> fetches, List<? extends Operation> targets) {
+    long[] inputOpHandles = new long[feeds.size()];
+    int[] inputOpIndices = new int[feeds.size()];
+    long[] outputOpHandles = new long[fetches.size()];
+    int[] outputOpIndices = new int[fetches.size()];
+    List<GraphOperation> graphTargets = new ArrayList<GraphOperation>(targets.size());
+    for (Operation op : targets) {
+      graphTargets.add(toGraphOperation(op));
+    }
+    packOutputs(feeds, inputOpHandles, inputOpIndices);
+    packOutputs(fetches, outputOpHandles, outputOpIndices);
+    long[] targetOpHandles = packTargets(graphTargets);
+
+    Reference runRef = new Reference();
+    try {
+      return new PartialRun(
+          prunSetup(
+              nativeHandle,
+              inputOpHandles,
+              inputOpIndices,
+              outputOpHandles,
+              outputOpIndices,
+              targetOpHandles));
+    } finally {
+      runRef.close();
+    }
+  }
+
+  /**
+   * A graph execution split in multiple steps, created by {@link #partialRunSetup(List, List,
+   * List)}.
+   *
+   * <p>Each step feeds some of the values declared at setup, then executes the graph fragments
+   * necessary to compute the values fetched at this step. Values fed in previous steps remain
+   * available to the following ones.
+   *
+   * <p><b>WARNING:</b> Resources consumed by a {@code PartialRun} <b>must</b> be explicitly freed
+   * by invoking {@link #close()}, even if all of its values have been fetched.
+   *
+   * <p>Instances of a {@code PartialRun} are not thread-safe.
+   */
+  public final class PartialRun implements AutoCloseable {
+
+    /**
+     * Feeds {@code t} at the next step for the value produced by {@code operation}.
+     *
+     * @param operation the string name of the operation, or a string of the form
+     *     <tt>operation_name:output_index</tt>, as in {@link Runner#feed(String, Tensor)}
+     */
+    public PartialRun feed(String operation, Tensor<?> t) {
+      return feed(parseOutput(operation), t);
+    }
+
+    /** Feeds {@code t} at the next step for the value referred to by {@code operand}. */
+    public PartialRun feed(Operand<?> operand, Tensor<?> t) {
+      inputs.add(operand.asOutput());
+      inputTensors.add(t);
+      return this;
+    }
+
+    /**
+     * Makes the next step return the output of {@code operation}.
+     *
+     * @param operation the string name of the operation, or a string of the form
+     *     <tt>operation_name:output_index</tt>, as in {@link Runner#fetch(String)}
+     */
+    public PartialRun fetch(String operation) {
+      return fetch(parseOutput(operation));
+    }
+
+    /** Makes the next step return the Tensor referred to by the output of {@code operand}. */
+    public PartialRun fetch(Operand<?> operand) {
+      outputs.add(operand.asOutput());
+      return this;
+    }
+
+    /** Makes the next step execute {@code operation}, without returning any {@link Tensor}. */
+    public PartialRun addTarget(String operation) {
+      targets.add(operationByName(operation));
+      return this;
+    }
+
+    /**
+     * Makes the next step execute {@code operation}, without returning any {@link Tensor}.
+     *
+     * @throws IllegalArgumentException if the operation is not a {@link GraphOperation}
+     */
+    public PartialRun addTarget(Operation operation) {
+      targets.add(toGraphOperation(operation));
+      return this;
+    }
+
+    /**
+     * Executes the next step of this run, feeding and fetching the values added since the previous
+     * step.
+     *
+     * <p><b>WARNING:</b> The caller assumes ownership of all returned {@link Tensor}s, i.e., the
+     * caller must call {@link Tensor#close()} on all elements of the returned list to free up
+     * resources.
+     *
+     * <p>Feeds, fetches and targets are cleared afterwards, even if the step fails.
+     *
+     * @return the fetched tensors, in the order they were requested for this step
+     * @throws IllegalStateException if this run or its session has been closed
+     */
+    public List<Tensor<?>> run() {
+      if (prunHandle == 0) {
+        throw new IllegalStateException("run() cannot be called on a PartialRun after close()");
       }
-      idx = 0;
-      for (GraphOperation op : targets) {
-        targetOpHandles[idx++] = op.getUnsafeNativeHandle();
+      long[] inputTensorHandles = new long[inputTensors.size()];
+      long[] inputOpHandles = new long[inputs.size()];
+      int[] inputOpIndices = new int[inputs.size()];
+      long[] outputOpHandles = new long[outputs.size()];
+      int[] outputOpIndices = new int[outputs.size()];
+      long[] outputTensorHandles = new long[outputs.size()];
+
+      int idx = 0;
+      for (Tensor<?> t : inputTensors) {
+        inputTensorHandles[idx++] = t.getNativeHandle();
       }
+      packOutputs(inputs, inputOpHandles, inputOpIndices);
+      packOutputs(outputs, outputOpHandles, outputOpIndices);
+      long[] targetOpHandles = packTargets(targets);
+      inputs.clear();
+      inputTensors.clear();
+      outputs.clear();
+      targets.clear();
+
       Reference runRef = new Reference();
-      byte[] metadata = null;
       try {
-        metadata =
-            Session.run(
-                nativeHandle,
-                runOptions,
-                inputTensorHandles,
-                inputOpHandles,
-                inputOpIndices,
-                outputOpHandles,
-                outputOpIndices,
-                targetOpHandles,
-                wantMetadata,
-                outputTensorHandles);
+        prun(
+            nativeHandle,
+            prunHandle,
+            inputTensorHandles,
+            inputOpHandles,
+            inputOpIndices,
+            outputOpHandles,
+            outputOpIndices,
+            targetOpHandles,
+            outputTensorHandles);
       } finally {
         runRef.close();
       }
-      List<Tensor<?>> outputs = new ArrayList<Tensor<?>>();
-      for (long h : outputTensorHandles) {
-        try {
-          outputs.add(Tensor.fromHandle(h));
-        } catch (Exception e) {
-          for (Tensor<?> t : outputs) {
-            t.close();
-          }
-          outputs.clear();
-          throw e;
-        }
-      }
-      Run ret = new Run();
-      ret.outputs = outputs;
-      ret.metadata = metadata;
-      return ret;
-    }
-
-    private class Reference implements AutoCloseable {
-      public Reference() {
-        synchronized (nativeHandleLock) {
-          if (nativeHandle == 0) {
-            throw new IllegalStateException("run() cannot be called on the Session after close()");
-          }
-          ++numActiveRuns;
-        }
-      }
-
-      @Override
-      public void close() {
-        synchronized (nativeHandleLock) {
-          if (nativeHandle == 0) {
-            return;
-          }
-          if (--numActiveRuns == 0) {
-            nativeHandleLock.notifyAll();
-          }
-        }
-      }
+      return fromHandles(outputTensorHandles);
     }
 
-    private GraphOperation operationByName(String opName) {
-      GraphOperation op = graph.operation(opName);
-      if (op == null) {
-        throw new IllegalArgumentException("No Operation named [" + opName + "] in the Graph");
+    /**
+     * Releases the resources associated with this run.
+     *
+     * <p>Values that have been declared at setup but never fed or fetched are discarded.
+     */
+    @Override
+    public void close() {
+      if (prunHandle != 0) {
+        deletePRunHandle(prunHandle);
+        prunHandle = 0;
       }
-      return op;
     }
 
-    @SuppressWarnings("rawtypes")
-    private Output<?> parseOutput(String opName) {
-      int colon = opName.lastIndexOf(':');
-      if (colon == -1 || colon == opName.length() - 1) {
-        return new Output(operationByName(opName), 0);
-      }
-      try {
-        String op = opName.substring(0, colon);
-        int index = Integer.parseInt(opName.substring(colon + 1));
-        return new Output(operationByName(op), index);
-      } catch (NumberFormatException e) {
-        return new Output(operationByName(opName), 0);
-      }
+    private PartialRun(long prunHandle) {
+      this.prunHandle = prunHandle;
     }
 
-    private ArrayList<Output<?>> inputs = new ArrayList<Output<?>>();
-    private ArrayList<Tensor<?>> inputTensors = new ArrayList<Tensor<?>>();
-    private ArrayList<Output<?>> outputs = new ArrayList<Output<?>>();
-    private ArrayList<GraphOperation> targets = new ArrayList<GraphOperation>();
-    private byte[] runOptions = null;
-  }
-
-  /** Create a Runner to execute graph operations and evaluate Tensors. */
-  public Runner runner() {
-    return new Runner();
+    private long prunHandle;
+    private final ArrayList<Output<?>> inputs = new ArrayList<Output<?>>();
+    private final ArrayList<Tensor<?>> inputTensors = new ArrayList<Tensor<?>>();
+    private final ArrayList<Output<?>> outputs = new ArrayList<Output<?>>();
+    private final ArrayList<GraphOperation> targets = new ArrayList<GraphOperation>();
   }
 
   /**
@@ -432,12 +781,230 @@ public final class Session implements AutoCloseable {
     public byte[] metadata;
   }
 
+  private Run runNative(
+      byte[] runOptions,
+      long[] inputTensorHandles,
+      long[] inputOpHandles,
+      int[] inputOpIndices,
+      long[] outputOpHandles,
+      int[] outputOpIndices,
+      long[] targetOpHandles,
+      boolean wantMetadata,
+      long[] outputTensorHandles) {
+    Reference runRef = new Reference();
+    byte[] metadata = null;
+    try {
+      metadata =
+          Session.run(
+              nativeHandle,
+              runOptions,
+              inputTensorHandles,
+              inputOpHandles,
+              inputOpIndices,
+              outputOpHandles,
+              outputOpIndices,
+              targetOpHandles,
+              wantMetadata,
+              outputTensorHandles);
+    } finally {
+      runRef.close();
+    }
+    Run ret = new Run();
+    ret.outputs = fromHandles(outputTensorHandles);
+    ret.metadata = metadata;
+    return ret;
+  }
+
+  /**
+   * A run executed asynchronously.
+   *
+   * <p>A reference to the session is acquired as soon as the run is created, so that the session
+   * is not closed until the run is completed or cancelled before starting.
+   */
+  private final class AsyncRun<T> extends FutureTask<T> {
+
+    AsyncRun(Callable callable, Tensor<?>[] inputs, boolean wantMetadata) {
+      super(NO_OP, null);
+      this.callable = callable;
+      this.inputs = inputs;
+      this.wantMetadata = wantMetadata;
+      this.runRef = new Reference();
+    }
+
+    void submit(Executor executor) {
+      try {
+        executor.execute(this);
+      } catch (RuntimeException e) {
+        releaseIfNotStarted();
+        throw e;
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+      if (!started.compareAndSet(false, true)) {
+        return; // cancelled before starting
+      }
+      Run ret;
+      try {
+        ret = callable.callHelper(inputs, wantMetadata);
+      } catch (Throwable t) {
+        setException(t);
+        return;
+      } finally {
+        runRef.close();
+      }
+      set((T) (wantMetadata ? ret : ret.outputs));
+      if (isCancelled()) {
+        for (Tensor<?> t : ret.outputs) {
+          t.close();
+        }
+      }
+    }
+
+    @Override
+    protected void done() {
+      releaseIfNotStarted();
+    }
+
+    private void releaseIfNotStarted() {
+      if (started.compareAndSet(false, true)) {
+        runRef.close();
+      }
+    }
+
+    private final Callable callable;
+    private final Tensor<?>[] inputs;
+    private final boolean wantMetadata;
+    private final Reference runRef;
+    private final AtomicBoolean started = new AtomicBoolean();
+  }
+
+  private static final Runnable NO_OP =
+      new Runnable() {
+        @Override
+        public void run() {}
+      };
+
+  private Executor executor() {
+    synchronized (nativeHandleLock) {
+      if (nativeHandle == 0) {
+        throw new IllegalStateException("run() cannot be called on the Session after close()");
+      }
+      if (executor == null) {
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor e =
+            new ThreadPoolExecutor(
+                numThreads,
+                numThreads,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                  @Override
+                  public Thread newThread(Runnable r) {
+                    Thread t =
+                        new Thread(r, "tensorflow-session-run-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                  }
+
+                  private final AtomicInteger threadCount = new AtomicInteger();
+                });
+        e.allowCoreThreadTimeOut(true);
+        executor = e;
+      }
+      return executor;
+    }
+  }
+
+  private GraphOperation operationByName(String opName) {
+    GraphOperation op = graph.operation(opName);
+    if (op == null) {
+      throw new IllegalArgumentException("No Operation named [" + opName + "] in the Graph");
+    }
+    return op;
+  }
+
+  private Output<?> parseOutput(String opName) {
+    return graph.output(opName);
+  }
+
+  private static GraphOperation toGraphOperation(Operation operation) {
+    if (!(operation instanceof GraphOperation)) {
+      throw new IllegalArgumentException(
+          "Operation of type "
+              + operation.getClass().getName()
+              + " is not supported in graph sessions");
+    }
+    return (GraphOperation) operation;
+  }
+
+  private static void packOutputs(List<Output<?>> outputs, long[] opHandles, int[] opIndices) {
+    int idx = 0;
+    for (Output<?> o : outputs) {
+      opHandles[idx] = o.getUnsafeNativeHandle();
+      opIndices[idx] = o.index();
+      idx++;
+    }
+  }
+
+  private static long[] packTargets(List<GraphOperation> targets) {
+    long[] targetOpHandles = new long[targets.size()];
+    int idx = 0;
+    for (GraphOperation op : targets) {
+      targetOpHandles[idx++] = op.getUnsafeNativeHandle();
+    }
+    return targetOpHandles;
+  }
+
+  // Wraps the tensors returned by a run, closing those already wrapped if one of them fails.
+  private static List<Tensor<?>> fromHandles(long[] outputTensorHandles) {
+    List<Tensor<?>> outputs = new ArrayList<Tensor<?>>(outputTensorHandles.length);
+    for (long h : outputTensorHandles) {
+      try {
+        outputs.add(Tensor.fromHandle(h));
+      } catch (RuntimeException e) {
+        for (Tensor<?> t : outputs) {
+          t.close();
+        }
+        throw e;
+      }
+    }
+    return outputs;
+  }
+
+  private class Reference implements AutoCloseable {
+    public Reference() {
+      synchronized (nativeHandleLock) {
+        if (nativeHandle == 0) {
+          throw new IllegalStateException("run() cannot be called on the Session after close()");
+        }
+        ++numActiveRuns;
+      }
+    }
+
+    @Override
+    public void close() {
+      synchronized (nativeHandleLock) {
+        if (nativeHandle == 0) {
+          return;
+        }
+        if (--numActiveRuns == 0) {
+          nativeHandleLock.notifyAll();
+        }
+      }
+    }
+  }
+
   private final Graph graph;
   private final Graph.Reference graphRef;
 
   private final Object nativeHandleLock = new Object();
   private long nativeHandle;
   private int numActiveRuns;
+  private ExecutorService executor;
 
   // TODO(ashankar): Remove after TensorFlow 1.2 has been released with allocate2().
   private static native long allocate(long graphHandle);
@@ -484,4 +1051,42 @@ public final class Session implements AutoCloseable {
       long[] targetOpHandles,
       boolean wantRunMetadata,
       long[] outputTensorHandles);
+
+  /**
+   * Prepares a partial run.
+   *
+   * @param handle to the C API TF_Session object (Session.nativeHandle)
+   * @param inputOpHandles together with inputOpIndices, all the values that will be fed
+   * @param inputOpIndices (see inputOpHandles)
+   * @param outputOpHandles together with outputOpIndices, all the values that will be fetched
+   * @param outputOpIndices (see outputOpHandles)
+   * @param targetOpHandles all the Operations that will be executed without being fetched
+   * @return the partial run handle, to be released with deletePRunHandle
+   */
+  private static native long prunSetup(
+      long handle,
+      long[] inputOpHandles,
+      int[] inputOpIndices,
+      long[] outputOpHandles,
+      int[] outputOpIndices,
+      long[] targetOpHandles);
+
+  /**
+   * Executes a step of a partial run.
+   *
+   * <p>Arguments are the same as those of {@link #run}, excepted for {@code prunHandle} which is
+   * the handle returned by {@link #prunSetup}.
+   */
+  private static native void prun(
+      long handle,
+      long prunHandle,
+      long[] inputTensorHandles,
+      long[] inputOpHandles,
+      int[] inputOpIndices,
+      long[] outputOpHandles,
+      int[] outputOpIndices,
+      long[] targetOpHandles,
+      long[] outputTensorHandles);
+
+  private static native void deletePRunHandle(long prunHandle);
 }
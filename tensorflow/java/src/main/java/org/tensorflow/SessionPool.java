@@ -0,0 +1,232 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares a {@link Session} between many threads, with a bound on the number of concurrent runs.
+ *
+ * <p>A {@code SessionPool} hands out {@link Lease}s, each giving exclusive access to a {@link
+ * Session.Runner} until the lease is closed. Runners are recycled between leases, so serving a
+ * request does not allocate a new runner and its internal lists every time. No more than {@code
+ * maxConcurrentRuns} leases can be held at once, additional callers block until one is returned.
+ * For example:
+ *
+ * <pre>{@code
+ * try (SessionPool pool = new SessionPool(graph, 8)) {
+ *   // from any worker thread
+ *   try (SessionPool.Lease lease = pool.acquire();
+ *       Tensor<?> y = lease.runner().feed("x", x).fetch("y").run().get(0)) {
+ *     // use y...
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p><b>WARNING:</b> A {@code SessionPool} created from a {@link Graph} owns its {@link Session},
+ * which <b>must</b> be explicitly freed by invoking {@link #close()}.
+ *
+ * <p>Instances of a {@code SessionPool} are thread-safe. Instances of {@link Lease} are not, and
+ * should be confined to the thread that acquired them.
+ */
+public final class SessionPool implements AutoCloseable {
+
+  /**
+   * Creates a pool running graph {@code g} in a new session, which is closed with the pool.
+   *
+   * @param g the graph to execute
+   * @param maxConcurrentRuns the maximum number of leases that can be held at the same time
+   * @throws IllegalArgumentException if {@code maxConcurrentRuns} is not positive
+   */
+  public SessionPool(Graph g, int maxConcurrentRuns) {
+    this(g, null, maxConcurrentRuns);
+  }
+
+  /**
+   * Creates a pool running graph {@code g} in a new session configured with {@code config}, which
+   * is closed with the pool.
+   *
+   * @param g the graph to execute
+   * @param config Configuration parameters for the session specified as a serialized <a
+   *     href="https://www.tensorflow.org/code/tensorflow/core/protobuf/config.proto">ConfigProto</a>
+   *     protocol buffer, or null
+   * @param maxConcurrentRuns the maximum number of leases that can be held at the same time
+   * @throws IllegalArgumentException if {@code maxConcurrentRuns} is not positive or if the config
+   *     is not a valid serialization of the ConfigProto protocol buffer.
+   */
+  public SessionPool(Graph g, byte[] config, int maxConcurrentRuns) {
+    this(checkMaxConcurrentRuns(maxConcurrentRuns), new Session(g, config), true);
+  }
+
+  /**
+   * Creates a pool sharing an existing session.
+   *
+   * <p>The session remains owned by the caller and is not closed with the pool.
+   *
+   * @param session the session to share
+   * @param maxConcurrentRuns the maximum number of leases that can be held at the same time
+   * @throws IllegalArgumentException if {@code maxConcurrentRuns} is not positive
+   */
+  public SessionPool(Session session, int maxConcurrentRuns) {
+    this(checkMaxConcurrentRuns(maxConcurrentRuns), session, false);
+  }
+
+  /**
+   * Exclusive access to a runner of the pool.
+   *
+   * <p>Closing a lease returns its runner to the pool, after clearing any feeds, fetches and
+   * targets that were added to it. The lease and its runner should not be used after that.
+   */
+  public final class Lease implements AutoCloseable {
+
+    /** Returns the runner owned by this lease. */
+    public Session.Runner runner() {
+      if (runner == null) {
+        throw new IllegalStateException("close() has been called on the lease");
+      }
+      return runner;
+    }
+
+    @Override
+    public void close() {
+      if (runner != null) {
+        release(runner);
+        runner = null;
+      }
+    }
+
+    private Lease(Session.Runner runner) {
+      this.runner = runner;
+    }
+
+    private Session.Runner runner;
+  }
+
+  /**
+   * Acquires a lease, blocking until a run slot is available.
+   *
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   * @throws IllegalStateException if the pool has been closed
+   */
+  public Lease acquire() throws InterruptedException {
+    checkNotClosed();
+    permits.acquire();
+    return newLease();
+  }
+
+  /**
+   * Acquires a lease, waiting up to {@code timeout} for a run slot to become available.
+   *
+   * @return a new lease, or null if no slot was available before the timeout expired
+   * @throws InterruptedException if the calling thread is interrupted while waiting
+   * @throws IllegalStateException if the pool has been closed
+   */
+  public Lease tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+    checkNotClosed();
+    if (!permits.tryAcquire(timeout, unit)) {
+      return null;
+    }
+    return newLease();
+  }
+
+  /** Returns the session shared by this pool. */
+  public Session session() {
+    return session;
+  }
+
+  /** Returns the maximum number of leases that can be held at the same time. */
+  public int maxConcurrentRuns() {
+    return maxConcurrentRuns;
+  }
+
+  /** Returns the number of leases that can currently be acquired without blocking. */
+  public int availableRuns() {
+    return permits.availablePermits();
+  }
+
+  /**
+   * Closes this pool.
+   *
+   * <p>No lease can be acquired after this call. If the pool owns its session, the session is also
+   * closed, which blocks until all runs already started have completed.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    idleRunners.clear();
+    if (ownsSession) {
+      session.close();
+    }
+  }
+
+  private final Session session;
+  private final boolean ownsSession;
+  private final int maxConcurrentRuns;
+  private final Semaphore permits;
+  private final Queue<Session.Runner> idleRunners = new ConcurrentLinkedQueue<Session.Runner>();
+  private volatile boolean closed = false;
+
+  private SessionPool(int maxConcurrentRuns, Session session, boolean ownsSession) {
+    this.session = session;
+    this.ownsSession = ownsSession;
+    this.maxConcurrentRuns = maxConcurrentRuns;
+    this.permits = new Semaphore(maxConcurrentRuns);
+  }
+
+  private Lease newLease() {
+    if (closed) {
+      permits.release();
+      throw new IllegalStateException("close() has been called on the SessionPool");
+    }
+    Session.Runner runner = idleRunners.poll();
+    if (runner == null) {
+      runner = session.runner();
+    }
+    return new Lease(runner);
+  }
+
+  private void release(Session.Runner runner) {
+    runner.reset();
+    // Runners are only created when none is idle, so the number of idle runners never exceeds the
+    // number of leases that can be held concurrently.
+    if (!closed) {
+      idleRunners.offer(runner);
+    }
+    permits.release();
+  }
+
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("close() has been called on the SessionPool");
+    }
+  }
+
+  private static int checkMaxConcurrentRuns(int maxConcurrentRuns) {
+    if (maxConcurrentRuns <= 0) {
+      throw new IllegalArgumentException(
+          "maxConcurrentRuns must be positive, got " + maxConcurrentRuns);
+    }
+    return maxConcurrentRuns;
+  }
+}
@@ -0,0 +1,195 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link String} tensor incrementally, one element at a time.
+ *
+ * <p>As opposed to {@link Tensor#create(Object)}, which requires all elements to be materialized
+ * in a multi-dimensional {@code byte} array first, values appended to this builder are immediately
+ * encoded in a growing buffer allocated outside of the Java heap. Building the tensor then only
+ * requires a single copy of that buffer. For example:
+ *
+ * <pre>{@code
+ * StringTensorBuilder builder = new StringTensorBuilder();
+ * for (String record : records) {
+ *   builder.append(record.getBytes(UTF_8));
+ * }
+ * try (Tensor<String> t = builder.build()) {
+ *   // use t...
+ * }
+ * }</pre>
+ *
+ * <p>Instances of a {@code StringTensorBuilder} are not thread-safe.
+ */
+public final class StringTensorBuilder {
+
+  /** Creates a builder with a default initial capacity. */
+  public StringTensorBuilder() {
+    this(DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates a builder with the given initial capacity.
+   *
+   * @param initialCapacity number of bytes to reserve initially for the encoded elements
+   * @throws IllegalArgumentException if {@code initialCapacity} is negative
+   */
+  public StringTensorBuilder(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("initial capacity cannot be negative");
+    }
+    data = ByteBuffer.allocateDirect(Math.max(initialCapacity, MAX_VARINT_BYTES));
+    offsets = new long[16];
+  }
+
+  /**
+   * Appends an element.
+   *
+   * @param value the bytes of the element
+   * @return this builder
+   */
+  public StringTensorBuilder append(byte[] value) {
+    return append(value, 0, value.length);
+  }
+
+  /**
+   * Appends an element from a slice of an array.
+   *
+   * @param value an array containing the bytes of the element
+   * @param offset the position of the first byte of the element in {@code value}
+   * @param length the number of bytes of the element
+   * @return this builder
+   * @throws IndexOutOfBoundsException if the slice is not within the bounds of {@code value}
+   */
+  public StringTensorBuilder append(byte[] value, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > value.length - length) {
+      throw new IndexOutOfBoundsException(
+          String.format(
+              "slice [%d, %d) is out of bounds for an array of length %d",
+              offset, offset + length, value.length));
+    }
+    startElement(length);
+    data.put(value, offset, length);
+    return this;
+  }
+
+  /**
+   * Appends an element from the remaining bytes of a buffer.
+   *
+   * <p>The position of {@code value} is moved to its limit.
+   *
+   * @param value a buffer containing the bytes of the element
+   * @return this builder
+   */
+  public StringTensorBuilder append(ByteBuffer value) {
+    startElement(value.remaining());
+    data.put(value);
+    return this;
+  }
+
+  /** Returns the number of elements appended to this builder. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Builds a vector of all the elements appended to this builder.
+   *
+   * <p>The builder is cleared afterwards and can be reused to build another tensor.
+   */
+  public Tensor<String> build() {
+    return build(new long[] {size});
+  }
+
+  /**
+   * Builds a tensor of the given shape with all the elements appended to this builder, in
+   * row-major order.
+   *
+   * <p>The builder is cleared afterwards and can be reused to build another tensor.
+   *
+   * @param shape the tensor shape
+   * @throws IllegalArgumentException if the number of elements of the shape does not match the
+   *     number of elements appended to this builder
+   */
+  public Tensor<String> build(long[] shape) {
+    long numElements = 1;
+    for (long dim : shape) {
+      numElements *= dim;
+    }
+    if (numElements != size) {
+      throw new IllegalArgumentException(
+          String.format(
+              "%d elements cannot be shaped as %s", size, Arrays.toString(shape)));
+    }
+    // The C API encodes strings as a table of offsets, followed by the varint-prefixed elements
+    int numBytes = size * 8 + data.position();
+    Tensor<String> t = Tensor.allocateForBuffer(DataType.STRING, shape, numBytes);
+    ByteBuffer dst = t.buffer();
+    for (int i = 0; i < size; ++i) {
+      dst.putLong(offsets[i]);
+    }
+    data.flip();
+    dst.put(data);
+    clear();
+    return t;
+  }
+
+  /** Discards all the elements appended to this builder. */
+  public void clear() {
+    data.clear();
+    size = 0;
+  }
+
+  private static final int DEFAULT_INITIAL_CAPACITY = 64 * 1024;
+  private static final int MAX_VARINT_BYTES = 10;
+
+  private ByteBuffer data;
+  private long[] offsets;
+  private int size = 0;
+
+  private void startElement(int length) {
+    ensureCapacity(MAX_VARINT_BYTES + length);
+    if (size == offsets.length) {
+      offsets = Arrays.copyOf(offsets, size * 2);
+    }
+    offsets[size++] = data.position();
+    // varint encoding of the length, as done by TF_StringEncode
+    long value = length;
+    while (value >= 0x80) {
+      data.put((byte) (value | 0x80));
+      value >>>= 7;
+    }
+    data.put((byte) value);
+  }
+
+  private void ensureCapacity(int numBytes) {
+    if (data.remaining() < numBytes) {
+      long capacity = Math.max((long) data.capacity() * 2, (long) data.position() + numBytes);
+      if (capacity > Integer.MAX_VALUE) {
+        throw new IllegalStateException("string tensor is too large");
+      }
+      ByteBuffer newData = ByteBuffer.allocateDirect((int) capacity);
+      data.flip();
+      newData.put(data);
+      data = newData;
+    }
+  }
+}
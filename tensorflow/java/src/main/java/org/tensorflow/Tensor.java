@@ -26,6 +26,8 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * A statically typed multi-dimensional array whose elements are of a type described by T.
@@ -281,6 +283,91 @@ public final class Tensor<T> implements AutoCloseable {
     return t;
   }
 
+  /**
+   * Creates a Tensor backed by the memory of a direct buffer, without copying its data.
+   *
+   * <p>This is a shorthand for {@link #wrap(Class, long[], ByteBuffer, Runnable) wrap(type, shape,
+   * data, null)}.
+   *
+   * @param <T> the tensor element type
+   * @param type the tensor element type, represented as a class object.
+   * @param shape the tensor shape.
+   * @param data a direct buffer containing the tensor data, in native byte order
+   * @throws IllegalArgumentException If the buffer is not direct or if the tensor datatype or shape
+   *     is not compatible with the buffer
+   */
+  public static <T> Tensor<T> wrap(Class<T> type, long[] shape, ByteBuffer data) {
+    return wrap(type, shape, data, null);
+  }
+
+  /**
+   * Creates a Tensor backed by the memory of a direct buffer, without copying its data.
+   *
+   * <p>As opposed to {@link #create(Class, long[], ByteBuffer)}, the returned tensor reads and
+   * writes its elements directly from the memory of {@code data}, starting at its current
+   * position. This is useful for large inputs, such as a {@link java.nio.MappedByteBuffer}
+   * obtained from {@link java.nio.channels.FileChannel#map}, that would otherwise be copied to a
+   * new native buffer. For example:
+   *
+   * <pre>{@code
+   * try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+   *   MappedByteBuffer features = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+   *   features.order(ByteOrder.nativeOrder());
+   *   try (Tensor<Float> t = Tensor.wrap(Float.class, new long[] {batchSize, 1024}, features)) {
+   *     // use t...
+   *   }
+   * }
+   * }</pre>
+   *
+   * <p>The memory of {@code data} must remain valid for as long as TensorFlow uses it, which may
+   * be longer than the lifetime of the returned tensor if it has been fed to a {@link Session}
+   * that retained it. The buffer is kept reachable until then, at which point {@code onRelease} is
+   * invoked, possibly from a thread owned by the TensorFlow runtime. Callers recycling the memory
+   * of {@code data} should only do it after being notified.
+   *
+   * <p>If the address of {@code data} does not satisfy the alignment requirements of the
+   * TensorFlow runtime, its content is copied to a new aligned buffer instead, in which case
+   * {@code onRelease} is invoked before this method returns.
+   *
+   * <p>{@link String} tensors cannot be wrapped since their encoding differs from the one used by
+   * the TensorFlow runtime.
+   *
+   * @param <T> the tensor element type
+   * @param type the tensor element type, represented as a class object.
+   * @param shape the tensor shape.
+   * @param data a direct buffer containing the tensor data, in native byte order
+   * @param onRelease invoked once TensorFlow no longer uses the memory of {@code data}, or null
+   * @throws IllegalArgumentException If the buffer is not direct or if the tensor datatype or shape
+   *     is not compatible with the buffer
+   */
+  public static <T> Tensor<T> wrap(
+      Class<T> type, long[] shape, ByteBuffer data, Runnable onRelease) {
+    DataType dtype = DataType.fromClass(type);
+    if (dtype == DataType.STRING) {
+      throw new IllegalArgumentException("STRING tensors cannot be wrapped");
+    }
+    if (!data.isDirect()) {
+      throw new IllegalArgumentException("only direct buffers can be wrapped by a Tensor");
+    }
+    int elemBytes = elemByteSize(dtype);
+    if (data.remaining() % elemBytes != 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "ByteBuffer with %d bytes is not compatible with a %s Tensor (%d bytes/element)",
+              data.remaining(), dtype.toString(), elemBytes));
+    }
+    if (data.remaining() / elemBytes != numElements(shape)) {
+      throw incompatibleBuffer(data.remaining() / elemBytes, shape);
+    }
+    Tensor<T> t = new Tensor<T>(dtype);
+    t.shapeCopy = Arrays.copyOf(shape, shape.length);
+    long nativeHandle =
+        wrap(dtype.c(), t.shapeCopy, data, data.position(), data.remaining(), onRelease);
+    t.nativeRef = new NativeReference(nativeHandle);
+    t.wrapped = true;
+    return t;
+  }
+
   /**
    * Returns this Tensor object with the type {@code Tensor<U>}. This method is useful when given a
    * value of type {@code Tensor<?>}.
@@ -302,7 +389,7 @@ public final class Tensor<T> implements AutoCloseable {
   // Helper function to allocate a Tensor for the create() methods that create a Tensor from
   // a java.nio.Buffer.
   // Requires: dataType matches T
-  private static <T> Tensor<T> allocateForBuffer(DataType dataType, long[] shape, int nBuffered) {
+  static <T> Tensor<T> allocateForBuffer(DataType dataType, long[] shape, int nBuffered) {
     final int nflattened = numElements(shape);
     int nbytes = 0;
     if (dataType != DataType.STRING) {
@@ -539,6 +626,168 @@ public final class Tensor<T> implements AutoCloseable {
     dst.put(src);
   }
 
+  /**
+   * Copies the elements of a {@link Float} tensor into a flat array.
+   *
+   * <p>Elements are copied in row-major order, starting at {@code dst[offset]}. As opposed to
+   * {@link #copyTo(Object)}, this method does not need a multi-dimensional Java array matching the
+   * shape of the tensor, which makes it more efficient for tensors of high rank.
+   *
+   * @param dst the destination array
+   * @param offset the position in {@code dst} of the first element to copy
+   * @throws IllegalArgumentException if the tensor data type is not {@link Float} or if there
+   *     is insufficient space in {@code dst} for the data in this tensor
+   */
+  public void readFloats(float[] dst, int offset) {
+    if (dtype != DataType.FLOAT) {
+      throw incompatibleArray(dst, dtype);
+    }
+    checkArrayCapacity(dst.length, offset);
+    buffer().asFloatBuffer().get(dst, offset, numElements());
+  }
+
+  /**
+   * Copies the elements of a {@link Double} tensor into a flat array.
+   *
+   * <p>Elements are copied in row-major order, starting at {@code dst[offset]}. As opposed to
+   * {@link #copyTo(Object)}, this method does not need a multi-dimensional Java array matching the
+   * shape of the tensor, which makes it more efficient for tensors of high rank.
+   *
+   * @param dst the destination array
+   * @param offset the position in {@code dst} of the first element to copy
+   * @throws IllegalArgumentException if the tensor data type is not {@link Double} or if there
+   *     is insufficient space in {@code dst} for the data in this tensor
+   */
+  public void readDoubles(double[] dst, int offset) {
+    if (dtype != DataType.DOUBLE) {
+      throw incompatibleArray(dst, dtype);
+    }
+    checkArrayCapacity(dst.length, offset);
+    buffer().asDoubleBuffer().get(dst, offset, numElements());
+  }
+
+  /**
+   * Copies the elements of an {@link Integer} tensor into a flat array.
+   *
+   * <p>Elements are copied in row-major order, starting at {@code dst[offset]}. As opposed to
+   * {@link #copyTo(Object)}, this method does not need a multi-dimensional Java array matching the
+   * shape of the tensor, which makes it more efficient for tensors of high rank.
+   *
+   * @param dst the destination array
+   * @param offset the position in {@code dst} of the first element to copy
+   * @throws IllegalArgumentException if the tensor data type is not {@link Integer} or if there
+   *     is insufficient space in {@code dst} for the data in this tensor
+   */
+  public void readInts(int[] dst, int offset) {
+    if (dtype != DataType.INT32) {
+      throw incompatibleArray(dst, dtype);
+    }
+    checkArrayCapacity(dst.length, offset);
+    buffer().asIntBuffer().get(dst, offset, numElements());
+  }
+
+  /**
+   * Copies the elements of a {@link Long} tensor into a flat array.
+   *
+   * <p>Elements are copied in row-major order, starting at {@code dst[offset]}. As opposed to
+   * {@link #copyTo(Object)}, this method does not need a multi-dimensional Java array matching the
+   * shape of the tensor, which makes it more efficient for tensors of high rank.
+   *
+   * @param dst the destination array
+   * @param offset the position in {@code dst} of the first element to copy
+   * @throws IllegalArgumentException if the tensor data type is not {@link Long} or if there
+   *     is insufficient space in {@code dst} for the data in this tensor
+   */
+  public void readLongs(long[] dst, int offset) {
+    if (dtype != DataType.INT64) {
+      throw incompatibleArray(dst, dtype);
+    }
+    checkArrayCapacity(dst.length, offset);
+    buffer().asLongBuffer().get(dst, offset, numElements());
+  }
+
+  /**
+   * Returns a view of the elements of a {@link Float} tensor, located by their coordinates.
+   *
+   * <p>Elements are read directly from the memory of the tensor, without allocating any Java
+   * array. The view is only valid as long as this tensor is not closed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link Float}
+   */
+  public FloatNdView floatView() {
+    if (dtype != DataType.FLOAT) {
+      throw new IllegalArgumentException(
+          String.format("cannot view a %s Tensor as a FloatNdView", dtype.toString()));
+    }
+    return new FloatNdView(this);
+  }
+
+  /**
+   * Returns a view of the elements of a {@link Double} tensor, located by their coordinates.
+   *
+   * <p>Elements are read directly from the memory of the tensor, without allocating any Java
+   * array. The view is only valid as long as this tensor is not closed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link Double}
+   */
+  public DoubleNdView doubleView() {
+    if (dtype != DataType.DOUBLE) {
+      throw new IllegalArgumentException(
+          String.format("cannot view a %s Tensor as a DoubleNdView", dtype.toString()));
+    }
+    return new DoubleNdView(this);
+  }
+
+  /**
+   * Returns a view of the elements of an {@link Integer} tensor, located by their coordinates.
+   *
+   * <p>Elements are read directly from the memory of the tensor, without allocating any Java
+   * array. The view is only valid as long as this tensor is not closed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link Integer}
+   */
+  public IntNdView intView() {
+    if (dtype != DataType.INT32) {
+      throw new IllegalArgumentException(
+          String.format("cannot view a %s Tensor as a IntNdView", dtype.toString()));
+    }
+    return new IntNdView(this);
+  }
+
+  /**
+   * Returns a view of the elements of a {@link Long} tensor, located by their coordinates.
+   *
+   * <p>Elements are read directly from the memory of the tensor, without allocating any Java
+   * array. The view is only valid as long as this tensor is not closed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link Long}
+   */
+  public LongNdView longView() {
+    if (dtype != DataType.INT64) {
+      throw new IllegalArgumentException(
+          String.format("cannot view a %s Tensor as a LongNdView", dtype.toString()));
+    }
+    return new LongNdView(this);
+  }
+
+  /**
+   * Returns an iterator over the elements of a {@link String} tensor, in row-major order.
+   *
+   * <p>As opposed to {@link #copyTo(Object)}, elements are decoded one at a time when iterating,
+   * without materializing all of them in a multi-dimensional array. The iterator is only valid as
+   * long as this tensor is not closed.
+   *
+   * @throws IllegalArgumentException if the tensor data type is not {@link String}
+   * @see StringTensorBuilder
+   */
+  public Iterator<byte[]> stringIterator() {
+    if (dtype != DataType.STRING) {
+      throw new IllegalArgumentException(
+          String.format("cannot iterate over a %s Tensor as strings", dtype.toString()));
+    }
+    return new StringIterator(this);
+  }
+
   /** Returns a string describing the type and shape of the Tensor. */
   @Override
   public String toString() {
@@ -573,15 +822,32 @@ public final class Tensor<T> implements AutoCloseable {
     return nativeRef.tensorHandle;
   }
 
+  /**
+   * Releases the ownership of the native handle of this Tensor, if no one else holds a reference
+   * to its memory.
+   *
+   * <p>On success, this Tensor object is no longer usable and the caller becomes responsible of
+   * deleting the returned handle, typically by passing it back to {@link #fromHandle(long)}.
+   *
+   * @return the native handle, or 0 if this tensor is closed, attached to an eager session, wraps
+   *     memory owned by the caller of {@link #wrap(Class, long[], ByteBuffer, Runnable)} or if its
+   *     memory is shared with the TensorFlow runtime
+   */
+  long detachNativeHandle() {
+    return wrapped ? 0L : nativeRef.detachIfUniquelyOwned();
+  }
+
   private NativeReference nativeRef = null;
   private final DataType dtype;
   private long[] shapeCopy = null;
+  // True if the memory of this tensor is a buffer wrapped on behalf of the caller
+  private boolean wrapped = false;
 
   private Tensor(DataType t) {
     dtype = t;
   }
 
-  private ByteBuffer buffer() {
+  ByteBuffer buffer() {
     return buffer(getNativeHandle()).order(ByteOrder.nativeOrder());
   }
 
@@ -590,6 +856,22 @@ public final class Tensor<T> implements AutoCloseable {
         String.format("cannot use %s with Tensor of type %s", buf.getClass().getName(), dataType));
   }
 
+  private static IllegalArgumentException incompatibleArray(Object array, DataType dataType) {
+    return new IllegalArgumentException(
+        String.format(
+            "cannot copy Tensor with DataType %s into an object of type %s",
+            dataType.toString(), array.getClass().getName()));
+  }
+
+  private void checkArrayCapacity(int length, int offset) {
+    if (offset < 0 || length - offset < numElements()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "array of length %d cannot receive %d elements at offset %d",
+              length, numElements(), offset));
+    }
+  }
+
   private static IllegalArgumentException incompatibleBuffer(int numElements, long[] shape) {
     return new IllegalArgumentException(
         String.format(
@@ -621,6 +903,58 @@ public final class Tensor<T> implements AutoCloseable {
     }
   }
 
+  /** Decodes the elements of a {@link String} tensor, as encoded by the C API. */
+  private static class StringIterator implements Iterator<byte[]> {
+
+    StringIterator(Tensor<?> tensor) {
+      this.tensor = tensor;
+      this.buffer = tensor.buffer();
+      this.numElements = tensor.numElements();
+      this.dataStart = numElements * 8;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < numElements;
+    }
+
+    @Override
+    public byte[] next() {
+      if (index >= numElements) {
+        throw new NoSuchElementException();
+      }
+      if (tensor.getNativeHandle() == 0L) {
+        throw new IllegalStateException("close() was called on the Tensor");
+      }
+      int position = dataStart + (int) buffer.getLong(index++ * 8);
+      // varint-prefixed length, as encoded by TF_StringEncode
+      long length = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.get(position++);
+        length |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      byte[] value = new byte[(int) length];
+      ByteBuffer src = buffer.duplicate();
+      src.position(position);
+      src.get(value);
+      return value;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("tensors are immutable");
+    }
+
+    private final Tensor<?> tensor;
+    private final ByteBuffer buffer;
+    private final int numElements;
+    private final int dataStart;
+    private int index = 0;
+  }
+
   /**
    * Reference to the underlying native tensor
    *
@@ -676,6 +1010,15 @@ public final class Tensor<T> implements AutoCloseable {
       }
     }
 
+    synchronized long detachIfUniquelyOwned() {
+      if (tensorHandle == 0L || eagerRef != null || !Tensor.isUniquelyOwned(tensorHandle)) {
+        return 0L;
+      }
+      long handle = tensorHandle;
+      tensorHandle = 0L;
+      return handle;
+    }
+
     private long tensorHandle;
     private EagerReference eagerRef;
   }
@@ -821,12 +1164,17 @@ public final class Tensor<T> implements AutoCloseable {
 
   private static native long allocate(int dtype, long[] shape, long byteSize);
 
+  private static native long wrap(
+      int dtype, long[] shape, ByteBuffer data, int offset, long byteSize, Runnable onRelease);
+
   private static native long allocateScalarBytes(byte[] value);
 
   private static native long allocateNonScalarBytes(long[] shape, Object[] value);
 
   private static native void delete(long handle);
 
+  private static native boolean isUniquelyOwned(long handle);
+
   private static native ByteBuffer buffer(long handle);
 
   private static native int dtype(long handle);
@@ -0,0 +1,338 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recycles the native memory of tensors having the same data type and shape.
+ *
+ * <p>Each call to {@link Tensor#create(long[], FloatBuffer)} allocates a new native buffer, which
+ * is freed when the tensor is closed. When serving a model, the same input and output shapes come
+ * back for every request, and this allocation churn can be avoided by returning tensors to a
+ * {@code TensorAllocator} instead of closing them, so that their memory is reused by the next
+ * tensors it creates. For example:
+ *
+ * <pre>{@code
+ * try (TensorAllocator allocator = new TensorAllocator()) {
+ *   // for each request
+ *   Tensor<Float> x = allocator.create(new long[] {1, 224, 224, 3}, pixels);
+ *   try {
+ *     Tensor<?> y = session.runner().feed("x", x).fetch("y").run().get(0);
+ *     // use y...
+ *     allocator.recycle(y);
+ *   } finally {
+ *     allocator.recycle(x);
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>Any tensor can be recycled, including those returned by a {@link Session}. A tensor is only
+ * pooled if no one else, like a queue or a variable of the TensorFlow runtime, still refers to its
+ * memory, otherwise it is simply closed. {@link String} tensors are never pooled.
+ *
+ * <p>The number of tensors pooled for a given data type and shape, as well as the total amount of
+ * memory held by the pool, are bounded. Tensors recycled beyond these limits are closed.
+ *
+ * <p><b>WARNING:</b> A {@code TensorAllocator} holds native memory that <b>must</b> be explicitly
+ * freed by invoking {@link #close()}.
+ *
+ * <p>Instances of a {@code TensorAllocator} are thread-safe.
+ */
+public final class TensorAllocator implements AutoCloseable {
+
+  /** Default maximum number of tensors pooled for a given data type and shape. */
+  public static final int DEFAULT_MAX_TENSORS_PER_SHAPE = 16;
+
+  /** Default maximum number of bytes held by the pool. */
+  public static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+  /**
+   * Creates an allocator with the default limits.
+   *
+   * @see #DEFAULT_MAX_TENSORS_PER_SHAPE
+   * @see #DEFAULT_MAX_POOLED_BYTES
+   */
+  public TensorAllocator() {
+    this(DEFAULT_MAX_TENSORS_PER_SHAPE, DEFAULT_MAX_POOLED_BYTES);
+  }
+
+  /**
+   * Creates an allocator with the given limits.
+   *
+   * @param maxTensorsPerShape the maximum number of tensors pooled for a given data type and shape
+   * @param maxPooledBytes the maximum number of bytes held by the pool
+   * @throws IllegalArgumentException if a limit is negative
+   */
+  public TensorAllocator(int maxTensorsPerShape, long maxPooledBytes) {
+    if (maxTensorsPerShape < 0 || maxPooledBytes < 0) {
+      throw new IllegalArgumentException("TensorAllocator limits cannot be negative");
+    }
+    this.maxTensorsPerShape = maxTensorsPerShape;
+    this.maxPooledBytes = maxPooledBytes;
+  }
+
+  /**
+   * Creates a {@link Float} Tensor with data from the given buffer, reusing pooled memory if
+   * possible.
+   *
+   * @see Tensor#create(long[], FloatBuffer)
+   */
+  public Tensor<Float> create(long[] shape, FloatBuffer data) {
+    Tensor<Float> t = allocate(DataType.FLOAT, shape, data.remaining());
+    t.buffer().asFloatBuffer().put(data);
+    return t;
+  }
+
+  /**
+   * Creates a {@link Double} Tensor with data from the given buffer, reusing pooled memory if
+   * possible.
+   *
+   * @see Tensor#create(long[], DoubleBuffer)
+   */
+  public Tensor<Double> create(long[] shape, DoubleBuffer data) {
+    Tensor<Double> t = allocate(DataType.DOUBLE, shape, data.remaining());
+    t.buffer().asDoubleBuffer().put(data);
+    return t;
+  }
+
+  /**
+   * Creates an {@link Integer} Tensor with data from the given buffer, reusing pooled memory if
+   * possible.
+   *
+   * @see Tensor#create(long[], IntBuffer)
+   */
+  public Tensor<Integer> create(long[] shape, IntBuffer data) {
+    Tensor<Integer> t = allocate(DataType.INT32, shape, data.remaining());
+    t.buffer().asIntBuffer().put(data);
+    return t;
+  }
+
+  /**
+   * Creates a {@link Long} Tensor with data from the given buffer, reusing pooled memory if
+   * possible.
+   *
+   * @see Tensor#create(long[], LongBuffer)
+   */
+  public Tensor<Long> create(long[] shape, LongBuffer data) {
+    Tensor<Long> t = allocate(DataType.INT64, shape, data.remaining());
+    t.buffer().asLongBuffer().put(data);
+    return t;
+  }
+
+  /**
+   * Creates a Tensor of any type but {@link String} with data from the given buffer, reusing pooled
+   * memory if possible.
+   *
+   * @see Tensor#create(Class, long[], ByteBuffer)
+   * @throws IllegalArgumentException If the tensor datatype or shape is not compatible with the
+   *     buffer, or if {@code type} is {@link String}
+   */
+  public <T> Tensor<T> create(Class<T> type, long[] shape, ByteBuffer data) {
+    DataType dtype = DataType.fromClass(type);
+    int elemBytes = dtype.byteSize();
+    if (elemBytes < 0) {
+      throw new IllegalArgumentException("STRING tensors cannot be allocated from a pool");
+    }
+    if (data.remaining() % elemBytes != 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "ByteBuffer with %d bytes is not compatible with a %s Tensor (%d bytes/element)",
+              data.remaining(), dtype.toString(), elemBytes));
+    }
+    Tensor<T> t = allocate(dtype, shape, data.remaining() / elemBytes);
+    t.buffer().put(data);
+    return t;
+  }
+
+  /**
+   * Returns a tensor to the pool, so that its memory can be reused by a future call to one of the
+   * {@code create} methods.
+   *
+   * <p>The tensor must not be used after this call, as if it was closed. If it cannot be pooled,
+   * it is closed immediately. This is always the case of tensors created by {@link
+   * Tensor#wrap(Class, long[], ByteBuffer, Runnable)}, whose memory remains owned by the caller.
+   *
+   * @param tensor the tensor to recycle
+   */
+  public void recycle(Tensor<?> tensor) {
+    DataType dtype = tensor.dataType();
+    long[] shape = tensor.shape();
+    if (dtype.byteSize() < 0) {
+      tensor.close();
+      return;
+    }
+    long handle = tensor.detachNativeHandle();
+    if (handle == 0L) {
+      // either already closed, owned by an eager session, wrapping memory of the caller or still in
+      // use by the runtime
+      tensor.close();
+      return;
+    }
+    long numBytes = numBytes(dtype, shape);
+    synchronized (this) {
+      if (!closed && pooledBytes + numBytes <= maxPooledBytes) {
+        Key key = new Key(dtype, shape);
+        ArrayDeque<Long> bucket = buckets.get(key);
+        if (bucket == null) {
+          bucket = new ArrayDeque<>();
+          buckets.put(key, bucket);
+        }
+        if (bucket.size() < maxTensorsPerShape) {
+          bucket.push(handle);
+          pooledBytes += numBytes;
+          ++pooledTensorCount;
+          return;
+        }
+      }
+      ++discardCount;
+    }
+    Tensor.fromHandle(handle).close();
+  }
+
+  /** Returns the number of tensors created from pooled memory. */
+  public synchronized long hitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of tensors created from newly allocated memory. */
+  public synchronized long missCount() {
+    return missCount;
+  }
+
+  /** Returns the number of recycled tensors that were closed because the pool was full. */
+  public synchronized long discardCount() {
+    return discardCount;
+  }
+
+  /** Returns the number of tensors currently pooled. */
+  public synchronized int pooledTensorCount() {
+    return pooledTensorCount;
+  }
+
+  /** Returns the number of bytes of native memory currently held by the pool. */
+  public synchronized long pooledBytes() {
+    return pooledBytes;
+  }
+
+  /**
+   * Releases the memory held by the pool.
+   *
+   * <p>Tensors created by this allocator remain valid and must still be closed or recycled. Once
+   * closed, the allocator keeps creating tensors but does not pool them anymore.
+   */
+  @Override
+  public void close() {
+    Map<Key, ArrayDeque<Long>> toRelease;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      toRelease = buckets;
+      buckets = new HashMap<>();
+      pooledBytes = 0;
+      pooledTensorCount = 0;
+    }
+    for (ArrayDeque<Long> bucket : toRelease.values()) {
+      for (Long handle : bucket) {
+        Tensor.fromHandle(handle).close();
+      }
+    }
+  }
+
+  private static final class Key {
+
+    Key(DataType dtype, long[] shape) {
+      this.dtype = dtype;
+      this.shape = shape;
+      this.hashCode = 31 * dtype.hashCode() + Arrays.hashCode(shape);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      return dtype == k.dtype && Arrays.equals(shape, k.shape);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    private final DataType dtype;
+    private final long[] shape;
+    private final int hashCode;
+  }
+
+  private final int maxTensorsPerShape;
+  private final long maxPooledBytes;
+  private Map<Key, ArrayDeque<Long>> buckets = new HashMap<>();
+  private long pooledBytes = 0;
+  private int pooledTensorCount = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long discardCount = 0;
+  private boolean closed = false;
+
+  // Requires: dtype matches T
+  private <T> Tensor<T> allocate(DataType dtype, long[] shape, int nBuffered) {
+    long handle = 0L;
+    synchronized (this) {
+      ArrayDeque<Long> bucket = buckets.get(new Key(dtype, shape));
+      if (bucket != null && !bucket.isEmpty()) {
+        handle = bucket.pop();
+        pooledBytes -= numBytes(dtype, shape);
+        --pooledTensorCount;
+        ++hitCount;
+      } else {
+        ++missCount;
+      }
+    }
+    if (handle == 0L) {
+      return Tensor.allocateForBuffer(dtype, shape, nBuffered);
+    }
+    @SuppressWarnings("unchecked")
+    Tensor<T> t = (Tensor<T>) Tensor.fromHandle(handle);
+    if (nBuffered != t.numElements()) {
+      recycle(t);
+      throw new IllegalArgumentException(
+          String.format(
+              "buffer with %d elements is not compatible with a Tensor with shape %s",
+              nBuffered, Arrays.toString(shape)));
+    }
+    return t;
+  }
+
+  private static long numBytes(DataType dtype, long[] shape) {
+    long n = dtype.byteSize();
+    for (long dim : shape) {
+      n *= dim;
+    }
+    return n;
+  }
+}
@@ -0,0 +1,313 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A model whose version can be replaced while it is serving requests.
+ *
+ * <p>Requests run on the model through {@link Handle}s, each pinning the version that was current
+ * when it was acquired. Replacing the version switches all the handles acquired afterwards to the
+ * new version at once, while the previous version is only closed when all the handles still using
+ * it have been closed. No request is ever blocked by a swap, nor run on a closed model. For
+ * example:
+ *
+ * <pre>{@code
+ * try (VersionedModel model = new VersionedModel(SavedModelBundle.load(v1Dir, "serve"), 1)) {
+ *   // from any worker thread
+ *   try (VersionedModel.Handle handle = model.acquire()) {
+ *     Session.Runner runner = handle.bundle().session().runner();
+ *     // run the model...
+ *   }
+ *   // load and warm up version 2 in the background, then switch to it
+ *   model.loadAndSwap(SavedModelBundle.loader(v2Dir).withTags("serve").withWarmup(requests), 2);
+ * }
+ * }</pre>
+ *
+ * <p><b>WARNING:</b> A {@code VersionedModel} owns all the versions of its model, which <b>must</b>
+ * be explicitly freed by invoking {@link #close()}.
+ *
+ * <p>Instances of a {@code VersionedModel} are thread-safe.
+ */
+public final class VersionedModel implements AutoCloseable {
+
+  /**
+   * Creates a versioned model.
+   *
+   * @param bundle the initial version of the model, which is now owned by this versioned model
+   * @param version the number of the initial version
+   */
+  public VersionedModel(SavedModelBundle bundle, long version) {
+    this.current.set(new Version(bundle, version));
+    this.loader =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "tensorflow-model-loader");
+                t.setDaemon(true);
+                return t;
+              }
+            });
+  }
+
+  /**
+   * Access to the version of the model that was current when the handle was acquired.
+   *
+   * <p>That version remains open at least until the handle is closed. Instances of a {@code
+   * Handle} are thread-safe.
+   */
+  public final class Handle implements AutoCloseable {
+
+    /**
+     * Returns the model.
+     *
+     * @throws IllegalStateException if this handle has been closed
+     */
+    public SavedModelBundle bundle() {
+      if (closed.get()) {
+        throw new IllegalStateException("close() has been called on the handle");
+      }
+      return version.bundle;
+    }
+
+    /** Returns the number of the version of the model. */
+    public long version() {
+      return version.number;
+    }
+
+    /**
+     * Releases this handle.
+     *
+     * <p>If its version has been replaced meanwhile and this was its last handle, the version is
+     * closed.
+     */
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        version.release();
+      }
+    }
+
+    private Handle(Version version) {
+      this.version = version;
+    }
+
+    private final Version version;
+    private final AtomicBoolean closed = new AtomicBoolean();
+  }
+
+  /**
+   * Acquires a handle on the current version of the model.
+   *
+   * <p>This never blocks, even while a swap is in progress.
+   *
+   * @throws IllegalStateException if this versioned model has been closed
+   */
+  public Handle acquire() {
+    while (true) {
+      Version v = current.get();
+      if (v == null) {
+        throw new IllegalStateException("close() has been called on the VersionedModel");
+      }
+      // Fails only if v has been replaced and drained meanwhile, retry with the new one
+      if (v.retain()) {
+        return new Handle(v);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of the current version of the model.
+   *
+   * @throws IllegalStateException if this versioned model has been closed
+   */
+  public long version() {
+    Version v = current.get();
+    if (v == null) {
+      throw new IllegalStateException("close() has been called on the VersionedModel");
+    }
+    return v.number;
+  }
+
+  /**
+   * Replaces the current version of the model.
+   *
+   * <p>Handles acquired after this call use {@code bundle}. The previous version is closed once
+   * all the handles using it have been closed, which this call does not wait for.
+   *
+   * @param bundle the new version of the model, which is now owned by this versioned model
+   * @param version the number of the new version
+   * @throws IllegalStateException if this versioned model has been closed, in which case the
+   *     caller keeps the ownership of {@code bundle}
+   */
+  public void swap(SavedModelBundle bundle, long version) {
+    swap(bundle, version, System.nanoTime());
+  }
+
+  /**
+   * Loads a new version of the model in the background, then replaces the current version with
+   * it.
+   *
+   * <p>Versions are loaded one at a time, in the order of the calls to this method. Any warmup
+   * configured on {@code loader} is completed before the new version serves its first request.
+   * Handles acquired until then keep using the current version.
+   *
+   * @param loader the loader of the new version
+   * @param version the number of the new version
+   * @return a future completed once the new version is current, or failed if it could not be
+   *     loaded
+   * @throws IllegalStateException if this versioned model has been closed
+   * @see #swap(SavedModelBundle, long)
+   */
+  public Future<Void> loadAndSwap(final SavedModelBundle.Loader loader, final long version) {
+    final long startNanos = System.nanoTime();
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("close() has been called on the VersionedModel");
+      }
+      return this.loader.submit(
+          new Callable<Void>() {
+            @Override
+            public Void call() {
+              SavedModelBundle bundle = loader.load();
+              try {
+                swap(bundle, version, startNanos);
+              } catch (RuntimeException e) {
+                bundle.close();
+                throw e;
+              }
+              return null;
+            }
+          });
+    }
+  }
+
+  /**
+   * Returns how long the last swap took, in nanoseconds, or -1 if the model has not been swapped.
+   *
+   * <p>For {@link #loadAndSwap(SavedModelBundle.Loader, long)}, this is the time from the call to
+   * the moment the new version became current, including the loading and warmup of the model.
+   */
+  public long lastSwapNanos() {
+    return lastSwapNanos;
+  }
+
+  /**
+   * Returns how long the last closed version kept serving requests after being replaced, in
+   * nanoseconds, or -1 if no replaced version has been closed yet.
+   */
+  public long lastDrainNanos() {
+    return lastDrainNanos;
+  }
+
+  /** Returns the number of replaced versions that have not been closed yet. */
+  public int drainingVersions() {
+    return drainingVersions.get();
+  }
+
+  /**
+   * Closes this versioned model.
+   *
+   * <p>No handle can be acquired after this call. The futures of the loads that have not started
+   * yet are cancelled, while a load in progress is interrupted and its future fails. Versions still
+   * in use are closed when their last handle is closed.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      // Loads still queued are not run anymore, complete their future so that no caller waits on it
+      for (Runnable queued : loader.shutdownNow()) {
+        ((Future<?>) queued).cancel(false);
+      }
+    }
+    retire(current.getAndSet(null));
+  }
+
+  private final class Version {
+
+    Version(SavedModelBundle bundle, long number) {
+      this.bundle = bundle;
+      this.number = number;
+    }
+
+    /** Adds a reference to this version, unless it has already been closed. */
+    boolean retain() {
+      while (true) {
+        int n = refCount.get();
+        if (n == 0) {
+          return false;
+        }
+        if (refCount.compareAndSet(n, n + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void release() {
+      if (refCount.decrementAndGet() == 0) {
+        bundle.close();
+        lastDrainNanos = System.nanoTime() - retiredNanos;
+        drainingVersions.decrementAndGet();
+      }
+    }
+
+    final SavedModelBundle bundle;
+    final long number;
+    // One reference is held by the versioned model while the version is current
+    final AtomicInteger refCount = new AtomicInteger(1);
+    volatile long retiredNanos;
+  }
+
+  private final AtomicReference<Version> current = new AtomicReference<>();
+  private final ExecutorService loader;
+  private final AtomicInteger drainingVersions = new AtomicInteger();
+  private volatile long lastSwapNanos = -1;
+  private volatile long lastDrainNanos = -1;
+  private boolean closed = false;
+
+  private void swap(SavedModelBundle bundle, long version, long startNanos) {
+    Version previous;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("close() has been called on the VersionedModel");
+      }
+      previous = current.getAndSet(new Version(bundle, version));
+      lastSwapNanos = System.nanoTime() - startNanos;
+    }
+    retire(previous);
+  }
+
+  private void retire(Version version) {
+    if (version != null) {
+      drainingVersions.incrementAndGet();
+      version.retiredNanos = System.nanoTime();
+      version.release();
+    }
+  }
+}
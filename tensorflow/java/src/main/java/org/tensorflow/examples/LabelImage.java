@@ -57,7 +57,7 @@ public class LabelImage {
     String modelDir = args[0];
     String imageFile = args[1];
 
-    byte[] graphDef = readAllBytesOrExit(Paths.get(modelDir, "tensorflow_inception_graph.pb"));
+    Path graphDef = Paths.get(modelDir, "tensorflow_inception_graph.pb");
     List<String> labels =
         readAllLinesOrExit(Paths.get(modelDir, "imagenet_comp_graph_label_strings.txt"));
     byte[] imageBytes = readAllBytesOrExit(Paths.get(imageFile));
@@ -107,9 +107,9 @@ public class LabelImage {
     }
   }
 
-  private static float[] executeInceptionGraph(byte[] graphDef, Tensor<Float> image) {
+  private static float[] executeInceptionGraph(Path graphDef, Tensor<Float> image) {
     try (Graph g = new Graph()) {
-      g.importGraphDef(graphDef);
+      importGraphDefOrExit(g, graphDef);
       try (Session s = new Session(g);
           // Generally, there may be multiple output tensors, all of them must be closed to prevent resource leaks.
           Tensor<Float> result =
@@ -137,6 +137,16 @@ public class LabelImage {
     return best;
   }
 
+  private static void importGraphDefOrExit(Graph g, Path path) {
+    try {
+      // The file is mapped in memory rather than read on the heap.
+      g.importGraphDef(path.toFile());
+    } catch (IOException e) {
+      System.err.println("Failed to read [" + path + "]: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
   private static byte[] readAllBytesOrExit(Path path) {
     try {
       return Files.readAllBytes(path);
@@ -0,0 +1,178 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.op;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.tensorflow.DataType;
+import org.tensorflow.EagerSession;
+import org.tensorflow.ExecutionEnvironment;
+import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+
+/**
+ * A function traced once into a {@link Graph} and executed by a single {@link Session} run on
+ * each call.
+ *
+ * <p>Code written against {@link Ops} runs the same way in any {@link ExecutionEnvironment}. While
+ * it is convenient to develop it in an {@link EagerSession}, each operation is then dispatched one
+ * at a time. Tracing that code into a graph function adds its operations to a graph once, with
+ * placeholders as inputs, so that later calls only cost a single run of all its operations. For
+ * example:
+ *
+ * <pre>{@code
+ * GraphFunction.Body body = new GraphFunction.Body() {
+ *   public List<Operand<?>> build(Ops tf, List<Output<?>> inputs) {
+ *     Operand<Float> x = (Operand<Float>) inputs.get(0);
+ *     return Arrays.<Operand<?>>asList(tf.math().add(tf.math().square(x), tf.constant(1.0f)));
+ *   }
+ * };
+ * try (GraphFunction f = GraphFunction.trace(body, DataType.FLOAT);
+ *     Tensor<Float> x = Tensors.create(2.0f)) {
+ *   List<Tensor<?>> results = f.call(x);
+ *   // use and close results...
+ * }
+ * }</pre>
+ *
+ * <p>Instances of a {@code GraphFunction} are thread-safe.
+ */
+public final class GraphFunction implements AutoCloseable {
+
+  /** The operations computed by a graph function. */
+  public interface Body {
+
+    /**
+     * Adds the operations of the function.
+     *
+     * <p>This method is only invoked once, when the function is traced.
+     *
+     * @param tf the API used to add operations to the graph of the function
+     * @param inputs the placeholders fed with the arguments of the function, in the same order
+     * @return the outputs returned by the function, in the same order
+     */
+    List<? extends Operand<?>> build(Ops tf, List<Output<?>> inputs);
+  }
+
+  /**
+   * Traces a function into a new graph.
+   *
+   * <p><b>WARNING:</b> The caller assumes ownership of the returned function and must invoke its
+   * {@link #close()} method when it is no longer needed.
+   *
+   * @param body the operations of the function
+   * @param inputTypes the data types of the arguments of the function
+   * @return the traced function
+   */
+  public static GraphFunction trace(Body body, DataType... inputTypes) {
+    Graph graph = new Graph();
+    try {
+      Ops tf = Ops.create(graph);
+      List<Output<?>> inputs = new ArrayList<>(inputTypes.length);
+      for (DataType inputType : inputTypes) {
+        inputs.add(
+            graph
+                .opBuilder("Placeholder", tf.scope().makeOpName("Input"))
+                .setAttr("dtype", inputType)
+                .build()
+                .output(0));
+      }
+      List<? extends Operand<?>> outputs = body.build(tf, Collections.unmodifiableList(inputs));
+      return new GraphFunction(graph, inputs, inputTypes.clone(), Operands.asOutputs(outputs));
+    } catch (RuntimeException e) {
+      graph.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Calls the function.
+   *
+   * <p>The caller is responsible for closing all the returned tensors.
+   *
+   * @param args the arguments of the function, one per input
+   * @return the outputs of the function
+   * @throws IllegalArgumentException if the number or the data types of {@code args} do not match
+   *     the inputs of the function
+   */
+  public List<Tensor<?>> call(Tensor<?>... args) {
+    if (args.length != inputTypes.length) {
+      throw new IllegalArgumentException(
+          String.format(
+              "function expects %d arguments, but %d were provided",
+              inputTypes.length,
+              args.length));
+    }
+    for (int i = 0; i < args.length; ++i) {
+      if (args[i].dataType() != inputTypes[i]) {
+        throw new IllegalArgumentException(
+            String.format(
+                "argument %d should be a %s tensor, got %s", i, inputTypes[i], args[i].dataType()));
+      }
+    }
+    return callable.call(args);
+  }
+
+  /** Returns the number of inputs of the function. */
+  public int numInputs() {
+    return inputTypes.length;
+  }
+
+  /** Returns the number of outputs of the function. */
+  public int numOutputs() {
+    return callable.numOutputs();
+  }
+
+  /**
+   * Returns the graph of the function.
+   *
+   * <p>The graph is owned by this function and must not be modified nor closed.
+   */
+  public Graph graph() {
+    return graph;
+  }
+
+  /** Releases the graph and session of this function. */
+  @Override
+  public void close() {
+    session.close();
+    graph.close();
+  }
+
+  private GraphFunction(
+      Graph graph, List<Output<?>> inputs, DataType[] inputTypes, Output<?>[] outputs) {
+    this.graph = graph;
+    this.session = new Session(graph);
+    this.inputTypes = inputTypes;
+    // Feeds and fetches are resolved once for all the calls
+    Session.Runner runner = session.runner();
+    for (Output<?> input : inputs) {
+      runner.feed(input, null);
+    }
+    for (Output<?> output : outputs) {
+      runner.fetch(output);
+    }
+    this.callable = runner.compile();
+  }
+
+  private final Graph graph;
+  private final Session session;
+  private final DataType[] inputTypes;
+  private final Session.Callable callable;
+}
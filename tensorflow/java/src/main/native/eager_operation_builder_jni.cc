@@ -20,6 +20,9 @@ limitations under the License.
 #include <set>
 
 #include "tensorflow/c/eager/c_api.h"
+#include "tensorflow/c/eager/c_api_internal.h"
+#include "tensorflow/core/framework/attr_value_util.h"
+#include "tensorflow/core/framework/op_def_util.h"
 #include "tensorflow/java/src/main/native/exception_jni.h"
 
 // This value should be >= to the maximum number of outputs in any op
@@ -62,6 +65,38 @@ TFE_TensorHandle* requireTensorHandle(JNIEnv* env, jlong handle) {
   return reinterpret_cast<TFE_TensorHandle*>(handle);
 }
 
+// Returns true if an attribute of a template has been set explicitly, rather
+// than filled in with the default value of its definition.
+bool isSetOnTemplate(const tensorflow::AttrBuilder& attrs,
+                     const tensorflow::OpDef* op_def, const std::string& name,
+                     const tensorflow::AttrValue& value) {
+  const tensorflow::OpDef::AttrDef* attr_def =
+      op_def == nullptr ? nullptr : tensorflow::FindAttr(name, *op_def);
+  if (attr_def == nullptr || !attr_def->has_default_value() ||
+      !tensorflow::AreAttrValuesEqual(value, attr_def->default_value())) {
+    return true;
+  }
+  // An attribute equal to its default value may still have been set. Only
+  // those stored apart from the others, like the types, can be told apart.
+  switch (value.value_case()) {
+    case tensorflow::AttrValue::kF: {
+      float f;
+      return attrs.Get(name, &f).ok();
+    }
+    case tensorflow::AttrValue::kB: {
+      bool b;
+      return attrs.Get(name, &b).ok();
+    }
+    case tensorflow::AttrValue::kType: {
+      tensorflow::DataType type;
+      return attrs.Get(name, &type).ok();
+    }
+    default:
+      // Equivalent to an unset attribute, filled in again when executing
+      return false;
+  }
+}
+
 }  // namespace
 
 JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperationBuilder_allocate(
@@ -82,6 +117,39 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperationBuilder_allocate(
   return reinterpret_cast<jlong>(op);
 }
 
+JNIEXPORT jlong JNICALL
+Java_org_tensorflow_EagerOperationBuilder_allocateFromTemplate(
+    JNIEnv* env, jclass clazz, jlong context_handle, jlong template_handle) {
+  TFE_Context* context = requireContext(env, context_handle);
+  if (context == nullptr) return 0;
+  const TFE_Op* op_template = requireOp(env, template_handle);
+  if (op_template == nullptr) return 0;
+  const tensorflow::EagerOperation& from = op_template->operation;
+  // The op definition and attribute types have already been looked up when
+  // the template was allocated, only its attributes need to be copied.
+  TFE_OpInferenceContext* inference_ctx =
+      op_template->inference_ctx == nullptr
+          ? nullptr
+          : new TFE_OpInferenceContext(op_template->inference_ctx->op_def);
+  TFE_Op* op = new TFE_Op(context, from.Name().c_str(), from.is_function(),
+                          from.AttrTypes(), inference_ctx);
+  // Default values must not be copied: an attribute already set is never
+  // overridden, including by the types inferred from the inputs of the op.
+  const tensorflow::OpDef* op_def = op_template->inference_ctx == nullptr
+                                        ? nullptr
+                                        : op_template->inference_ctx->op_def;
+  tensorflow::AttrValueMap attrs;
+  from.Attrs().FillAttrValueMap(&attrs);
+  tensorflow::AttrBuilder* to_attrs = op->operation.MutableAttrs();
+  for (const auto& attr : attrs) {
+    if (isSetOnTemplate(from.Attrs(), op_def, attr.first, attr.second)) {
+      to_attrs->Set(attr.first, attr.second);
+    }
+  }
+  op->operation.SetDevice(from.Device());
+  return reinterpret_cast<jlong>(op);
+}
+
 JNIEXPORT void JNICALL Java_org_tensorflow_EagerOperationBuilder_delete(
     JNIEnv* env, jclass clazz, jlong op_handle) {
   if (op_handle == 0) return;
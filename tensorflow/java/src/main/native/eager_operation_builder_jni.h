@@ -30,6 +30,15 @@ extern "C" {
 JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperationBuilder_allocate(
     JNIEnv *, jclass, jlong, jstring);
 
+/*
+ * Class:     org_tensorflow_EagerOperationBuilder
+ * Method:    allocateFromTemplate
+ * Signature: (JJ)J
+ */
+JNIEXPORT jlong JNICALL
+Java_org_tensorflow_EagerOperationBuilder_allocateFromTemplate(JNIEnv *, jclass,
+                                                               jlong, jlong);
+
 /*
  * Class:     org_tensorflow_EagerOperationBuilder
  * Method:    delete
@@ -21,8 +21,14 @@ limitations under the License.
 
 #include <algorithm>
 #include <memory>
+#include <vector>
 
 #include "tensorflow/c/eager/c_api.h"
+#include "tensorflow/c/eager/c_api_internal.h"
+#include "tensorflow/core/framework/node_def_util.h"
+#include "tensorflow/core/framework/op.h"
+#include "tensorflow/core/framework/shape_inference.h"
+#include "tensorflow/core/public/version.h"
 #include "tensorflow/java/src/main/native/exception_jni.h"
 
 namespace {
@@ -144,3 +150,61 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperation_dim(JNIEnv* env,
   TF_DeleteStatus(status);
   return static_cast<jlong>(dim);
 }
+
+JNIEXPORT jlongArray JNICALL Java_org_tensorflow_EagerOperation_inferShape(
+    JNIEnv* env, jclass clazz, jlong op_handle, jobjectArray input_shapes,
+    jint output_index) {
+  TFE_Op* op = requireOp(env, op_handle);
+  if (op == nullptr) return nullptr;
+  // Inference is best effort: the shape is taken from the executed operation
+  // whenever it cannot be inferred, which also reports any error.
+  const tensorflow::OpRegistrationData* op_reg_data;
+  if (!tensorflow::OpRegistry::Global()
+           ->LookUp(op->operation.Name(), &op_reg_data)
+           .ok() ||
+      op_reg_data->shape_inference_fn == nullptr) {
+    return nullptr;
+  }
+  // The node definition has been finalized when the operation was executed
+  tensorflow::NodeDef node_def = op->operation.MutableAttrs()->BuildNodeDef();
+  tensorflow::AddDefaultsToNodeDef(op_reg_data->op_def, &node_def);
+  const int num_inputs = env->GetArrayLength(input_shapes);
+  if (num_inputs != node_def.input_size()) return nullptr;
+
+  std::vector<tensorflow::PartialTensorShape> shapes(num_inputs);
+  for (int i = 0; i < num_inputs; ++i) {
+    jlongArray dims =
+        static_cast<jlongArray>(env->GetObjectArrayElement(input_shapes, i));
+    if (dims == nullptr) continue;
+    const jsize num_dims = env->GetArrayLength(dims);
+    jlong* elems = env->GetLongArrayElements(dims, nullptr);
+    std::vector<tensorflow::int64> dim_sizes(elems, elems + num_dims);
+    env->ReleaseLongArrayElements(dims, elems, JNI_ABORT);
+    env->DeleteLocalRef(dims);
+    shapes[i] = tensorflow::PartialTensorShape(dim_sizes);
+  }
+  std::vector<const tensorflow::Tensor*> input_tensors(num_inputs, nullptr);
+  std::vector<tensorflow::PartialTensorShape> input_tensors_as_shapes;
+  std::vector<std::unique_ptr<std::vector<
+      std::pair<tensorflow::PartialTensorShape, tensorflow::DataType>>>>
+      input_handle_shapes_and_types;
+  tensorflow::shape_inference::InferenceContext ctx(
+      TF_GRAPH_DEF_VERSION, &node_def, op_reg_data->op_def, shapes,
+      input_tensors, input_tensors_as_shapes, input_handle_shapes_and_types);
+  if (!ctx.construction_status().ok() ||
+      !ctx.Run(op_reg_data->shape_inference_fn).ok() || output_index < 0 ||
+      output_index >= ctx.num_outputs()) {
+    return nullptr;
+  }
+  tensorflow::shape_inference::ShapeHandle shape = ctx.output(output_index);
+  if (!ctx.FullyDefined(shape)) return nullptr;
+
+  const int rank = ctx.Rank(shape);
+  std::unique_ptr<jlong[]> dims(new jlong[rank]);
+  for (int i = 0; i < rank; ++i) {
+    dims[i] = static_cast<jlong>(ctx.Value(ctx.Dim(shape, i)));
+  }
+  jlongArray ret = env->NewLongArray(rank);
+  env->SetLongArrayRegion(ret, 0, rank, dims.get());
+  return ret;
+}
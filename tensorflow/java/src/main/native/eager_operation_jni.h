@@ -88,6 +88,14 @@ JNIEXPORT jint JNICALL Java_org_tensorflow_EagerOperation_numDims(JNIEnv *,
 JNIEXPORT jlong JNICALL Java_org_tensorflow_EagerOperation_dim(JNIEnv *, jclass,
                                                                jlong, jint);
 
+/**
+ * Class:     org_tensorflow_EagerOperation
+ * Method:    inferShape
+ * Signature: (J[[JI)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_org_tensorflow_EagerOperation_inferShape(
+    JNIEnv *, jclass, jlong, jobjectArray, jint);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
@@ -62,3 +62,22 @@ JNIEXPORT void JNICALL Java_org_tensorflow_EagerSession_delete(JNIEnv* env,
   if (handle == 0) return;
   TFE_DeleteContext(reinterpret_cast<TFE_Context*>(handle));
 }
+
+JNIEXPORT void JNICALL Java_org_tensorflow_EagerSession_sync(JNIEnv* env,
+                                                             jclass clazz,
+                                                             jlong handle) {
+  if (handle == 0) {
+    throwException(env, kIllegalStateException,
+                   "Eager session has been closed");
+    return;
+  }
+  TFE_Context* context = reinterpret_cast<TFE_Context*>(handle);
+  TF_Status* status = TF_NewStatus();
+  TFE_ContextAsyncWait(context, status);
+  if (TF_GetCode(status) != TF_OK) {
+    // Leave the context usable for the operations enqueued after this error
+    TFE_ContextAsyncClearError(context);
+  }
+  throwExceptionIfNotOK(env, status);
+  TF_DeleteStatus(status);
+}
@@ -17,6 +17,7 @@ limitations under the License.
 
 #include <limits>
 #include <memory>
+#include <vector>
 #include "tensorflow/c/c_api.h"
 #include "tensorflow/java/src/main/native/exception_jni.h"
 #include "tensorflow/java/src/main/native/utils_jni.h"
@@ -41,6 +42,30 @@ TF_Graph* requireHandle(JNIEnv* env, jlong handle) {
 TF_Operation* requireOperationHandle(JNIEnv* env, jlong handle) {
   return requireHandleImpl<TF_Operation>(env, handle);
 }
+
+void importGraphDefImpl(JNIEnv* env, TF_Graph* g, const void* data,
+                        size_t length, jstring prefix) {
+  TF_ImportGraphDefOptions* opts = TF_NewImportGraphDefOptions();
+
+  jboolean is_copy;
+  const char* cprefix = env->GetStringUTFChars(prefix, &is_copy);
+  TF_ImportGraphDefOptionsSetPrefix(opts, cprefix);
+  env->ReleaseStringUTFChars(prefix, cprefix);
+
+  // The buffer only borrows the data, which is not released by the C API.
+  TF_Buffer buf;
+  buf.data = data;
+  buf.length = length;
+  buf.data_deallocator = nullptr;
+  TF_Status* status = TF_NewStatus();
+
+  TF_GraphImportGraphDef(g, &buf, opts, status);
+  throwExceptionIfNotOK(env, status);
+  // Continue cleaning up resources even if an exception was thrown.
+
+  TF_DeleteStatus(status);
+  TF_DeleteImportGraphDefOptions(opts);
+}
 }  // namespace
 
 JNIEXPORT jlong JNICALL Java_org_tensorflow_Graph_allocate(JNIEnv*, jclass) {
@@ -83,34 +108,119 @@ JNIEXPORT jlongArray JNICALL Java_org_tensorflow_Graph_nextOperation(
   return rhett;
 }
 
+JNIEXPORT jobjectArray JNICALL Java_org_tensorflow_Graph_snapshot(
+    JNIEnv* env, jclass clazz, jlong handle) {
+  TF_Graph* g = requireHandle(env, handle);
+  if (g == nullptr) return nullptr;
+
+  std::vector<TF_Operation*> ops;
+  size_t pos = 0;
+  TF_Operation* op;
+  while ((op = TF_GraphNextOperation(g, &pos)) != nullptr) {
+    ops.push_back(op);
+  }
+  const jsize nops = static_cast<jsize>(ops.size());
+
+  jclass string_class = env->FindClass("java/lang/String");
+  jobjectArray names = env->NewObjectArray(nops, string_class, nullptr);
+  jobjectArray types = env->NewObjectArray(nops, string_class, nullptr);
+  if (names == nullptr || types == nullptr) return nullptr;
+
+  std::vector<jlong> op_handles(nops);
+  std::vector<jint> output_offsets(nops + 1);
+  std::vector<jint> dtypes;
+  std::vector<jint> num_dims;
+  std::vector<jlong> dims;
+  std::vector<int64_t> cdims;
+  TF_Status* status = TF_NewStatus();
+  for (jsize i = 0; i < nops; ++i) {
+    op = ops[i];
+    op_handles[i] = reinterpret_cast<jlong>(op);
+    jstring name = env->NewStringUTF(TF_OperationName(op));
+    jstring type = env->NewStringUTF(TF_OperationOpType(op));
+    if (name == nullptr || type == nullptr) {
+      TF_DeleteStatus(status);
+      return nullptr;
+    }
+    env->SetObjectArrayElement(names, i, name);
+    env->SetObjectArrayElement(types, i, type);
+    env->DeleteLocalRef(name);
+    env->DeleteLocalRef(type);
+
+    const int num_outputs = TF_OperationNumOutputs(op);
+    output_offsets[i] = static_cast<jint>(dtypes.size());
+    for (int j = 0; j < num_outputs; ++j) {
+      TF_Output output{op, j};
+      dtypes.push_back(static_cast<jint>(TF_OperationOutputType(output)));
+      int n = TF_GraphGetTensorNumDims(g, output, status);
+      if (n > 0) {
+        cdims.resize(n);
+        TF_GraphGetTensorShape(g, output, cdims.data(), n, status);
+        for (int k = 0; k < n; ++k) {
+          dims.push_back(static_cast<jlong>(cdims[k]));
+        }
+      }
+      if (!throwExceptionIfNotOK(env, status)) {
+        TF_DeleteStatus(status);
+        return nullptr;
+      }
+      num_dims.push_back(static_cast<jint>(n));
+    }
+  }
+  TF_DeleteStatus(status);
+  output_offsets[nops] = static_cast<jint>(dtypes.size());
+
+  jlongArray jop_handles = env->NewLongArray(nops);
+  env->SetLongArrayRegion(jop_handles, 0, nops, op_handles.data());
+  jintArray joutput_offsets = env->NewIntArray(nops + 1);
+  env->SetIntArrayRegion(joutput_offsets, 0, nops + 1, output_offsets.data());
+  jintArray jdtypes = env->NewIntArray(dtypes.size());
+  env->SetIntArrayRegion(jdtypes, 0, dtypes.size(), dtypes.data());
+  jintArray jnum_dims = env->NewIntArray(num_dims.size());
+  env->SetIntArrayRegion(jnum_dims, 0, num_dims.size(), num_dims.data());
+  jlongArray jdims = env->NewLongArray(dims.size());
+  env->SetLongArrayRegion(jdims, 0, dims.size(), dims.data());
+  if (env->ExceptionCheck()) return nullptr;
+
+  jobjectArray ret =
+      env->NewObjectArray(7, env->FindClass("java/lang/Object"), nullptr);
+  if (ret == nullptr) return nullptr;
+  env->SetObjectArrayElement(ret, 0, jop_handles);
+  env->SetObjectArrayElement(ret, 1, names);
+  env->SetObjectArrayElement(ret, 2, types);
+  env->SetObjectArrayElement(ret, 3, joutput_offsets);
+  env->SetObjectArrayElement(ret, 4, jdtypes);
+  env->SetObjectArrayElement(ret, 5, jnum_dims);
+  env->SetObjectArrayElement(ret, 6, jdims);
+  return ret;
+}
+
 JNIEXPORT void JNICALL Java_org_tensorflow_Graph_importGraphDef(
     JNIEnv* env, jclass clazz, jlong handle, jbyteArray graph_def,
     jstring prefix) {
   TF_Graph* g = requireHandle(env, handle);
   if (g == nullptr) return;
 
-  TF_ImportGraphDefOptions* opts = TF_NewImportGraphDefOptions();
-
-  jboolean is_copy;
-  const char* cprefix = env->GetStringUTFChars(prefix, &is_copy);
-  TF_ImportGraphDefOptionsSetPrefix(opts, cprefix);
-  env->ReleaseStringUTFChars(prefix, cprefix);
-
   static_assert(sizeof(jbyte) == 1, "unexpected size of the jbyte type");
-  jbyte* bytes = env->GetByteArrayElements(graph_def, &is_copy);
-  TF_Buffer* buf =
-      TF_NewBufferFromString(bytes, env->GetArrayLength(graph_def));
-  TF_Status* status = TF_NewStatus();
-
-  TF_GraphImportGraphDef(g, buf, opts, status);
-  throwExceptionIfNotOK(env, status);
-  // Continue cleaning up resources even if an exception was thrown.
-
-  TF_DeleteStatus(status);
-  TF_DeleteBuffer(buf);
+  jbyte* bytes = env->GetByteArrayElements(graph_def, nullptr);
+  importGraphDefImpl(env, g, bytes, env->GetArrayLength(graph_def), prefix);
   env->ReleaseByteArrayElements(graph_def, bytes, JNI_ABORT);
+}
 
-  TF_DeleteImportGraphDefOptions(opts);
+JNIEXPORT void JNICALL Java_org_tensorflow_Graph_importGraphDefFromBuffer(
+    JNIEnv* env, jclass clazz, jlong handle, jobject graph_def, jint offset,
+    jint length, jstring prefix) {
+  TF_Graph* g = requireHandle(env, handle);
+  if (g == nullptr) return;
+
+  char* data = static_cast<char*>(env->GetDirectBufferAddress(graph_def));
+  if (data == nullptr) {
+    throwException(env, kIllegalArgumentException,
+                   "graphDef must be a direct buffer");
+    return;
+  }
+  importGraphDefImpl(env, g, data + offset, static_cast<size_t>(length),
+                     prefix);
 }
 
 JNIEXPORT jbyteArray JNICALL
@@ -55,6 +55,15 @@ JNIEXPORT jlongArray JNICALL Java_org_tensorflow_Graph_nextOperation(JNIEnv *,
                                                                      jlong,
                                                                      jint);
 
+/*
+ * Class:     org_tensorflow_Graph
+ * Method:    snapshot
+ * Signature: (J)[Ljava/lang/Object;
+ */
+JNIEXPORT jobjectArray JNICALL Java_org_tensorflow_Graph_snapshot(JNIEnv *,
+                                                                  jclass,
+                                                                  jlong);
+
 /*
  * Class:     org_tensorflow_Graph
  * Method:    importGraphDef
@@ -65,6 +74,14 @@ JNIEXPORT void JNICALL Java_org_tensorflow_Graph_importGraphDef(JNIEnv *,
                                                                 jbyteArray,
                                                                 jstring);
 
+/*
+ * Class:     org_tensorflow_Graph
+ * Method:    importGraphDefFromBuffer
+ * Signature: (JLjava/nio/ByteBuffer;IILjava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_org_tensorflow_Graph_importGraphDefFromBuffer(
+    JNIEnv *, jclass, jlong, jobject, jint, jint, jstring);
+
 /*
  * Class:     org_tensorflow_Graph
  * Method:    toGraphDef
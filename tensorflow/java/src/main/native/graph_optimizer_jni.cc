@@ -0,0 +1,330 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+#include "tensorflow/java/src/main/native/graph_optimizer_jni.h"
+
+#include <memory>
+#include <string>
+#include <unordered_map>
+#include <unordered_set>
+#include <vector>
+
+#include "tensorflow/c/c_api.h"
+#include "tensorflow/core/framework/attr_value.pb.h"
+#include "tensorflow/core/framework/graph.pb.h"
+#include "tensorflow/core/framework/node_def.pb.h"
+#include "tensorflow/core/framework/op_def.pb.h"
+#include "tensorflow/core/framework/tensor.pb.h"
+#include "tensorflow/core/framework/tensor_shape.pb.h"
+#include "tensorflow/java/src/main/native/exception_jni.h"
+
+namespace {
+
+using tensorflow::GraphDef;
+using tensorflow::NodeDef;
+
+TF_Graph* requireHandle(JNIEnv* env, jlong handle) {
+  static_assert(sizeof(jlong) >= sizeof(TF_Graph*),
+                "Cannot package C object pointers as a Java long");
+  if (handle == 0) {
+    throwException(env, kIllegalStateException,
+                   "close() has been called on the Graph");
+    return nullptr;
+  }
+  return reinterpret_cast<TF_Graph*>(handle);
+}
+
+// Returns the name of the node referred to by an input, like "foo" for
+// "foo:1" or "^foo".
+std::string inputNodeName(const std::string& input) {
+  size_t begin = (!input.empty() && input[0] == '^') ? 1 : 0;
+  size_t colon = input.find(':', begin);
+  return input.substr(
+      begin, colon == std::string::npos ? std::string::npos : colon - begin);
+}
+
+// Copies into `out` the nodes of `def` that are needed to compute `roots`,
+// preserving their order.
+void prune(const GraphDef& def, const std::vector<std::string>& roots,
+           GraphDef* out) {
+  std::unordered_map<std::string, const NodeDef*> nodes;
+  for (const NodeDef& node : def.node()) {
+    nodes[node.name()] = &node;
+  }
+  std::unordered_set<std::string> reachable;
+  std::vector<const NodeDef*> stack;
+  for (const std::string& root : roots) {
+    auto it = nodes.find(root);
+    if (it != nodes.end() && reachable.insert(root).second) {
+      stack.push_back(it->second);
+    }
+  }
+  while (!stack.empty()) {
+    const NodeDef* node = stack.back();
+    stack.pop_back();
+    for (const std::string& input : node->input()) {
+      std::string name = inputNodeName(input);
+      auto it = nodes.find(name);
+      if (it != nodes.end() && reachable.insert(name).second) {
+        stack.push_back(it->second);
+      }
+    }
+  }
+  out->Clear();
+  *out->mutable_versions() = def.versions();
+  *out->mutable_library() = def.library();
+  for (const NodeDef& node : def.node()) {
+    if (reachable.count(node.name()) > 0) {
+      *out->add_node() = node;
+    }
+  }
+}
+
+TF_Graph* import(const GraphDef& def, TF_Status* status) {
+  std::string bytes;
+  def.SerializeToString(&bytes);
+  TF_Buffer buf;
+  buf.data = bytes.data();
+  buf.length = bytes.size();
+  buf.data_deallocator = nullptr;
+  TF_Graph* graph = TF_NewGraph();
+  TF_ImportGraphDefOptions* opts = TF_NewImportGraphDefOptions();
+  TF_GraphImportGraphDef(graph, &buf, opts, status);
+  TF_DeleteImportGraphDefOptions(opts);
+  if (TF_GetCode(status) != TF_OK) {
+    TF_DeleteGraph(graph);
+    return nullptr;
+  }
+  return graph;
+}
+
+// Whether the value computed by an operation can be evaluated once and for all.
+// Operations that are unknown, stateful or involved in control flow are not.
+bool isFoldableType(TF_Graph* graph, const std::string& type,
+                    std::unordered_map<std::string, bool>* cache) {
+  static const std::unordered_set<std::string>* excluded =
+      new std::unordered_set<std::string>(
+          {"Placeholder", "PlaceholderV2", "PlaceholderWithDefault", "Switch",
+           "RefSwitch", "Merge", "RefMerge", "Enter", "RefEnter", "Exit",
+           "RefExit", "NextIteration", "RefNextIteration", "LoopCond",
+           "ControlTrigger", "NoOp", "_Arg", "_Retval"});
+  auto it = cache->find(type);
+  if (it != cache->end()) return it->second;
+
+  bool foldable = false;
+  if (excluded->count(type) == 0) {
+    TF_Buffer* buf = TF_NewBuffer();
+    TF_Status* status = TF_NewStatus();
+    TF_GraphGetOpDef(graph, type.c_str(), buf, status);
+    tensorflow::OpDef op_def;
+    if (TF_GetCode(status) == TF_OK &&
+        op_def.ParseFromArray(buf->data, static_cast<int>(buf->length))) {
+      foldable = !op_def.is_stateful();
+    }
+    TF_DeleteStatus(status);
+    TF_DeleteBuffer(buf);
+  }
+  (*cache)[type] = foldable;
+  return foldable;
+}
+
+// Replaces the definition of `node` by a constant holding `value`.
+void replaceWithConstant(NodeDef* node, TF_Tensor* value) {
+  std::string name = node->name();
+  std::string device = node->device();
+  node->Clear();
+  node->set_name(name);
+  node->set_op("Const");
+  node->set_device(device);
+  auto dtype = static_cast<tensorflow::DataType>(TF_TensorType(value));
+  auto& attrs = *node->mutable_attr();
+  attrs["dtype"].set_type(dtype);
+  tensorflow::TensorProto* tensor = attrs["value"].mutable_tensor();
+  tensor->set_dtype(dtype);
+  for (int i = 0; i < TF_NumDims(value); ++i) {
+    tensor->mutable_tensor_shape()->add_dim()->set_size(TF_Dim(value, i));
+  }
+  tensor->set_tensor_content(static_cast<const char*>(TF_TensorData(value)),
+                             TF_TensorByteSize(value));
+}
+
+// Evaluates the foldable subgraphs of `def` and replaces them by constants.
+// Returns the number of nodes that have been replaced.
+int foldConstants(const std::unordered_set<std::string>& roots,
+                  jlong max_constant_bytes, GraphDef* def, TF_Status* status) {
+  TF_Graph* graph = import(*def, status);
+  if (graph == nullptr) return 0;
+
+  // Visit the nodes in topological order, so that each node is visited after
+  // its inputs. Nodes that are part of a cycle are never visited.
+  const int num_nodes = def->node_size();
+  std::unordered_map<std::string, int> indices;
+  for (int i = 0; i < num_nodes; ++i) {
+    indices[def->node(i).name()] = i;
+  }
+  std::vector<int> num_pending_inputs(num_nodes, 0);
+  std::vector<std::vector<int>> consumers(num_nodes);
+  for (int i = 0; i < num_nodes; ++i) {
+    for (const std::string& input : def->node(i).input()) {
+      consumers[indices[inputNodeName(input)]].push_back(i);
+      ++num_pending_inputs[i];
+    }
+  }
+  std::vector<int> ready;
+  for (int i = 0; i < num_nodes; ++i) {
+    if (num_pending_inputs[i] == 0) ready.push_back(i);
+  }
+  std::unordered_map<std::string, bool> foldable_types;
+  std::vector<bool> foldable(num_nodes, false);
+  std::vector<bool> replaceable(num_nodes, false);
+  std::vector<TF_Operation*> ops(num_nodes, nullptr);
+  while (!ready.empty()) {
+    int i = ready.back();
+    ready.pop_back();
+    const NodeDef& node = def->node(i);
+    bool is_foldable = isFoldableType(graph, node.op(), &foldable_types);
+    for (const std::string& input : node.input()) {
+      is_foldable = is_foldable && foldable[indices[inputNodeName(input)]];
+    }
+    foldable[i] = is_foldable;
+    if (is_foldable && node.op() != "Const") {
+      ops[i] = TF_GraphOperationByName(graph, node.name().c_str());
+      // Only single outputs of a fixed-size type can be serialized as raw
+      // tensor content.
+      replaceable[i] = TF_OperationNumOutputs(ops[i]) == 1 &&
+                       TF_DataTypeSize(TF_OperationOutputType(
+                           TF_Output{ops[i], 0})) > 0;
+    }
+    for (int consumer : consumers[i]) {
+      if (--num_pending_inputs[consumer] == 0) ready.push_back(consumer);
+    }
+  }
+
+  // Only evaluate the nodes at the frontier of the foldable subgraphs, the
+  // ones upstream will be pruned.
+  std::vector<int> frontier;
+  std::vector<TF_Output> outputs;
+  for (int i = 0; i < num_nodes; ++i) {
+    if (!replaceable[i]) continue;
+    bool at_frontier = roots.count(def->node(i).name()) > 0;
+    for (int consumer : consumers[i]) {
+      at_frontier = at_frontier || !replaceable[consumer];
+    }
+    if (at_frontier) {
+      frontier.push_back(i);
+      outputs.push_back(TF_Output{ops[i], 0});
+    }
+  }
+  int num_folded = 0;
+  if (!frontier.empty()) {
+    TF_SessionOptions* opts = TF_NewSessionOptions();
+    TF_Session* session = TF_NewSession(graph, opts, status);
+    TF_DeleteSessionOptions(opts);
+    if (TF_GetCode(status) == TF_OK) {
+      std::vector<TF_Tensor*> values(outputs.size(), nullptr);
+      TF_SessionRun(session, nullptr, nullptr, nullptr, 0, outputs.data(),
+                    values.data(), static_cast<int>(outputs.size()), nullptr,
+                    0, nullptr, status);
+      if (TF_GetCode(status) == TF_OK) {
+        for (size_t j = 0; j < frontier.size(); ++j) {
+          if (static_cast<jlong>(TF_TensorByteSize(values[j])) <=
+              max_constant_bytes) {
+            replaceWithConstant(def->mutable_node(frontier[j]), values[j]);
+            ++num_folded;
+          }
+          TF_DeleteTensor(values[j]);
+        }
+      }
+      TF_Status* close_status = TF_NewStatus();
+      TF_CloseSession(session, close_status);
+      TF_DeleteSession(session, close_status);
+      TF_DeleteStatus(close_status);
+    }
+  }
+  TF_DeleteGraph(graph);
+  return num_folded;
+}
+
+}  // namespace
+
+JNIEXPORT jlong JNICALL Java_org_tensorflow_GraphOptimizer_optimize(
+    JNIEnv* env, jclass clazz, jlong graph_handle, jobjectArray fetch_names,
+    jboolean fold_constants, jlong max_constant_bytes, jlongArray stats) {
+  TF_Graph* graph = requireHandle(env, graph_handle);
+  if (graph == nullptr) return 0;
+
+  std::vector<std::string> roots;
+  const jsize num_fetches = env->GetArrayLength(fetch_names);
+  for (jsize i = 0; i < num_fetches; ++i) {
+    jstring jname =
+        static_cast<jstring>(env->GetObjectArrayElement(fetch_names, i));
+    const char* name = env->GetStringUTFChars(jname, nullptr);
+    roots.push_back(name);
+    env->ReleaseStringUTFChars(jname, name);
+    env->DeleteLocalRef(jname);
+    if (TF_GraphOperationByName(graph, roots.back().c_str()) == nullptr) {
+      throwException(env, kIllegalArgumentException,
+                     "No Operation named [%s] in the Graph",
+                     roots.back().c_str());
+      return 0;
+    }
+  }
+
+  TF_Status* status = TF_NewStatus();
+  TF_Buffer* buf = TF_NewBuffer();
+  TF_GraphToGraphDef(graph, buf, status);
+  GraphDef def;
+  if (TF_GetCode(status) == TF_OK &&
+      !def.ParseFromArray(buf->data, static_cast<int>(buf->length))) {
+    TF_SetStatus(status, TF_INTERNAL, "Failed to parse the GraphDef");
+  }
+  const jlong original_bytes = static_cast<jlong>(buf->length);
+  TF_DeleteBuffer(buf);
+  if (!throwExceptionIfNotOK(env, status)) {
+    TF_DeleteStatus(status);
+    return 0;
+  }
+
+  GraphDef optimized;
+  prune(def, roots, &optimized);
+  int num_folded = 0;
+  if (fold_constants) {
+    std::unordered_set<std::string> root_set(roots.begin(), roots.end());
+    num_folded =
+        foldConstants(root_set, max_constant_bytes, &optimized, status);
+    if (!throwExceptionIfNotOK(env, status)) {
+      TF_DeleteStatus(status);
+      return 0;
+    }
+    if (num_folded > 0) {
+      GraphDef folded;
+      folded.Swap(&optimized);
+      prune(folded, roots, &optimized);
+    }
+  }
+  TF_Graph* result = import(optimized, status);
+  bool ok = throwExceptionIfNotOK(env, status);
+  TF_DeleteStatus(status);
+  if (!ok) return 0;
+
+  jlong s[5];
+  s[0] = def.node_size();
+  s[1] = optimized.node_size();
+  s[2] = num_folded;
+  s[3] = original_bytes;
+  s[4] = static_cast<jlong>(optimized.ByteSizeLong());
+  env->SetLongArrayRegion(stats, 0, 5, s);
+  return reinterpret_cast<jlong>(result);
+}
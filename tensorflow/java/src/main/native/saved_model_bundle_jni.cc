@@ -14,9 +14,21 @@ limitations under the License.
 ==============================================================================*/
 
 #include <limits>
+#include <map>
 #include <memory>
+#include <string>
+#include <vector>
 
 #include "tensorflow/c/c_api.h"
+#include "tensorflow/c/c_api_internal.h"
+#include "tensorflow/core/framework/tensor.h"
+#include "tensorflow/core/framework/tensor.pb.h"
+#include "tensorflow/core/lib/core/errors.h"
+#include "tensorflow/core/lib/io/path.h"
+#include "tensorflow/core/lib/io/record_reader.h"
+#include "tensorflow/core/platform/env.h"
+#include "tensorflow/core/platform/protobuf.h"
+#include "tensorflow/core/protobuf/meta_graph.pb.h"
 #include "tensorflow/java/src/main/native/exception_jni.h"
 #include "tensorflow/java/src/main/native/saved_model_bundle_jni.h"
 
@@ -118,3 +130,257 @@ JNIEXPORT jobject JNICALL Java_org_tensorflow_SavedModelBundle_load(
 
   return bundle;
 }
+
+namespace {
+
+jobjectArray toStringArray(JNIEnv* env, const std::vector<std::string>& v) {
+  jclass string_class = env->FindClass("java/lang/String");
+  jobjectArray ret =
+      env->NewObjectArray(static_cast<jsize>(v.size()), string_class, nullptr);
+  if (ret == nullptr) return nullptr;
+  for (size_t i = 0; i < v.size(); ++i) {
+    jstring s = env->NewStringUTF(v[i].c_str());
+    if (s == nullptr) return nullptr;
+    env->SetObjectArrayElement(ret, static_cast<jsize>(i), s);
+    env->DeleteLocalRef(s);
+  }
+  return ret;
+}
+
+// Appends the names of the tensors in a sorted copy of the map, so that their
+// order does not depend on the implementation of protobuf maps.
+void appendTensorNames(
+    const google::protobuf::Map<std::string, tensorflow::TensorInfo>& infos,
+    std::vector<std::string>* names, std::vector<std::string>* tensor_names) {
+  std::map<std::string, std::string> sorted;
+  for (const auto& info : infos) {
+    // Sparse and composite tensors are not supported, they have no name
+    if (info.second.encoding_case() == tensorflow::TensorInfo::kName) {
+      sorted[info.first] = info.second.name();
+    }
+  }
+  for (const auto& entry : sorted) {
+    names->push_back(entry.first);
+    tensor_names->push_back(entry.second);
+  }
+}
+
+// Reads the next length-delimited field of a serialized protocol buffer,
+// skipping the fields of other wire types. Returns false at the end of the
+// message, or if it is malformed.
+bool nextField(tensorflow::protobuf::io::CodedInputStream* in, int* number,
+               std::string* value) {
+  using tensorflow::protobuf::internal::WireFormatLite;
+  while (true) {
+    const tensorflow::protobuf::uint32 tag = in->ReadTag();
+    if (tag == 0) return false;
+    if (WireFormatLite::GetTagWireType(tag) ==
+        WireFormatLite::WIRETYPE_LENGTH_DELIMITED) {
+      tensorflow::protobuf::uint32 length;
+      if (!in->ReadVarint32(&length) || !in->ReadString(value, length)) {
+        return false;
+      }
+      *number = WireFormatLite::GetTagFieldNumber(tag);
+      return true;
+    }
+    if (!WireFormatLite::SkipField(in, tag)) return false;
+  }
+}
+
+// Returns the value of a length-delimited field of a serialized protocol
+// buffer, or an empty string if it is not set.
+bool getField(const std::string& message, int number, std::string* value) {
+  tensorflow::protobuf::io::CodedInputStream in(
+      reinterpret_cast<const tensorflow::uint8*>(message.data()),
+      message.size());
+  value->clear();
+  int n;
+  std::string field;
+  while (nextField(&in, &n, &field)) {
+    if (n == number) value->swap(field);
+  }
+  return in.ConsumedEntireMessage();
+}
+
+// Parses a PredictionLog of TensorFlow Serving, which is not part of this
+// library, by the numbers of the fields it uses:
+//   PredictionLog.predict_log = 6, PredictLog.request = 1,
+//   PredictRequest.model_spec = 1, ModelSpec.signature_name = 3,
+//   PredictRequest.inputs = 2, a map from input names to TensorProtos.
+tensorflow::Status parsePredictionLog(
+    const std::string& record, std::string* signature_key,
+    std::vector<std::string>* names,
+    std::vector<tensorflow::Tensor>* tensors) {
+  std::string predict_log;
+  std::string request;
+  std::string model_spec;
+  if (!getField(record, 6, &predict_log)) {
+    return tensorflow::errors::InvalidArgument("Invalid PredictionLog");
+  }
+  if (predict_log.empty()) {
+    return tensorflow::errors::Unimplemented(
+        "Only PredictionLogs of predict requests are supported for warm-up");
+  }
+  if (!getField(predict_log, 1, &request) ||
+      !getField(request, 1, &model_spec) ||
+      !getField(model_spec, 3, signature_key)) {
+    return tensorflow::errors::InvalidArgument("Invalid PredictionLog");
+  }
+  if (signature_key->empty()) *signature_key = "serving_default";
+
+  tensorflow::protobuf::io::CodedInputStream in(
+      reinterpret_cast<const tensorflow::uint8*>(request.data()),
+      request.size());
+  int number;
+  std::string entry;
+  while (nextField(&in, &number, &entry)) {
+    if (number != 2) continue;
+    std::string name;
+    std::string value;
+    tensorflow::TensorProto proto;
+    tensorflow::Tensor tensor;
+    if (!getField(entry, 1, &name) || !getField(entry, 2, &value) ||
+        !proto.ParseFromString(value) || !tensor.FromProto(proto)) {
+      return tensorflow::errors::InvalidArgument(
+          "Invalid input in PredictionLog");
+    }
+    names->push_back(name);
+    tensors->push_back(tensor);
+  }
+  if (!in.ConsumedEntireMessage()) {
+    return tensorflow::errors::InvalidArgument("Invalid PredictionLog");
+  }
+  return tensorflow::Status::OK();
+}
+
+}  // namespace
+
+JNIEXPORT jobjectArray JNICALL Java_org_tensorflow_SavedModelBundle_signatures(
+    JNIEnv* env, jclass clazz, jbyteArray meta_graph_def) {
+  tensorflow::MetaGraphDef def;
+  jbyte* bytes = env->GetByteArrayElements(meta_graph_def, nullptr);
+  const bool parsed =
+      def.ParseFromArray(bytes, env->GetArrayLength(meta_graph_def));
+  env->ReleaseByteArrayElements(meta_graph_def, bytes, JNI_ABORT);
+  if (!parsed) {
+    throwException(env, kIllegalArgumentException,
+                   "Invalid serialized MetaGraphDef");
+    return nullptr;
+  }
+  std::map<std::string, const tensorflow::SignatureDef*> signature_defs;
+  for (const auto& entry : def.signature_def()) {
+    signature_defs[entry.first] = &entry.second;
+  }
+  const jsize nsigs = static_cast<jsize>(signature_defs.size());
+  std::vector<std::string> keys;
+  std::vector<std::string> method_names;
+  std::vector<jint> num_inputs;
+  std::vector<jint> num_outputs;
+  std::vector<std::string> names;
+  std::vector<std::string> tensor_names;
+  for (const auto& entry : signature_defs) {
+    keys.push_back(entry.first);
+    method_names.push_back(entry.second->method_name());
+    size_t n = names.size();
+    appendTensorNames(entry.second->inputs(), &names, &tensor_names);
+    num_inputs.push_back(static_cast<jint>(names.size() - n));
+    n = names.size();
+    appendTensorNames(entry.second->outputs(), &names, &tensor_names);
+    num_outputs.push_back(static_cast<jint>(names.size() - n));
+  }
+
+  jobjectArray jkeys = toStringArray(env, keys);
+  jobjectArray jmethod_names = toStringArray(env, method_names);
+  jobjectArray jnames = toStringArray(env, names);
+  jobjectArray jtensor_names = toStringArray(env, tensor_names);
+  jintArray jnum_inputs = env->NewIntArray(nsigs);
+  jintArray jnum_outputs = env->NewIntArray(nsigs);
+  if (env->ExceptionCheck()) return nullptr;
+  env->SetIntArrayRegion(jnum_inputs, 0, nsigs, num_inputs.data());
+  env->SetIntArrayRegion(jnum_outputs, 0, nsigs, num_outputs.data());
+
+  jobjectArray ret =
+      env->NewObjectArray(6, env->FindClass("java/lang/Object"), nullptr);
+  if (ret == nullptr) return nullptr;
+  env->SetObjectArrayElement(ret, 0, jkeys);
+  env->SetObjectArrayElement(ret, 1, jmethod_names);
+  env->SetObjectArrayElement(ret, 2, jnum_inputs);
+  env->SetObjectArrayElement(ret, 3, jnum_outputs);
+  env->SetObjectArrayElement(ret, 4, jnames);
+  env->SetObjectArrayElement(ret, 5, jtensor_names);
+  return ret;
+}
+
+JNIEXPORT jobjectArray JNICALL
+Java_org_tensorflow_SavedModelBundle_warmupRecords(JNIEnv* env, jclass clazz,
+                                                   jstring export_dir) {
+  const char* cexport_dir = env->GetStringUTFChars(export_dir, nullptr);
+  const std::string path = tensorflow::io::JoinPath(
+      cexport_dir, "assets.extra", "tf_serving_warmup_requests");
+  env->ReleaseStringUTFChars(export_dir, cexport_dir);
+
+  tensorflow::Env* tf_env = tensorflow::Env::Default();
+  if (!tf_env->FileExists(path).ok()) return nullptr;
+  std::vector<std::string> signature_keys;
+  std::vector<jint> num_inputs;
+  std::vector<std::string> names;
+  std::vector<tensorflow::Tensor> tensors;
+  std::unique_ptr<tensorflow::RandomAccessFile> file;
+  tensorflow::Status s = tf_env->NewRandomAccessFile(path, &file);
+  if (s.ok()) {
+    tensorflow::io::SequentialRecordReader reader(file.get());
+    std::string record;
+    while ((s = reader.ReadRecord(&record)).ok()) {
+      std::string signature_key;
+      const size_t n = names.size();
+      s = parsePredictionLog(record, &signature_key, &names, &tensors);
+      if (!s.ok()) break;
+      signature_keys.push_back(signature_key);
+      num_inputs.push_back(static_cast<jint>(names.size() - n));
+    }
+    if (tensorflow::errors::IsOutOfRange(s)) s = tensorflow::Status::OK();
+  }
+  TF_Status* status = TF_NewStatus();
+  if (!s.ok()) {
+    TF_SetStatus(status, static_cast<TF_Code>(s.code()),
+                 s.error_message().c_str());
+    throwExceptionIfNotOK(env, status);
+    TF_DeleteStatus(status);
+    return nullptr;
+  }
+
+  const jsize nrecords = static_cast<jsize>(signature_keys.size());
+  const jsize ntensors = static_cast<jsize>(tensors.size());
+  std::unique_ptr<jlong[]> handles(new jlong[ntensors]);
+  for (jsize i = 0; i < ntensors; ++i) {
+    TF_Tensor* t = tensorflow::TF_TensorFromTensor(tensors[i], status);
+    if (!throwExceptionIfNotOK(env, status)) {
+      for (jsize j = 0; j < i; ++j) {
+        TF_DeleteTensor(reinterpret_cast<TF_Tensor*>(handles[j]));
+      }
+      TF_DeleteStatus(status);
+      return nullptr;
+    }
+    handles[i] = reinterpret_cast<jlong>(t);
+  }
+  TF_DeleteStatus(status);
+  jobjectArray jsignature_keys = toStringArray(env, signature_keys);
+  jobjectArray jnames = toStringArray(env, names);
+  jintArray jnum_inputs = env->NewIntArray(nrecords);
+  jlongArray jhandles = env->NewLongArray(ntensors);
+  jobjectArray ret =
+      env->NewObjectArray(4, env->FindClass("java/lang/Object"), nullptr);
+  if (env->ExceptionCheck()) {
+    for (jsize i = 0; i < ntensors; ++i) {
+      TF_DeleteTensor(reinterpret_cast<TF_Tensor*>(handles[i]));
+    }
+    return nullptr;
+  }
+  env->SetIntArrayRegion(jnum_inputs, 0, nrecords, num_inputs.data());
+  env->SetLongArrayRegion(jhandles, 0, ntensors, handles.get());
+  env->SetObjectArrayElement(ret, 0, jsignature_keys);
+  env->SetObjectArrayElement(ret, 1, jnum_inputs);
+  env->SetObjectArrayElement(ret, 2, jnames);
+  env->SetObjectArrayElement(ret, 3, jhandles);
+  return ret;
+}
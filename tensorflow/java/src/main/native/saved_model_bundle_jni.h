@@ -31,6 +31,22 @@ extern "C" {
 JNIEXPORT jobject JNICALL Java_org_tensorflow_SavedModelBundle_load(
     JNIEnv *, jclass, jstring, jobjectArray, jbyteArray, jbyteArray);
 
+/*
+ * Class:     org_tensorflow_SavedModelBundle
+ * Method:    signatures
+ * Signature: ([B)[Ljava/lang/Object;
+ */
+JNIEXPORT jobjectArray JNICALL
+Java_org_tensorflow_SavedModelBundle_signatures(JNIEnv *, jclass, jbyteArray);
+
+/*
+ * Class:     org_tensorflow_SavedModelBundle
+ * Method:    warmupRecords
+ * Signature: (Ljava/lang/String;)[Ljava/lang/Object;
+ */
+JNIEXPORT jobjectArray JNICALL
+Java_org_tensorflow_SavedModelBundle_warmupRecords(JNIEnv *, jclass, jstring);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
@@ -94,6 +94,15 @@ JNIEXPORT void JNICALL Java_org_tensorflow_Server_join(JNIEnv* env,
   TF_DeleteStatus(status);
 }
 
+JNIEXPORT jstring JNICALL Java_org_tensorflow_Server_target(JNIEnv* env,
+                                                            jclass clazz,
+                                                            jlong handle) {
+  TF_Server* server = requireHandle(env, handle);
+  if (server == nullptr) return nullptr;
+
+  return env->NewStringUTF(TF_ServerTarget(server));
+}
+
 JNIEXPORT void JNICALL Java_org_tensorflow_Server_delete(JNIEnv* env,
                                                          jclass clazz,
                                                          jlong handle) {
@@ -52,6 +52,14 @@ JNIEXPORT void JNICALL Java_org_tensorflow_Server_stop(JNIEnv *, jclass, jlong);
  */
 JNIEXPORT void JNICALL Java_org_tensorflow_Server_join(JNIEnv *, jclass, jlong);
 
+/*
+ * Class:     org_tensorflow_Server
+ * Method:    target
+ * Signature: (J)Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_org_tensorflow_Server_target(JNIEnv *, jclass,
+                                                            jlong);
+
 /*
  * Class:     org_tensorflow_Session
  * Method:    delete
@@ -101,6 +101,7 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_Session_allocate2(
   const char* ctarget = nullptr;
   if (target != nullptr) {
     ctarget = env->GetStringUTFChars(target, nullptr);
+    TF_SetTarget(opts, ctarget);
   }
   TF_Session* session = TF_NewSession(graph, opts, status);
   if (config != nullptr) {
@@ -201,3 +202,95 @@ JNIEXPORT jbyteArray JNICALL Java_org_tensorflow_Session_run(
   TF_DeleteStatus(status);
   return ret;
 }
+
+JNIEXPORT jlong JNICALL Java_org_tensorflow_Session_prunSetup(
+    JNIEnv* env, jclass clazz, jlong handle, jlongArray input_op_handles,
+    jintArray input_op_indices, jlongArray output_op_handles,
+    jintArray output_op_indices, jlongArray target_op_handles) {
+  TF_Session* session = requireHandle(env, handle);
+  if (session == nullptr) return 0;
+
+  const jint ninputs = env->GetArrayLength(input_op_handles);
+  const jint noutputs = env->GetArrayLength(output_op_handles);
+  const jint ntargets = env->GetArrayLength(target_op_handles);
+
+  std::unique_ptr<TF_Output[]> inputs(new TF_Output[ninputs]);
+  std::unique_ptr<TF_Output[]> outputs(new TF_Output[noutputs]);
+  std::unique_ptr<TF_Operation* []> targets(new TF_Operation*[ntargets]);
+
+  resolveOutputs(env, "input", input_op_handles, input_op_indices, inputs.get(),
+                 ninputs);
+  resolveOutputs(env, "output", output_op_handles, output_op_indices,
+                 outputs.get(), noutputs);
+  resolveHandles(env, "target Operations", target_op_handles, targets.get(),
+                 ntargets);
+  if (env->ExceptionCheck()) return 0;
+
+  TF_Status* status = TF_NewStatus();
+  const char* prun_handle = nullptr;
+  TF_SessionPRunSetup(session, inputs.get(), static_cast<int>(ninputs),
+                      outputs.get(), static_cast<int>(noutputs),
+                      targets.get(), static_cast<int>(ntargets), &prun_handle,
+                      status);
+  bool ok = throwExceptionIfNotOK(env, status);
+  TF_DeleteStatus(status);
+  // The handle is a string owned by the caller, freed by deletePRunHandle.
+  return ok ? reinterpret_cast<jlong>(prun_handle) : 0;
+}
+
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_prun(
+    JNIEnv* env, jclass clazz, jlong handle, jlong prun_handle,
+    jlongArray input_tensor_handles, jlongArray input_op_handles,
+    jintArray input_op_indices, jlongArray output_op_handles,
+    jintArray output_op_indices, jlongArray target_op_handles,
+    jlongArray output_tensor_handles) {
+  TF_Session* session = requireHandle(env, handle);
+  if (session == nullptr) return;
+  if (prun_handle == 0) {
+    throwException(env, kNullPointerException,
+                   "close() has been called on the PartialRun");
+    return;
+  }
+
+  const jint ninputs = env->GetArrayLength(input_tensor_handles);
+  const jint noutputs = env->GetArrayLength(output_tensor_handles);
+  const jint ntargets = env->GetArrayLength(target_op_handles);
+
+  std::unique_ptr<TF_Output[]> inputs(new TF_Output[ninputs]);
+  std::unique_ptr<TF_Tensor* []> input_values(new TF_Tensor*[ninputs]);
+  std::unique_ptr<TF_Output[]> outputs(new TF_Output[noutputs]);
+  std::unique_ptr<TF_Tensor* []> output_values(new TF_Tensor*[noutputs]);
+  std::unique_ptr<TF_Operation* []> targets(new TF_Operation*[ntargets]);
+
+  resolveHandles(env, "input Tensors", input_tensor_handles, input_values.get(),
+                 ninputs);
+  resolveOutputs(env, "input", input_op_handles, input_op_indices, inputs.get(),
+                 ninputs);
+  resolveOutputs(env, "output", output_op_handles, output_op_indices,
+                 outputs.get(), noutputs);
+  resolveHandles(env, "target Operations", target_op_handles, targets.get(),
+                 ntargets);
+  if (env->ExceptionCheck()) return;
+
+  TF_Status* status = TF_NewStatus();
+  TF_SessionPRun(session, reinterpret_cast<const char*>(prun_handle),
+                 inputs.get(), input_values.get(), static_cast<int>(ninputs),
+                 outputs.get(), output_values.get(), static_cast<int>(noutputs),
+                 targets.get(), static_cast<int>(ntargets), status);
+  if (!throwExceptionIfNotOK(env, status)) {
+    TF_DeleteStatus(status);
+    return;
+  }
+  TF_DeleteStatus(status);
+  jlong* t = env->GetLongArrayElements(output_tensor_handles, nullptr);
+  for (int i = 0; i < noutputs; ++i) {
+    t[i] = reinterpret_cast<jlong>(output_values[i]);
+  }
+  env->ReleaseLongArrayElements(output_tensor_handles, t, 0);
+}
+
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_deletePRunHandle(
+    JNIEnv* env, jclass clazz, jlong prun_handle) {
+  if (prun_handle == 0) return;
+  TF_DeletePRunHandle(reinterpret_cast<const char*>(prun_handle));
+}
@@ -56,6 +56,33 @@ JNIEXPORT jbyteArray JNICALL Java_org_tensorflow_Session_run(
     JNIEnv *, jclass, jlong, jbyteArray, jlongArray, jlongArray, jintArray,
     jlongArray, jintArray, jlongArray, jboolean, jlongArray);
 
+/*
+ * Class:     org_tensorflow_Session
+ * Method:    prunSetup
+ * Signature: (J[J[I[J[I[J)J
+ */
+JNIEXPORT jlong JNICALL Java_org_tensorflow_Session_prunSetup(
+    JNIEnv *, jclass, jlong, jlongArray, jintArray, jlongArray, jintArray,
+    jlongArray);
+
+/*
+ * Class:     org_tensorflow_Session
+ * Method:    prun
+ * Signature: (JJ[J[J[I[J[I[J[J)V
+ */
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_prun(
+    JNIEnv *, jclass, jlong, jlong, jlongArray, jlongArray, jintArray,
+    jlongArray, jintArray, jlongArray, jlongArray);
+
+/*
+ * Class:     org_tensorflow_Session
+ * Method:    deletePRunHandle
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_tensorflow_Session_deletePRunHandle(JNIEnv *,
+                                                                    jclass,
+                                                                    jlong);
+
 #ifdef __cplusplus
 }  // extern "C"
 #endif  // __cplusplus
@@ -22,6 +22,7 @@ limitations under the License.
 #include <memory>
 
 #include "tensorflow/c/c_api.h"
+#include "tensorflow/c/tf_tensor_internal.h"
 #include "tensorflow/java/src/main/native/exception_jni.h"
 
 namespace {
@@ -362,6 +363,98 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_allocate(JNIEnv* env,
   return reinterpret_cast<jlong>(t);
 }
 
+namespace {
+// Keeps the memory of a wrapped java.nio.ByteBuffer reachable for as long as
+// the TF_Tensor created from it is used by TensorFlow.
+struct WrappedBuffer {
+  JavaVM* jvm;
+  jobject buffer;      // global reference to the java.nio.ByteBuffer
+  jobject on_release;  // global reference to a java.lang.Runnable, or nullptr
+};
+
+void releaseWrappedBuffer(void* data, size_t len, void* arg) {
+  WrappedBuffer* wrapped = static_cast<WrappedBuffer*>(arg);
+  // The last reference to the tensor might be dropped by a thread owned by the
+  // TensorFlow runtime, which is not necessarily attached to the JVM.
+  JNIEnv* env = nullptr;
+  bool attached = false;
+  if (wrapped->jvm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) ==
+      JNI_EDETACHED) {
+#ifdef __ANDROID__
+    JNIEnv** penv = &env;
+#else
+    void** penv = reinterpret_cast<void**>(&env);
+#endif
+    if (wrapped->jvm->AttachCurrentThreadAsDaemon(penv, nullptr) != JNI_OK) {
+      // Cannot notify the JVM: leak the references rather than crash.
+      delete wrapped;
+      return;
+    }
+    attached = true;
+  }
+  if (wrapped->on_release != nullptr) {
+    jclass runnable = env->GetObjectClass(wrapped->on_release);
+    jmethodID run = env->GetMethodID(runnable, "run", "()V");
+    env->CallVoidMethod(wrapped->on_release, run);
+    if (env->ExceptionCheck()) {
+      // Nobody could handle this exception, report it and move on.
+      env->ExceptionDescribe();
+      env->ExceptionClear();
+    }
+    env->DeleteLocalRef(runnable);
+    env->DeleteGlobalRef(wrapped->on_release);
+  }
+  env->DeleteGlobalRef(wrapped->buffer);
+  if (attached) {
+    wrapped->jvm->DetachCurrentThread();
+  }
+  delete wrapped;
+}
+}  // namespace
+
+JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_wrap(
+    JNIEnv* env, jclass clazz, jint dtype, jlongArray shape, jobject buffer,
+    jint offset, jlong sizeInBytes, jobject onRelease) {
+  char* data = static_cast<char*>(env->GetDirectBufferAddress(buffer));
+  if (data == nullptr) {
+    throwException(env, kIllegalArgumentException,
+                   "unable to access the memory of a direct buffer");
+    return 0;
+  }
+  WrappedBuffer* wrapped = new WrappedBuffer;
+  if (env->GetJavaVM(&wrapped->jvm) != JNI_OK) {
+    delete wrapped;
+    throwException(env, kIllegalStateException, "unable to locate the JVM");
+    return 0;
+  }
+  wrapped->buffer = env->NewGlobalRef(buffer);
+  wrapped->on_release =
+      onRelease != nullptr ? env->NewGlobalRef(onRelease) : nullptr;
+
+  int num_dims = static_cast<int>(env->GetArrayLength(shape));
+  // See Java_org_tensorflow_Tensor_allocate for why dimensions are copied.
+  std::unique_ptr<int64_t[]> dims(new int64_t[num_dims]);
+  if (num_dims > 0) {
+    jlong* jdims = env->GetLongArrayElements(shape, nullptr);
+    for (int i = 0; i < num_dims; ++i) {
+      dims[i] = static_cast<int64_t>(jdims[i]);
+    }
+    env->ReleaseLongArrayElements(shape, jdims, JNI_ABORT);
+  }
+  // If data is not properly aligned, TF_NewTensor copies it and invokes
+  // releaseWrappedBuffer before returning.
+  TF_Tensor* t = TF_NewTensor(static_cast<TF_DataType>(dtype), dims.get(),
+                              num_dims, data + offset,
+                              static_cast<size_t>(sizeInBytes),
+                              releaseWrappedBuffer, wrapped);
+  if (t == nullptr) {
+    throwException(env, kIllegalArgumentException,
+                   "unable to create a Tensor from the provided buffer");
+    return 0;
+  }
+  return reinterpret_cast<jlong>(t);
+}
+
 JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_allocateScalarBytes(
     JNIEnv* env, jclass clazz, jbyteArray value) {
   // TF_STRING tensors are encoded with a table of 8-byte offsets followed by
@@ -480,6 +573,18 @@ JNIEXPORT void JNICALL Java_org_tensorflow_Tensor_delete(JNIEnv* env,
   TF_DeleteTensor(reinterpret_cast<TF_Tensor*>(handle));
 }
 
+JNIEXPORT jboolean JNICALL Java_org_tensorflow_Tensor_isUniquelyOwned(
+    JNIEnv* env, jclass clazz, jlong handle) {
+  TF_Tensor* t = requireHandle(env, handle);
+  if (t == nullptr) return JNI_FALSE;
+  // Unlike TF_TensorMaybeMove, also accept buffers allocated by the C API
+  // itself (which do not "own" their memory in the TensorBuffer sense), since
+  // the Java runtime is the only one writing into them.
+  tensorflow::TensorBuffer* buf = t->buffer;
+  return buf != nullptr && buf->RefCountIsOne() &&
+         buf->root_buffer()->RefCountIsOne();
+}
+
 JNIEXPORT jobject JNICALL Java_org_tensorflow_Tensor_buffer(JNIEnv* env,
                                                             jclass clazz,
                                                             jlong handle) {
@@ -31,6 +31,15 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_allocate(JNIEnv *, jclass,
                                                             jint, jlongArray,
                                                             jlong);
 
+/*
+ * Class:     org_tensorflow_Tensor
+ * Method:    wrap
+ * Signature: (I[JLjava/nio/ByteBuffer;IJLjava/lang/Runnable;)J
+ */
+JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_wrap(JNIEnv *, jclass, jint,
+                                                        jlongArray, jobject,
+                                                        jint, jlong, jobject);
+
 /*
  * Class:     org_tensorflow_Tensor
  * Method:    allocateScalarBytes
@@ -55,6 +64,15 @@ JNIEXPORT jlong JNICALL Java_org_tensorflow_Tensor_allocateNonScalarBytes(
 JNIEXPORT void JNICALL Java_org_tensorflow_Tensor_delete(JNIEnv *, jclass,
                                                          jlong);
 
+/*
+ * Class:     org_tensorflow_Tensor
+ * Method:    isUniquelyOwned
+ * Signature: (J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_tensorflow_Tensor_isUniquelyOwned(JNIEnv *,
+                                                                     jclass,
+                                                                     jlong);
+
 /*
  * Class:     org_tensorflow_Tensor
  * Method:    buffer
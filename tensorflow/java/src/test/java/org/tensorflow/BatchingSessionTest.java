@@ -0,0 +1,254 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.BatchingSession}. */
+@RunWith(JUnit4.class)
+public class BatchingSessionTest {
+  private static final float EPSILON_F = 1e-7f;
+
+  @Test
+  public void mergeRequestsInOneBatch() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.square(g, "y", TestUtil.placeholder(g, "x", Float.class));
+      try (BatchingSession batching =
+          BatchingSession.options()
+              .maxBatchSize(4)
+              .maxQueueDelay(1, TimeUnit.MINUTES)
+              .build(s.runner().feed("x", null).fetch("y").compile())) {
+        List<Tensor<Float>> inputs = new ArrayList<>();
+        List<Future<List<Tensor<?>>>> results = new ArrayList<>();
+        try {
+          // 1 + 2 + 1 examples complete the batch without waiting for the queue delay
+          inputs.add(Tensors.create(new float[][] {{1f, 2f}}));
+          inputs.add(Tensors.create(new float[][] {{3f, 4f}, {5f, 6f}}));
+          inputs.add(Tensors.create(new float[][] {{7f, 8f}}));
+          for (Tensor<Float> x : inputs) {
+            results.add(batching.submit(x));
+          }
+          float[][][] expected = {{{1f, 4f}}, {{9f, 16f}, {25f, 36f}}, {{49f, 64f}}};
+          for (int i = 0; i < results.size(); ++i) {
+            try (Tensor<?> y = results.get(i).get(1, TimeUnit.MINUTES).get(0)) {
+              float[][] values = y.copyTo(new float[expected[i].length][2]);
+              for (int j = 0; j < expected[i].length; ++j) {
+                assertArrayEquals(expected[i][j], values[j], EPSILON_F);
+              }
+            }
+          }
+          assertEquals(1, batching.batchCount());
+        } finally {
+          for (Tensor<Float> x : inputs) {
+            x.close();
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void padWithZeros() throws Exception {
+    assertArrayEquals(
+        new float[] {7f, 8f, 9f},
+        runPaddedBatch(BatchingSession.PaddingPolicy.PAD_WITH_ZEROS),
+        EPSILON_F);
+  }
+
+  @Test
+  public void padByRepeatingLastRow() throws Exception {
+    assertArrayEquals(
+        new float[] {10f, 11f, 12f},
+        runPaddedBatch(BatchingSession.PaddingPolicy.REPEAT_LAST_ROW),
+        EPSILON_F);
+  }
+
+  @Test
+  public void failRequestsOnRunError() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.square(g, "y", TestUtil.placeholder(g, "x", Float.class));
+      try (BatchingSession batching =
+              BatchingSession.options().build(s.runner().feed("x", null).fetch("y").compile());
+          Tensor<Integer> x = Tensors.create(new int[] {1})) {
+        try {
+          batching.submit(x).get(1, TimeUnit.MINUTES);
+          fail("should fail to feed an integer to a float placeholder");
+        } catch (ExecutionException e) {
+          assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void rejectInvalidRequests() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.square(g, "y", TestUtil.placeholder(g, "x", Float.class));
+      try (BatchingSession batching =
+              BatchingSession.options()
+                  .maxBatchSize(2)
+                  .build(s.runner().feed("x", null).fetch("y").compile());
+          Tensor<Float> scalar = Tensors.create(1f);
+          Tensor<Float> big = Tensors.create(new float[] {1f, 2f, 3f});
+          Tensor<String> str = Tensors.create(new byte[][] {{1}});
+          Tensor<Float> x = Tensors.create(new float[] {1f})) {
+        try {
+          batching.submit(x, x);
+          fail("should fail on an invalid number of inputs");
+        } catch (IllegalArgumentException e) {
+          // expected exception
+        }
+        try {
+          batching.submit(scalar);
+          fail("should fail on scalar inputs");
+        } catch (IllegalArgumentException e) {
+          // expected exception
+        }
+        try {
+          batching.submit(big);
+          fail("should fail on requests larger than the maximum batch size");
+        } catch (IllegalArgumentException e) {
+          // expected exception
+        }
+        try {
+          batching.submit(str);
+          fail("should fail on string inputs");
+        } catch (IllegalArgumentException e) {
+          // expected exception
+        }
+      }
+    }
+  }
+
+  @Test
+  public void rejectInvalidOptions() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.square(g, "y", TestUtil.placeholder(g, "x", Float.class));
+      Session.Callable c = s.runner().feed("x", null).fetch("y").compile();
+      try {
+        BatchingSession.options().allowedBatchSizes(2, 4).maxBatchSize(4).build(c);
+        fail("allowed batch sizes require a padding policy");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+      try {
+        BatchingSession.options()
+            .paddingPolicy(BatchingSession.PaddingPolicy.PAD_WITH_ZEROS)
+            .allowedBatchSizes(2, 4)
+            .maxBatchSize(8)
+            .build(c);
+        fail("the last allowed batch size should be the maximum batch size");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void executeQueuedRequestsOnClose() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g);
+        Tensor<Float> x = Tensors.create(new float[] {3f})) {
+      TestUtil.square(g, "y", TestUtil.placeholder(g, "x", Float.class));
+      BatchingSession batching =
+          BatchingSession.options()
+              .maxBatchSize(4)
+              .maxQueueDelay(1, TimeUnit.MINUTES)
+              .build(s.runner().feed("x", null).fetch("y").compile());
+      Future<List<Tensor<?>>> result = batching.submit(x);
+      // The request is executed without waiting for the queue delay
+      batching.close();
+      assertTrue(result.isDone());
+      try (Tensor<?> y = result.get().get(0)) {
+        assertArrayEquals(new float[] {9f}, y.copyTo(new float[1]), EPSILON_F);
+      }
+    }
+  }
+
+  @Test
+  public void failOnUseAfterClose() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.square(g, "y", TestUtil.placeholder(g, "x", Float.class));
+      BatchingSession batching =
+          BatchingSession.options().build(s.runner().feed("x", null).fetch("y").compile());
+      batching.close();
+      try (Tensor<Float> x = Tensors.create(new float[] {1f})) {
+        batching.submit(x);
+        fail("should fail after close");
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+    }
+  }
+
+  /**
+   * Runs a batch of 3 examples padded to 4 rows in a model that adds the sum of the whole batch to
+   * each row, so that the value of the padding can be observed in the results.
+   */
+  private static float[] runPaddedBatch(BatchingSession.PaddingPolicy policy) throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      Output<Float> x = TestUtil.placeholder(g, "x", Float.class);
+      Output<Float> sum =
+          g.opBuilder("Sum", "sum")
+              .addInput(x)
+              .addInput(TestUtil.constant(g, "axis", 0))
+              .setAttr("keep_dims", true)
+              .build()
+              .<Float>output(0);
+      g.opBuilder("Add", "y").addInput(x).addInput(sum).build();
+      try (BatchingSession batching =
+              BatchingSession.options()
+                  .maxBatchSize(4)
+                  .maxQueueDelay(200, TimeUnit.MILLISECONDS)
+                  .paddingPolicy(policy)
+                  .allowedBatchSizes(2, 4)
+                  .build(s.runner().feed("x", null).fetch("y").compile());
+          Tensor<Float> x1 = Tensors.create(new float[] {1f});
+          Tensor<Float> x2 = Tensors.create(new float[] {2f});
+          Tensor<Float> x3 = Tensors.create(new float[] {3f})) {
+        Future<List<Tensor<?>>> r1 = batching.submit(x1);
+        Future<List<Tensor<?>>> r2 = batching.submit(x2);
+        Future<List<Tensor<?>>> r3 = batching.submit(x3);
+        try (Tensor<?> y1 = r1.get(1, TimeUnit.MINUTES).get(0);
+            Tensor<?> y2 = r2.get(1, TimeUnit.MINUTES).get(0);
+            Tensor<?> y3 = r3.get(1, TimeUnit.MINUTES).get(0)) {
+          assertEquals(1, batching.batchCount());
+          return new float[] {
+            y1.copyTo(new float[1])[0], y2.copyTo(new float[1])[0], y3.copyTo(new float[1])[0]
+          };
+        }
+      }
+    }
+  }
+}
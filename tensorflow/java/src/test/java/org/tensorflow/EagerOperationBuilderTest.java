@@ -14,7 +14,10 @@ limitations under the License.
 ==============================================================================*/
 
 package org.tensorflow;
+import static org.junit.Assert.assertArrayEquals;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
@@ -139,6 +142,90 @@ public class EagerOperationBuilderTest {
     }
   }
 
+  @Test
+  public void buildFromTemplates() {
+    try (EagerSession session = EagerSession.create()) {
+      EagerOperationTemplates templates = session.operationTemplates();
+      Output<Float> x = TestUtil.constant(session, "x", 2.0f);
+      assertEquals(0, templates.size()); // operations with tensor attributes are not templated
+
+      for (int i = 0; i < 3; ++i) {
+        Output<Float> y =
+            opBuilder(session, "ApproximateEqual", "ApproximateEqual")
+                .addInput(x)
+                .addInput(x)
+                .setAttr("tolerance", 0.1f)
+                .build()
+                .output(0);
+        assertEquals(true, y.tensor().booleanValue());
+        assertEquals(1, templates.size());
+      }
+      opBuilder(session, "ApproximateEqual", "ApproximateEqual")
+          .addInput(x)
+          .addInput(x)
+          .setAttr("tolerance", 0.2f)
+          .build();
+      assertEquals(2, templates.size());
+
+      // inferred attributes are not part of the template
+      Output<Integer> z = TestUtil.constant(session, "z", 3);
+      Output<Integer> sum =
+          opBuilder(session, "Add", "Add").addInput(z).addInput(z).build().output(0);
+      Output<Float> fsum =
+          opBuilder(session, "Add", "Add").addInput(x).addInput(x).build().output(0);
+      assertEquals(6, sum.tensor().intValue());
+      assertEquals(4.0f, fsum.tensor().floatValue(), 0.0f);
+      assertEquals(3, templates.size());
+    }
+  }
+
+  @Test
+  public void inferAttributesWithDefaultsFromTemplates() {
+    try (EagerSession session = EagerSession.create()) {
+      Output<Float> start = TestUtil.constant(session, "start", 0.0f);
+      Output<Float> limit = TestUtil.constant(session, "limit", 3.0f);
+      Output<Float> delta = TestUtil.constant(session, "delta", 1.0f);
+      Output<Integer> values = TestUtil.constant(session, "values", new int[] {1, 2, 3, 4});
+      Output<Long> shape = TestUtil.constant(session, "shape", new long[] {2, 2});
+      // The first operations create the templates, the next ones are built from them
+      for (int i = 0; i < 2; ++i) {
+        // "Tidx" is inferred from the inputs, and defaults to int32
+        Output<?> range =
+            opBuilder(session, "Range", "Range")
+                .addInput(start)
+                .addInput(limit)
+                .addInput(delta)
+                .build()
+                .output(0);
+        assertEquals(DataType.FLOAT, range.dataType());
+        float[] rangeValues = new float[3];
+        range.tensor().copyTo(rangeValues);
+        assertArrayEquals(new float[] {0.0f, 1.0f, 2.0f}, rangeValues, 0.0f);
+
+        // "Tshape" is inferred from the inputs, and defaults to int32
+        Output<?> reshaped =
+            opBuilder(session, "Reshape", "Reshape")
+                .addInput(values)
+                .addInput(shape)
+                .build()
+                .output(0);
+        assertArrayEquals(new long[] {2, 2}, reshaped.tensor().shape());
+      }
+      assertEquals(2, session.operationTemplates().size());
+    }
+  }
+
+  @Test
+  public void disableTemplates() {
+    try (EagerSession session = EagerSession.options().maxOperationTemplates(0).build()) {
+      assertNull(session.operationTemplates());
+      Output<Integer> z = TestUtil.constant(session, "z", 3);
+      Output<Integer> sum =
+          opBuilder(session, "Add", "Add").addInput(z).addInput(z).build().output(0);
+      assertEquals(6, sum.tensor().intValue());
+    }
+  }
+
   private static EagerOperationBuilder opBuilder(EagerSession session, String type, String name) {
     return new EagerOperationBuilder(session, type, name);
   }
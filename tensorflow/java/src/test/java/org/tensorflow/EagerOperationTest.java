@@ -15,6 +15,7 @@ limitations under the License.
 
 package org.tensorflow;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
@@ -121,6 +122,54 @@ public class EagerOperationTest {
     }
   }
 
+  @Test
+  public void outputShapeIsCopied() {
+    try (EagerSession session = EagerSession.create()) {
+      EagerOperation op =
+          opBuilder(session, "Identity", "Identity")
+              .addInput(TestUtil.constant(session, "Const", new int[2][3]))
+              .build();
+      op.shape(0)[0] = 4;
+      assertEquals(2, op.shape(0)[0]);
+    }
+  }
+
+  @Test
+  public void asyncExecution() {
+    try (EagerSession session = EagerSession.options().async(true).build()) {
+      EagerOperation add =
+          opBuilder(session, "Add", "Async")
+              .addInput(TestUtil.constant(session, "Const1", new int[] {2, 3}))
+              .addInput(TestUtil.constant(session, "Const2", new int[] {4, 5}))
+              .build();
+      assertEquals(DataType.INT32, add.dtype(0));
+      session.sync();
+      assertEquals(1, add.shape(0).length);
+      int[] sum = new int[2];
+      add.tensor(0).copyTo(sum);
+      assertEquals(6, sum[0]);
+      assertEquals(8, sum[1]);
+    }
+  }
+
+  @Test
+  public void inferOutputShape() {
+    try (EagerSession session = EagerSession.options().async(true).build()) {
+      Output<Integer> a = TestUtil.constant(session, "Const1", new int[] {2, 3});
+      Output<Integer> b = TestUtil.constant(session, "Const2", new int[] {4, 5});
+      // The shapes of the constants are inferred from their value
+      assertArrayEquals(new long[] {2}, a.shape().asArray());
+      assertArrayEquals(new long[] {2}, b.shape().asArray());
+      // The shape of the sum is inferred from the known shapes of its inputs
+      EagerOperation add = opBuilder(session, "Add", "Inferred").addInput(a).addInput(b).build();
+      assertArrayEquals(new long[] {2}, add.shape(0));
+      int[] sum = new int[2];
+      add.tensor(0).copyTo(sum);
+      assertEquals(6, sum[0]);
+      assertEquals(8, sum[1]);
+    }
+  }
+
   @Test
   public void opNotAccessibleIfSessionIsClosed() {
     EagerSession session = EagerSession.create();
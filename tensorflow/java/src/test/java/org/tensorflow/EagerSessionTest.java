@@ -110,6 +110,113 @@ public class EagerSessionTest {
     assertFalse(deleted.get());
   }
 
+  @Test
+  public void countHeldAndReleasedResources() {
+    EagerSession s =
+        EagerSession.options()
+            .resourceCleanupStrategy(ResourceCleanupStrategy.ON_SESSION_CLOSE)
+            .build();
+    TestReference ref = new TestReference(s, new Object(), new AtomicBoolean());
+    new TestReference(s, new Object(), new AtomicBoolean());
+    new TestReference(s, new Object(), new AtomicBoolean());
+    assertEquals(3, s.heldResourceCount());
+    assertEquals(0, s.releasedResourceCount());
+
+    ref.clear();
+    assertEquals(2, s.heldResourceCount());
+
+    s.close();
+    assertEquals(0, s.heldResourceCount());
+    assertEquals(2, s.releasedResourceCount());
+  }
+
+  @Test
+  public void releaseGarbageOnAttachWhenTooManyResourcesArePending() {
+    try (EagerSession s =
+        EagerSession.options()
+            .resourceCleanupStrategy(ResourceCleanupStrategy.ON_SAFE_POINTS)
+            .maxPendingResources(2)
+            .build()) {
+      // Resources in use never trigger a release, however many they are
+      Object[] referents = new Object[1000];
+      for (int i = 0; i < referents.length; ++i) {
+        referents[i] = new Object();
+        new TestReference(s, referents[i], new AtomicBoolean());
+      }
+      assertEquals(0, s.pendingResourceCount());
+      assertEquals(0, s.releasedResourceCount());
+
+      // Enqueuing the references simulates the garbage collection of their referents
+      AtomicBoolean[] deleted = new AtomicBoolean[3];
+      for (int i = 0; i < deleted.length; ++i) {
+        deleted[i] = new AtomicBoolean();
+        new TestReference(s, new Object(), deleted[i]).enqueue();
+      }
+      // Exceeding the limit releases the garbage without waiting for a safe point, once it has
+      // been noticed by one of the following attachments
+      for (int i = 0; i < 1000 && s.releasedResourceCount() == 0; ++i) {
+        new TestReference(s, referents[i], new AtomicBoolean());
+      }
+      assertEquals(1, s.releasedResourceCount());
+      assertEquals(2, s.pendingResourceCount());
+      int numDeleted = 0;
+      for (AtomicBoolean d : deleted) {
+        numDeleted += d.get() ? 1 : 0;
+      }
+      assertEquals(1, numDeleted);
+    }
+  }
+
+  @Test
+  public void releaseGarbageInBatchesInBackground() throws InterruptedException {
+    // More references than a single batch of the cleanup thread
+    int numRefs = 1000;
+    try (EagerSession s =
+        EagerSession.options()
+            .resourceCleanupStrategy(ResourceCleanupStrategy.IN_BACKGROUND)
+            .build()) {
+      AtomicBoolean[] deleted = new AtomicBoolean[numRefs];
+      for (int i = 0; i < numRefs; ++i) {
+        deleted[i] = new AtomicBoolean();
+        new TestReference(s, new Object(), deleted[i]).enqueue();
+      }
+      long deadline = System.currentTimeMillis() + 10000;
+      while (s.releasedResourceCount() < numRefs && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(numRefs, s.releasedResourceCount());
+      assertEquals(0, s.heldResourceCount());
+      assertEquals(0, s.pendingResourceCount());
+      for (AtomicBoolean d : deleted) {
+        assertTrue(d.get());
+      }
+    }
+  }
+
+  @Test
+  public void failOnInvalidMaxPendingResources() {
+    try {
+      EagerSession.options().maxPendingResources(0);
+      fail("should not accept a non-positive limit");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+  }
+
+  @Test
+  public void syncSession() {
+    EagerSession s = EagerSession.options().async(true).build();
+    buildOp(s);
+    s.sync();
+    s.close();
+    try {
+      s.sync();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
   @Test
   public void buildingOpWithClosedSessionFails() {
     EagerSession s = EagerSession.create();
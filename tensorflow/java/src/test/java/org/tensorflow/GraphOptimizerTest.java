@@ -0,0 +1,90 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.GraphOptimizer}. */
+@RunWith(JUnit4.class)
+public class GraphOptimizerTest {
+
+  @Test
+  public void pruneUnusedOperations() {
+    try (Graph g = new Graph()) {
+      Output<Integer> x = TestUtil.placeholder(g, "X", Integer.class);
+      Output<Integer> y = TestUtil.square(g, "Y", x);
+      TestUtil.square(g, "Unused", TestUtil.<Integer>constant(g, "C", 2));
+
+      GraphOptimizer.Result result = GraphOptimizer.prune(g, Collections.singletonList(y));
+      try (Graph pruned = result.graph()) {
+        assertNotNull(pruned.operation("X"));
+        assertNotNull(pruned.operation("Y"));
+        assertNull(pruned.operation("Unused"));
+        assertNull(pruned.operation("C"));
+        assertEquals(2, result.removedOperationCount());
+        assertEquals(0, result.foldedOperationCount());
+        assertTrue(result.bytesSaved() > 0);
+      }
+      // the original graph is left untouched
+      assertNotNull(g.operation("Unused"));
+    }
+  }
+
+  @Test
+  public void foldConstants() {
+    try (Graph g = new Graph()) {
+      Output<Integer> a = TestUtil.constant(g, "A", 2);
+      Output<Integer> b = TestUtil.square(g, "B", a);
+      Output<Integer> x = TestUtil.placeholder(g, "X", Integer.class);
+      Output<Integer> y = TestUtil.addN(g, b, x);
+
+      GraphOptimizer.Result result = GraphOptimizer.optimize(g, Arrays.asList(y));
+      try (Graph optimized = result.graph();
+          Session s = new Session(optimized);
+          Tensor<Integer> xValue = Tensors.create(3);
+          Tensor<?> yValue = s.runner().feed("X", xValue).fetch(y.op().name()).run().get(0)) {
+        assertEquals("Const", optimized.operation("B").type());
+        assertNull(optimized.operation("A"));
+        assertEquals(1, result.foldedOperationCount());
+        assertEquals(7, yValue.intValue());
+      }
+    }
+  }
+
+  @Test
+  public void failOnMissingFetch() {
+    try (Graph g = new Graph();
+        Graph other = new Graph()) {
+      Output<Integer> c = TestUtil.constant(other, "C", 1);
+      try {
+        GraphOptimizer.prune(g, Collections.singletonList(c));
+        fail("should fail pruning for an operation that is not in the graph");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+}
@@ -18,10 +18,20 @@ package org.tensorflow;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
-
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -102,11 +112,54 @@ public class GraphTest {
     }
   }
 
+  @Test
+  public void importGraphDefFromBufferFileAndStream() throws IOException {
+    byte[] graphDef;
+    try (Graph g = new Graph()) {
+      TestUtil.transpose_A_times_X(g, new int[2][2]);
+      graphDef = g.toGraphDef();
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(graphDef.length);
+    buffer.put(graphDef).flip();
+    try (Graph g = new Graph()) {
+      g.importGraphDef(buffer);
+      validateImportedGraph(g, "");
+      assertEquals(0, buffer.position());
+    }
+    try (Graph g = new Graph()) {
+      g.importGraphDef(new ByteArrayInputStream(graphDef), "stream");
+      validateImportedGraph(g, "stream/");
+    }
+    File file = File.createTempFile("graph", ".pb");
+    try {
+      try (FileOutputStream out = new FileOutputStream(file)) {
+        out.write(graphDef);
+      }
+      try (Graph g = new Graph()) {
+        g.importGraphDef(file, "file");
+        validateImportedGraph(g, "file/");
+      }
+      try (Graph g = new Graph();
+          FileInputStream in = new FileInputStream(file)) {
+        g.importGraphDef(in);
+        validateImportedGraph(g, "");
+      }
+    } finally {
+      file.delete();
+    }
+    try (Graph g = new Graph()) {
+      g.importGraphDef(ByteBuffer.wrap(graphDef));
+      fail("should fail importing from a heap buffer");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+  }
+
   @Test
   public void failImportOnInvalidGraphDefs() {
     try (Graph g = new Graph()) {
       try {
-        g.importGraphDef(null);
+        g.importGraphDef((byte[]) null);
       } catch (IllegalArgumentException e) {
         // expected exception.
       }
@@ -119,6 +172,111 @@ public class GraphTest {
     }
   }
 
+  @Test
+  public void concurrentLookups() throws Exception {
+    try (Graph g = new Graph()) {
+      TestUtil.transpose_A_times_X(g, new int[2][2]);
+      final Graph graph = g;
+      final AtomicInteger failures = new AtomicInteger();
+      Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; ++i) {
+        threads[i] =
+            new Thread() {
+              @Override
+              public void run() {
+                for (int j = 0; j < 1000; ++j) {
+                  GraphOperation op = graph.operation("Y");
+                  if (op == null || !"MatMul".equals(op.type())) {
+                    failures.incrementAndGet();
+                  }
+                }
+              }
+            };
+        threads[i].start();
+      }
+      for (Thread t : threads) {
+        t.join();
+      }
+      assertEquals(0, failures.get());
+    }
+  }
+
+  @Test
+  public void closeWaitsForReferences() throws Exception {
+    final Graph g = new Graph();
+    Graph.Reference ref = g.ref();
+    Thread closer =
+        new Thread() {
+          @Override
+          public void run() {
+            g.close();
+          }
+        };
+    closer.start();
+    closer.join(100);
+    assertTrue(closer.isAlive());
+    ref.close();
+    closer.join();
+    try {
+      g.ref();
+      fail("should fail after close");
+    } catch (IllegalStateException e) {
+      // expected exception
+    }
+  }
+
+  @Test
+  public void cacheLookups() {
+    try (Graph g = new Graph()) {
+      assertNull(g.operation("X"));
+      Output<Integer> x = TestUtil.placeholder(g, "X", Integer.class);
+      assertSame(x.op(), g.operation("X"));
+      assertSame(g.operation("X"), g.operation("X"));
+
+      Output<?> y = g.output("X:0");
+      assertSame(x.op(), y.op());
+      assertEquals(0, y.index());
+      assertSame(y, g.output("X:0"));
+      assertSame(x.op(), g.output("X").op());
+      try {
+        g.output("Z:0");
+        fail("should fail looking up a missing operation");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void snapshot() {
+    try (Graph g = new Graph()) {
+      TestUtil.transpose_A_times_X(g, new int[2][3]);
+      GraphSnapshot snapshot = g.snapshot();
+      assertEquals(3, snapshot.numOperations());
+
+      int a = snapshot.indexOf("A");
+      assertEquals("Const", snapshot.type(a));
+      assertEquals(1, snapshot.numOutputs(a));
+      assertEquals(DataType.INT32, snapshot.dataType(a, 0));
+      assertEquals(Shape.make(2, 3), snapshot.shape(a, 0));
+
+      int x = snapshot.indexOf("X");
+      assertEquals("Placeholder", snapshot.type(x));
+      assertEquals(-1, snapshot.shape(x, 0).numDimensions());
+
+      int y = snapshot.indexOf("Y");
+      assertEquals("Y", snapshot.name(y));
+      assertEquals(g.operation("Y"), snapshot.operation(y));
+      assertEquals(-1, snapshot.indexOf("Z"));
+      try {
+        snapshot.dataType(y, 1);
+        fail("should fail accessing an invalid output");
+      } catch (IndexOutOfBoundsException e) {
+        // expected exception
+      }
+    }
+  }
+
   @Test
   public void failOnUseAfterClose() {
     Graph g = new Graph();
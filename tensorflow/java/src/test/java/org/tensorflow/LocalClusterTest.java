@@ -0,0 +1,143 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.LocalCluster}. */
+@RunWith(JUnit4.class)
+public class LocalClusterTest {
+
+  @Test
+  public void encodeServerDef() {
+    Map<String, List<String>> addresses =
+        Collections.singletonMap("w", Arrays.asList("localhost:1"));
+    byte[] expected =
+        bytes(
+            // ServerDef.cluster
+            new byte[] {0x0a, 22},
+            // ClusterDef.job
+            new byte[] {0x0a, 20},
+            // JobDef.name
+            new byte[] {0x0a, 1},
+            "w",
+            // JobDef.tasks entry, with key 0
+            new byte[] {0x12, 15, 0x08, 0, 0x12, 11},
+            "localhost:1",
+            // ServerDef.job_name
+            new byte[] {0x12, 1},
+            "w",
+            // ServerDef.task_index
+            new byte[] {0x18, 0},
+            // ServerDef.protocol
+            new byte[] {0x2a, 4},
+            "grpc");
+    assertArrayEquals(expected, LocalCluster.serverDef(addresses, "w", 0, "grpc", null));
+  }
+
+  @Test
+  public void runDistributedGraph() throws Exception {
+    LocalCluster cluster = LocalCluster.builder().addJob("worker", 2).start();
+    try {
+      assertEquals(Arrays.asList("worker"), cluster.jobs());
+      assertEquals(2, cluster.numTasks("worker"));
+      assertTrue(cluster.target("worker", 0).endsWith(cluster.address("worker", 0)));
+      String[] devices = cluster.devices("worker");
+      assertArrayEquals(
+          new String[] {"/job:worker/replica:0/task:0", "/job:worker/replica:0/task:1"}, devices);
+      assertEquals(
+          "/job:worker/replica:0/task:1/device:CPU:0", cluster.device("worker", 1, "CPU", 0));
+
+      try (Graph g = new Graph()) {
+        Output<Integer> a = constant(g, "a", 2, devices[1]);
+        Output<Integer> b = constant(g, "b", 3, devices[1]);
+        g.opBuilder("Add", "c").addInput(a).addInput(b).setDevice(devices[0]).build();
+        try (Session s = new Session(g, cluster.target("worker", 0), null);
+            Tensor<?> c = s.runner().fetch("c").run().get(0)) {
+          assertEquals(5, c.intValue());
+        }
+      }
+    } finally {
+      cluster.close();
+    }
+  }
+
+  @Test
+  public void failOnInvalidJob() {
+    LocalCluster.Builder builder = LocalCluster.builder();
+    try {
+      builder.addJob("1worker", 1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    try {
+      builder.addJob("worker", 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    builder.addJob("worker", 1);
+    try {
+      builder.addJob("worker", 1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    try {
+      LocalCluster.builder().start();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected exception
+    }
+  }
+
+  private static Output<Integer> constant(Graph g, String name, int value, String device) {
+    try (Tensor<Integer> t = Tensors.create(value)) {
+      return g.opBuilder("Const", name)
+          .setAttr("dtype", t.dataType())
+          .setAttr("value", t)
+          .setDevice(device)
+          .build()
+          .<Integer>output(0);
+    }
+  }
+
+  private static byte[] bytes(Object... parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (Object part : parts) {
+      byte[] b =
+          part instanceof String
+              ? ((String) part).getBytes(Charset.forName("UTF-8"))
+              : (byte[]) part;
+      out.write(b, 0, b.length);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,141 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.ModelRegistry}. */
+@RunWith(JUnit4.class)
+public class ModelRegistryTest {
+
+  private static final String MODEL_PATH = "tensorflow/cc/saved_model/testdata/half_plus_two";
+  private static final long MODEL_VERSION = 123;
+  private static final String OTHER_MODEL_PATH =
+      "tensorflow/cc/saved_model/testdata/half_plus_two_main_op";
+
+  @Test
+  public void shareLoadedModels() {
+    try (ModelRegistry registry = new ModelRegistry(Long.MAX_VALUE)) {
+      try (ModelRegistry.Model m1 = registry.checkout(MODEL_PATH, MODEL_VERSION);
+          ModelRegistry.Model m2 = registry.checkout(MODEL_PATH, MODEL_VERSION)) {
+        assertSame(m1.bundle(), m2.bundle());
+        assertEquals(MODEL_VERSION, m1.version());
+        assertTrue(m1.estimatedBytes() > 0);
+        assertEquals(m1.estimatedBytes(), registry.usedBytes());
+        assertEquals(1, registry.size());
+        assertEquals(1.0f, run(m1.bundle(), -2.0f), 0.0f);
+        // Paths to the same directory designate the same model
+        try (ModelRegistry.Model m3 = registry.checkout(MODEL_PATH + "/", MODEL_VERSION)) {
+          assertSame(m1.bundle(), m3.bundle());
+        }
+      }
+      assertEquals(1, registry.size());
+    }
+  }
+
+  @Test
+  public void evictReleasedModels() {
+    try (ModelRegistry registry = new ModelRegistry(0)) {
+      SavedModelBundle bundle;
+      try (ModelRegistry.Model m = registry.checkout(MODEL_PATH, MODEL_VERSION)) {
+        bundle = m.bundle();
+        // Checked out models are never evicted
+        assertEquals(1, registry.size());
+      }
+      try (ModelRegistry.Model m = registry.checkout(MODEL_PATH, MODEL_VERSION)) {
+        assertEquals(1, registry.size());
+        assertSame(bundle, m.bundle());
+      }
+      try (ModelRegistry.Model m = registry.checkout(OTHER_MODEL_PATH, MODEL_VERSION)) {
+        // Loading another model evicts the released one
+        assertEquals(1, registry.size());
+        assertNotSame(bundle, m.bundle());
+        assertEquals(m.estimatedBytes(), registry.usedBytes());
+      }
+    }
+  }
+
+  @Test
+  public void closeRegistryWhileCheckedOut() {
+    ModelRegistry registry = new ModelRegistry(Long.MAX_VALUE);
+    try (ModelRegistry.Model m = registry.checkout(MODEL_PATH, MODEL_VERSION)) {
+      registry.close();
+      assertEquals(0, registry.size());
+      // The model remains usable until released
+      assertEquals(2.5f, run(m.bundle(), 1.0f), 0.0f);
+    }
+    try {
+      registry.checkout(MODEL_PATH, MODEL_VERSION);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected exception
+    }
+  }
+
+  @Test
+  public void failOnUnknownModel() {
+    try (ModelRegistry registry = new ModelRegistry(Long.MAX_VALUE)) {
+      try {
+        registry.checkout(MODEL_PATH, 1);
+        fail();
+      } catch (TensorFlowException e) {
+        // expected exception
+      }
+      assertEquals(0, registry.size());
+      assertEquals(0, registry.usedBytes());
+    }
+  }
+
+  @Test
+  public void failOnClosedCheckout() {
+    try (ModelRegistry registry = new ModelRegistry(Long.MAX_VALUE)) {
+      ModelRegistry.Model m = registry.checkout(MODEL_PATH, MODEL_VERSION);
+      m.close();
+      m.close();
+      try {
+        m.bundle();
+        fail();
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+    }
+  }
+
+  private static float run(SavedModelBundle bundle, float x) {
+    try (Tensor<Float> input = Tensors.create(new float[] {x});
+        Tensor<Float> output =
+            bundle
+                .session()
+                .runner()
+                .feed("x", input)
+                .fetch("y")
+                .run()
+                .get(0)
+                .expect(Float.class)) {
+      float[] y = new float[1];
+      output.copyTo(y);
+      return y[0];
+    }
+  }
+}
@@ -15,10 +15,22 @@ limitations under the License.
 
 package org.tensorflow;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -64,6 +76,230 @@ public class SavedModelBundleTest {
     }
   }
 
+  @Test
+  public void signature() {
+    try (SavedModelBundle bundle = SavedModelBundle.load(SAVED_MODEL_PATH, "serve")) {
+      assertTrue(bundle.signatureKeys().contains("serving_default"));
+      SavedModelBundle.Signature signature = bundle.signature("serving_default");
+      assertEquals("serving_default", signature.key());
+      assertEquals("tensorflow/serving/predict", signature.methodName());
+      assertEquals(Arrays.asList("x"), signature.inputNames());
+      assertEquals(Arrays.asList("y"), signature.outputNames());
+      assertEquals("x", signature.input("x").op().name());
+      assertEquals("y", signature.output("y").op().name());
+
+      for (float x = 0.0f; x < 3.0f; x += 1.0f) {
+        try (Tensor<Float> input = Tensors.create(new float[][] {{x}})) {
+          Map<String, Tensor<?>> outputs =
+              signature.run(Collections.<String, Tensor<?>>singletonMap("x", input));
+          assertEquals(1, outputs.size());
+          try (Tensor<?> y = outputs.get("y")) {
+            float[][] result = new float[1][1];
+            y.copyTo(result);
+            assertEquals(x / 2 + 2, result[0][0], 0.0f);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void failOnUnknownSignature() {
+    try (SavedModelBundle bundle = SavedModelBundle.load(SAVED_MODEL_PATH, "serve")) {
+      try {
+        bundle.signature("__BAD__");
+        fail("not expected");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+      SavedModelBundle.Signature signature = bundle.signature("serving_default");
+      try {
+        signature.input("y");
+        fail("not expected");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+      try {
+        signature.run(Collections.<String, Tensor<?>>emptyMap());
+        fail("not expected");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void loadWithWarmup() {
+    try (Tensor<Float> x = Tensors.create(new float[][] {{1.0f}})) {
+      SavedModelBundle.WarmupRequest request =
+          SavedModelBundle.warmupRequest(
+              "serving_default", Collections.<String, Tensor<?>>singletonMap("x", x));
+      try (SavedModelBundle bundle =
+          SavedModelBundle.loader(SAVED_MODEL_PATH)
+              .withTags("serve")
+              .withWarmup(Arrays.asList(request, request), 5, 0.5f)
+              .load()) {
+        long[][] latencies = bundle.warmupLatencies();
+        assertTrue(latencies.length >= 1 && latencies.length <= 5);
+        for (long[] roundLatencies : latencies) {
+          assertEquals(2, roundLatencies.length);
+        }
+      }
+    }
+    try (SavedModelBundle bundle = SavedModelBundle.load(SAVED_MODEL_PATH, "serve")) {
+      assertEquals(0, bundle.warmupLatencies().length);
+    }
+  }
+
+  @Test
+  public void loadWithRecordedWarmup() throws IOException {
+    try (SavedModelBundle bundle =
+        SavedModelBundle.loader(SAVED_MODEL_PATH).withTags("serve").withRecordedWarmup().load()) {
+      // The model has no recorded requests
+      assertEquals(0, bundle.warmupLatencies().length);
+    }
+    File exportDir = Files.createTempDirectory("saved_model").toFile();
+    try {
+      copy(new File(SAVED_MODEL_PATH), exportDir);
+      File assetsExtra = new File(exportDir, "assets.extra");
+      assertTrue(assetsExtra.mkdir());
+      try (FileOutputStream out =
+          new FileOutputStream(new File(assetsExtra, "tf_serving_warmup_requests"))) {
+        byte[] record = predictionLog("x", 1.0f);
+        out.write(tfRecord(record));
+        out.write(tfRecord(record));
+      }
+      try (SavedModelBundle bundle =
+          SavedModelBundle.loader(exportDir.getPath())
+              .withTags("serve")
+              .withRecordedWarmup(5, 0.5f)
+              .load()) {
+        long[][] latencies = bundle.warmupLatencies();
+        assertTrue(latencies.length >= 1 && latencies.length <= 5);
+        for (long[] roundLatencies : latencies) {
+          assertEquals(2, roundLatencies.length);
+        }
+        // The latencies cannot be modified
+        latencies[0][0] = -1;
+        assertTrue(bundle.warmupLatencies()[0][0] >= 0);
+      }
+    } finally {
+      delete(exportDir);
+    }
+  }
+
+  @Test
+  public void failOnMissingTags() {
+    try {
+      SavedModelBundle.loader(SAVED_MODEL_PATH).withTags((String[]) null);
+      fail("not expected");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    try {
+      SavedModelBundle.loader(SAVED_MODEL_PATH).load();
+      fail("not expected");
+    } catch (TensorFlowException e) {
+      // expected exception
+    }
+  }
+
+  @Test
+  public void failOnInvalidWarmup() {
+    try {
+      SavedModelBundle.loader(SAVED_MODEL_PATH)
+          .withWarmup(Collections.<SavedModelBundle.WarmupRequest>emptyList(), 0, 0.1f);
+      fail("not expected");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    try {
+      SavedModelBundle.loader(SAVED_MODEL_PATH)
+          .withTags("serve")
+          .withWarmup(
+              Arrays.asList(
+                  SavedModelBundle.warmupRequest(
+                      "__BAD__", Collections.<String, Tensor<?>>emptyMap())))
+          .load();
+      fail("not expected");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+  }
+
+  // A PredictionLog of TensorFlow Serving, feeding a float tensor of shape [1, 1] to the default
+  // signature.
+  private static byte[] predictionLog(String input, float value) {
+    byte[] dim = field(2, new byte[] {0x08, 0x01});
+    byte[] tensorProto =
+        concat(
+            new byte[] {0x08, 0x01}, // DT_FLOAT
+            field(2, concat(dim, dim)),
+            field(
+                5,
+                ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putFloat(value).array()));
+    byte[] modelSpec = field(3, "serving_default".getBytes(Charset.forName("UTF-8")));
+    byte[] inputs =
+        field(2, concat(field(1, input.getBytes(Charset.forName("UTF-8"))), field(2, tensorProto)));
+    byte[] predictRequest = concat(field(1, modelSpec), inputs);
+    return field(6, field(1, predictRequest));
+  }
+
+  // A length-delimited field of a protocol buffer, whose length is less than 128 bytes.
+  private static byte[] field(int number, byte[] value) {
+    return concat(new byte[] {(byte) (number << 3 | 2), (byte) value.length}, value);
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      out.write(part, 0, part.length);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] tfRecord(byte[] data) {
+    byte[] length =
+        ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(data.length).array();
+    return concat(length, maskedCrc32c(length), data, maskedCrc32c(data));
+  }
+
+  private static byte[] maskedCrc32c(byte[] data) {
+    int crc = ~0;
+    for (byte b : data) {
+      crc ^= b & 0xff;
+      for (int i = 0; i < 8; ++i) {
+        crc = (crc >>> 1) ^ (0x82f63b78 & -(crc & 1));
+      }
+    }
+    crc = ~crc;
+    int masked = ((crc >>> 15) | (crc << 17)) + 0xa282ead8;
+    return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(masked).array();
+  }
+
+  private static void copy(File from, File to) throws IOException {
+    if (from.isDirectory()) {
+      if (!to.isDirectory() && !to.mkdir()) {
+        throw new IOException("Cannot create " + to);
+      }
+      for (String name : from.list()) {
+        copy(new File(from, name), new File(to, name));
+      }
+    } else {
+      Files.copy(from.toPath(), to.toPath());
+    }
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
   private static byte[] sillyRunOptions() {
     // Ideally this would use the generated Java sources for protocol buffers
     // and end up with something like the snippet below. However, generating
@@ -0,0 +1,173 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.SessionPool}. */
+@RunWith(JUnit4.class)
+public class SessionPoolTest {
+
+  @Test
+  public void runFromLease() throws Exception {
+    try (Graph g = new Graph();
+        SessionPool pool = new SessionPool(g, 2)) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      try (SessionPool.Lease lease = pool.acquire();
+          Tensor<Integer> x = Tensors.create(new int[][] {{5}, {7}});
+          TestUtil.AutoCloseableList<Tensor<?>> outputs =
+              new TestUtil.AutoCloseableList<Tensor<?>>(
+                  lease.runner().feed("X", x).fetch("Y").run())) {
+        final int[][] expected = {{31}};
+        assertArrayEquals(expected, outputs.get(0).copyTo(new int[1][1]));
+      }
+    }
+  }
+
+  @Test
+  public void runnersAreReusedAndReset() throws Exception {
+    try (Graph g = new Graph();
+        SessionPool pool = new SessionPool(g, 1)) {
+      TestUtil.constant(g, "c1", 2718);
+      TestUtil.constant(g, "c2", 31415);
+      Session.Runner runner;
+      try (SessionPool.Lease lease = pool.acquire()) {
+        runner = lease.runner();
+        runner.fetch("c1");
+      }
+      try (SessionPool.Lease lease = pool.acquire();
+          TestUtil.AutoCloseableList<Tensor<?>> outputs =
+              new TestUtil.AutoCloseableList<Tensor<?>>(lease.runner().fetch("c2").run())) {
+        assertSame(runner, lease.runner());
+        assertEquals(1, outputs.size());
+        assertEquals(31415, outputs.get(0).intValue());
+      }
+    }
+  }
+
+  @Test
+  public void concurrentRunsAreBounded() throws Exception {
+    try (Graph g = new Graph();
+        SessionPool pool = new SessionPool(g, 1)) {
+      TestUtil.constant(g, "c1", 2718);
+      try (SessionPool.Lease lease = pool.acquire()) {
+        assertEquals(0, pool.availableRuns());
+        assertNull(pool.tryAcquire(10, TimeUnit.MILLISECONDS));
+      }
+      assertEquals(1, pool.availableRuns());
+      try (SessionPool.Lease lease = pool.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+        assertNotNull(lease);
+      }
+    }
+  }
+
+  @Test
+  public void runFromMultipleThreads() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g);
+        SessionPool pool = new SessionPool(s, 2)) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      final SessionPool p = pool;
+      final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < 4; ++i) {
+        final int value = i;
+        threads.add(
+            new Thread(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    try {
+                      for (int j = 0; j < 10; ++j) {
+                        try (SessionPool.Lease lease = p.acquire();
+                            Tensor<Integer> x = Tensors.create(new int[][] {{value}, {j}});
+                            Tensor<?> y = lease.runner().feed("X", x).fetch("Y").run().get(0)) {
+                          int[][] result = y.copyTo(new int[1][1]);
+                          if (result[0][0] != 2 * value + 3 * j) {
+                            throw new AssertionError("unexpected result " + result[0][0]);
+                          }
+                        }
+                      }
+                    } catch (Throwable t) {
+                      failure.compareAndSet(null, t);
+                    }
+                  }
+                }));
+      }
+      for (Thread t : threads) {
+        t.start();
+      }
+      for (Thread t : threads) {
+        t.join();
+      }
+      assertNull(failure.get());
+      assertEquals(2, pool.availableRuns());
+    }
+  }
+
+  @Test
+  public void failOnUseAfterClose() throws Exception {
+    try (Graph g = new Graph()) {
+      SessionPool pool = new SessionPool(g, 1);
+      SessionPool.Lease lease = pool.acquire();
+      lease.close();
+      try {
+        lease.runner();
+        fail("a lease should not be usable after being closed");
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+      pool.close();
+      try {
+        pool.acquire();
+        fail("a pool should not hand out leases after being closed");
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+      try {
+        pool.session().runner().run();
+        fail("the session owned by a pool should be closed with it");
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void failOnInvalidConcurrencyLimit() {
+    try (Graph g = new Graph()) {
+      try {
+        new SessionPool(g, 0);
+        fail("a pool should not accept a non-positive concurrency limit");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+}
@@ -20,6 +20,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -142,6 +150,241 @@ public class SessionTest {
     }
   }
 
+  @Test
+  public void runUsingCallable() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      Session.Callable callable = s.runner().feed("X", null).fetch("Y").compile();
+      assertEquals(1, callable.numInputs());
+      assertEquals(1, callable.numOutputs());
+      for (int i = 0; i < 3; ++i) {
+        try (Tensor<Integer> x = Tensors.create(new int[][] {{5 + i}, {7}});
+            TestUtil.AutoCloseableList<Tensor<?>> outputs =
+                new TestUtil.AutoCloseableList<Tensor<?>>(callable.call(x))) {
+          assertEquals(1, outputs.size());
+          final int[][] expected = {{31 + 2 * i}};
+          assertArrayEquals(expected, outputs.get(0).copyTo(new int[1][1]));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void callableIsNotAffectedByRunnerChanges() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.constant(g, "c1", 2718);
+      TestUtil.constant(g, "c2", 31415);
+      Session.Runner runner = s.runner().fetch("c1");
+      Session.Callable callable = runner.compile();
+      runner.fetch("c2");
+      try (TestUtil.AutoCloseableList<Tensor<?>> outputs =
+          new TestUtil.AutoCloseableList<Tensor<?>>(callable.call())) {
+        assertEquals(1, outputs.size());
+        assertEquals(2718, outputs.get(0).intValue());
+      }
+    }
+  }
+
+  @Test
+  public void callableRejectsInvalidNumberOfInputs() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      Session.Callable callable = s.runner().feed("X", null).fetch("Y").compile();
+      try {
+        callable.call();
+        fail("a callable should not run with missing inputs");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void failOnCallableUseAfterClose() {
+    try (Graph g = new Graph()) {
+      Session s = new Session(g);
+      TestUtil.constant(g, "c1", 2718);
+      Session.Callable callable = s.runner().fetch("c1").compile();
+      s.close();
+      try {
+        callable.call();
+        fail("a callable should fail after its session is closed");
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void runAsync() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      try (Tensor<Integer> x = Tensors.create(new int[][] {{5}, {7}})) {
+        Session.Runner runner = s.runner().feed("X", x).fetch("Y");
+        Future<List<Tensor<?>>> result = runner.runAsync();
+        // feeds and fetches are captured at submission
+        runner.fetch("X");
+        try (TestUtil.AutoCloseableList<Tensor<?>> outputs =
+            new TestUtil.AutoCloseableList<Tensor<?>>(result.get(1, TimeUnit.MINUTES))) {
+          assertEquals(1, outputs.size());
+          final int[][] expected = {{31}};
+          assertArrayEquals(expected, outputs.get(0).copyTo(new int[1][1]));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void runAsyncWithMetadata() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.transpose_A_times_X(g, new int[][] {{2}, {3}});
+      try (Tensor<Integer> x = Tensors.create(new int[][] {{5}, {7}})) {
+        final AtomicInteger numExecuted = new AtomicInteger();
+        Executor executor =
+            new Executor() {
+              @Override
+              public void execute(Runnable command) {
+                numExecuted.incrementAndGet();
+                command.run();
+              }
+            };
+        Session.Run result =
+            s.runner()
+                .feed("X", x)
+                .fetch("Y")
+                .setOptions(fullTraceRunOptions())
+                .runAndFetchMetadataAsync(executor)
+                .get();
+        assertEquals(1, numExecuted.get());
+        try (TestUtil.AutoCloseableList<Tensor<?>> outputs =
+            new TestUtil.AutoCloseableList<Tensor<?>>(result.outputs)) {
+          final int[][] expected = {{31}};
+          assertArrayEquals(expected, outputs.get(0).copyTo(new int[1][1]));
+        }
+        assertTrue(result.metadata.length > 0);
+      }
+    }
+  }
+
+  @Test
+  public void runAsyncReportsFailures() throws Exception {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      TestUtil.placeholder(g, "X", Integer.class);
+      try {
+        // the placeholder is not fed
+        s.runner().fetch("X").runAsync().get(1, TimeUnit.MINUTES);
+        fail("should fail on an unfed placeholder");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+      }
+    }
+  }
+
+  @Test
+  public void closeAfterCancelledAsyncRun() {
+    Graph g = new Graph();
+    Session s = new Session(g);
+    TestUtil.constant(g, "c", 1);
+    // runs are never executed by this executor
+    Executor executor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {}
+        };
+    Future<List<Tensor<?>>> result = s.runner().fetch("c").runAsync(executor);
+    assertTrue(result.cancel(false));
+    // would block forever if the cancelled run still held a reference to the session
+    s.close();
+    g.close();
+  }
+
+  @Test
+  public void failOnRunAsyncAfterClose() {
+    Graph g = new Graph();
+    Session s = new Session(g);
+    TestUtil.constant(g, "c", 1);
+    s.close();
+    try {
+      s.runner().fetch("c").runAsync();
+      fail("should fail after close");
+    } catch (IllegalStateException e) {
+      // expected exception
+    }
+    g.close();
+  }
+
+  @Test
+  public void partialRun() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      Output<Integer> a = TestUtil.placeholder(g, "a", Integer.class);
+      Output<Integer> b = TestUtil.placeholder(g, "b", Integer.class);
+      Output<Integer> c = TestUtil.square(g, "c", a);
+      Output<Integer> d = TestUtil.addN(g, c, b);
+      try (Session.PartialRun p =
+              s.partialRunSetup(
+                  Arrays.<Output<?>>asList(a, b),
+                  Arrays.<Output<?>>asList(c, d),
+                  Collections.<Operation>emptyList());
+          Tensor<Integer> aValue = Tensors.create(3);
+          Tensor<Integer> bValue = Tensors.create(1)) {
+        try (Tensor<?> cValue = p.feed(a, aValue).fetch(c).run().get(0)) {
+          assertEquals(9, cValue.intValue());
+        }
+        // c is not recomputed, so a does not need to be fed again
+        try (Tensor<?> dValue = p.feed("b", bValue).fetch(d).run().get(0)) {
+          assertEquals(10, dValue.intValue());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void failOnPartialRunOfUndeclaredFetch() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      Output<Integer> a = TestUtil.placeholder(g, "a", Integer.class);
+      Output<Integer> c = TestUtil.square(g, "c", a);
+      try (Session.PartialRun p =
+              s.partialRunSetup(
+                  Arrays.<Output<?>>asList(a),
+                  Collections.<Output<?>>emptyList(),
+                  Collections.<Operation>emptyList());
+          Tensor<Integer> aValue = Tensors.create(3)) {
+        p.feed(a, aValue).fetch(c).run();
+        fail("should fail fetching a value that was not declared at setup");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void failOnPartialRunAfterClose() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      Output<Integer> c = TestUtil.constant(g, "c", 1);
+      Session.PartialRun p =
+          s.partialRunSetup(
+              Collections.<Output<?>>emptyList(),
+              Arrays.<Output<?>>asList(c),
+              Collections.<Operation>emptyList());
+      p.close();
+      try {
+        p.fetch(c).run();
+        fail("should fail after close");
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+    }
+  }
+
   @Test
   public void failOnUseAfterClose() {
     try (Graph g = new Graph()) {
@@ -0,0 +1,115 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.StringTensorBuilder}. */
+@RunWith(JUnit4.class)
+public class StringTensorBuilderTest {
+
+  @Test
+  public void buildVector() {
+    StringTensorBuilder builder = new StringTensorBuilder();
+    builder.append("a".getBytes(UTF_8));
+    builder.append("xxbcxx".getBytes(UTF_8), 2, 2);
+    builder.append(ByteBuffer.wrap("def".getBytes(UTF_8)));
+    assertEquals(3, builder.size());
+    try (Tensor<String> t = builder.build()) {
+      assertEquals(DataType.STRING, t.dataType());
+      assertArrayEquals(new long[] {3}, t.shape());
+      byte[][] expected = {"a".getBytes(UTF_8), "bc".getBytes(UTF_8), "def".getBytes(UTF_8)};
+      assertArrayEquals(expected, t.copyTo(new byte[3][]));
+    }
+    assertEquals(0, builder.size());
+  }
+
+  @Test
+  public void buildWithShape() {
+    StringTensorBuilder builder = new StringTensorBuilder();
+    try (Tensor<String> scalar = builder.append("scalar".getBytes(UTF_8)).build(new long[0])) {
+      assertEquals(0, scalar.numDimensions());
+      assertArrayEquals("scalar".getBytes(UTF_8), scalar.bytesValue());
+    }
+    for (int i = 0; i < 6; ++i) {
+      builder.append(new byte[] {(byte) i});
+    }
+    try (Tensor<String> matrix = builder.build(new long[] {2, 3})) {
+      byte[][][] expected = {{{0}, {1}, {2}}, {{3}, {4}, {5}}};
+      assertArrayEquals(expected, matrix.copyTo(new byte[2][3][]));
+    }
+  }
+
+  @Test
+  public void growBeyondInitialCapacity() {
+    // Also covers lengths encoded on more than one varint byte
+    int[] lengths = {0, 127, 128, 300, 16384, 70000};
+    StringTensorBuilder builder = new StringTensorBuilder(1);
+    byte[][] expected = new byte[lengths.length][];
+    for (int i = 0; i < lengths.length; ++i) {
+      expected[i] = new byte[lengths[i]];
+      Arrays.fill(expected[i], (byte) i);
+      builder.append(expected[i]);
+    }
+    try (Tensor<String> t = builder.build()) {
+      assertArrayEquals(expected, t.copyTo(new byte[lengths.length][]));
+    }
+  }
+
+  @Test
+  public void feedBuiltTensorToSession() {
+    try (Graph g = new Graph();
+        Session s = new Session(g)) {
+      Output<String> x = TestUtil.placeholder(g, "x", String.class);
+      g.opBuilder("Identity", "y").addInput(x).build();
+      StringTensorBuilder builder = new StringTensorBuilder();
+      builder.append("hello".getBytes(UTF_8)).append("world".getBytes(UTF_8));
+      try (Tensor<String> in = builder.build();
+          Tensor<?> out = s.runner().feed("x", in).fetch("y").run().get(0)) {
+        byte[][] expected = {"hello".getBytes(UTF_8), "world".getBytes(UTF_8)};
+        assertArrayEquals(expected, out.copyTo(new byte[2][]));
+      }
+    }
+  }
+
+  @Test
+  public void failOnShapeMismatch() {
+    StringTensorBuilder builder = new StringTensorBuilder();
+    builder.append(new byte[1]).append(new byte[1]);
+    try {
+      builder.build(new long[] {3});
+      fail("should fail when the shape does not match the number of elements");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    try {
+      builder.append(new byte[2], 1, 2);
+      fail("should fail on an invalid slice");
+    } catch (IndexOutOfBoundsException e) {
+      // expected exception
+    }
+    assertEquals(2, builder.size());
+  }
+}
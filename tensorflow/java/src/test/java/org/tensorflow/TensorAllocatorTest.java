@@ -0,0 +1,160 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.TensorAllocator}. */
+@RunWith(JUnit4.class)
+public class TensorAllocatorTest {
+  private static final float EPSILON_F = 1e-7f;
+
+  @Test
+  public void reuseRecycledTensors() {
+    try (TensorAllocator allocator = new TensorAllocator()) {
+      long[] shape = {2, 2};
+      Tensor<Float> t = allocator.create(shape, FloatBuffer.wrap(new float[] {1f, 2f, 3f, 4f}));
+      assertEquals(0, allocator.hitCount());
+      assertEquals(1, allocator.missCount());
+      allocator.recycle(t);
+      assertEquals(1, allocator.pooledTensorCount());
+      assertEquals(4 * 4, allocator.pooledBytes());
+
+      try (Tensor<Float> t2 =
+          allocator.create(shape, FloatBuffer.wrap(new float[] {5f, 6f, 7f, 8f}))) {
+        assertEquals(1, allocator.hitCount());
+        assertEquals(1, allocator.missCount());
+        assertEquals(0, allocator.pooledTensorCount());
+        assertEquals(0, allocator.pooledBytes());
+        assertArrayEquals(new long[] {2, 2}, t2.shape());
+        float[][] values = t2.copyTo(new float[2][2]);
+        assertArrayEquals(new float[] {5f, 6f}, values[0], EPSILON_F);
+        assertArrayEquals(new float[] {7f, 8f}, values[1], EPSILON_F);
+      }
+    }
+  }
+
+  @Test
+  public void doNotShareTensorsOfDifferentTypesOrShapes() {
+    try (TensorAllocator allocator = new TensorAllocator()) {
+      allocator.recycle(allocator.create(new long[] {4}, IntBuffer.wrap(new int[] {1, 2, 3, 4})));
+      try (Tensor<Float> t = allocator.create(new long[] {4}, FloatBuffer.allocate(4));
+          Tensor<Integer> t2 = allocator.create(new long[] {2, 2}, IntBuffer.allocate(4))) {
+        assertEquals(0, allocator.hitCount());
+        assertEquals(3, allocator.missCount());
+        assertEquals(1, allocator.pooledTensorCount());
+      }
+    }
+  }
+
+  @Test
+  public void enforceLimits() {
+    try (TensorAllocator allocator = new TensorAllocator(1, 1024)) {
+      allocator.recycle(allocator.create(new long[] {2}, IntBuffer.allocate(2)));
+      allocator.recycle(allocator.create(new long[] {2}, IntBuffer.allocate(2)));
+      assertEquals(1, allocator.pooledTensorCount());
+      assertEquals(1, allocator.discardCount());
+
+      allocator.recycle(allocator.create(new long[] {1024}, IntBuffer.allocate(1024)));
+      assertEquals(1, allocator.pooledTensorCount());
+      assertEquals(2, allocator.discardCount());
+    }
+  }
+
+  @Test
+  public void recycleSessionOutputs() {
+    try (Graph g = new Graph();
+        Session s = new Session(g);
+        TensorAllocator allocator = new TensorAllocator()) {
+      Output<Integer> c = TestUtil.constant(g, "c", new int[] {1, 2, 3});
+      TestUtil.square(g, "y", c);
+
+      // The output of a constant shares its memory with the kernel, it cannot be reused.
+      allocator.recycle(s.runner().fetch("c").run().get(0));
+      assertEquals(0, allocator.pooledTensorCount());
+
+      allocator.recycle(s.runner().fetch("y").run().get(0));
+      assertEquals(1, allocator.pooledTensorCount());
+      try (Tensor<Integer> t =
+          allocator.create(new long[] {3}, IntBuffer.wrap(new int[] {4, 5, 6}))) {
+        assertEquals(1, allocator.hitCount());
+        assertArrayEquals(new int[] {4, 5, 6}, t.copyTo(new int[3]));
+      }
+    }
+  }
+
+  @Test
+  public void closeReleasesPooledTensors() {
+    TensorAllocator allocator = new TensorAllocator();
+    allocator.recycle(allocator.create(new long[] {2}, IntBuffer.allocate(2)));
+    allocator.close();
+    assertEquals(0, allocator.pooledTensorCount());
+    assertEquals(0, allocator.pooledBytes());
+
+    // Tensors recycled after close are simply released
+    allocator.recycle(allocator.create(new long[] {2}, IntBuffer.allocate(2)));
+    assertEquals(0, allocator.pooledTensorCount());
+  }
+
+  @Test
+  public void closeWrappedTensors() {
+    final AtomicBoolean released = new AtomicBoolean();
+    ByteBuffer buf = ByteBuffer.allocateDirect(2 * 4).order(ByteOrder.nativeOrder());
+    try (TensorAllocator allocator = new TensorAllocator()) {
+      allocator.recycle(
+          Tensor.wrap(
+              Integer.class,
+              new long[] {2},
+              buf,
+              new Runnable() {
+                @Override
+                public void run() {
+                  released.set(true);
+                }
+              }));
+      // The memory of a wrapped tensor belongs to the caller, it cannot be reused.
+      assertTrue(released.get());
+      assertEquals(0, allocator.pooledTensorCount());
+      assertEquals(0, allocator.discardCount());
+    }
+  }
+
+  @Test
+  public void failOnStringTensors() {
+    try (TensorAllocator allocator = new TensorAllocator()) {
+      try {
+        allocator.create(String.class, new long[] {}, ByteBuffer.allocate(1));
+        fail("string tensors should not be pooled");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+      allocator.recycle(Tensors.create("test"));
+      assertEquals(0, allocator.pooledTensorCount());
+    }
+  }
+}
@@ -18,10 +18,14 @@ package org.tensorflow;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -29,6 +33,11 @@ import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -559,6 +568,240 @@ public class TensorTest {
     }
   }
 
+  @Test
+  public void wrapDirectBuffer() {
+    // TensorFlow copies the buffer if its address is not aligned, so try a few offsets until the
+    // tensor shares the memory of the buffer.
+    ByteBuffer memory = ByteBuffer.allocateDirect(4 * 4 + 64).order(ByteOrder.nativeOrder());
+    boolean shared = false;
+    for (int offset = 0; offset < 64 && !shared; offset += 4) {
+      memory.clear();
+      memory.position(offset);
+      ByteBuffer buf = memory.slice().order(ByteOrder.nativeOrder());
+      buf.limit(4 * 4);
+      buf.asFloatBuffer().put(new float[] {1f, 2f, 3f, 4f});
+      try (Tensor<Float> t = Tensor.wrap(Float.class, new long[] {2, 2}, buf)) {
+        assertEquals(DataType.FLOAT, t.dataType());
+        assertArrayEquals(new long[] {2, 2}, t.shape());
+        float[][] values = t.copyTo(new float[2][2]);
+        assertArrayEquals(new float[] {1f, 2f}, values[0], EPSILON_F);
+        assertArrayEquals(new float[] {3f, 4f}, values[1], EPSILON_F);
+
+        buf.putFloat(0, 10f);
+        shared = t.copyTo(new float[2][2])[0][0] == 10f;
+      }
+    }
+    assertTrue(shared);
+  }
+
+  @Test
+  public void wrapNotifiesOnRelease() {
+    final AtomicBoolean released = new AtomicBoolean();
+    ByteBuffer buf = ByteBuffer.allocateDirect(3 * 8).order(ByteOrder.nativeOrder());
+    buf.asLongBuffer().put(new long[] {1L, 2L, 3L});
+    Tensor<Long> t =
+        Tensor.wrap(
+            Long.class,
+            new long[] {3},
+            buf,
+            new Runnable() {
+              @Override
+              public void run() {
+                released.set(true);
+              }
+            });
+    assertArrayEquals(new long[] {1L, 2L, 3L}, t.copyTo(new long[3]));
+    t.close();
+    assertTrue(released.get());
+  }
+
+  @Test
+  public void wrapMemoryMappedFile() throws IOException {
+    File file = File.createTempFile("tensor", ".bin");
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        FileChannel channel = raf.getChannel();
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, 4 * 8);
+        mapped.order(ByteOrder.nativeOrder()).asDoubleBuffer().put(new double[] {1d, 2d, 3d, 4d});
+        mapped.force();
+      }
+      try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+        FileChannel channel = raf.getChannel();
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        mapped.order(ByteOrder.nativeOrder());
+        try (Tensor<Double> t = Tensor.wrap(Double.class, new long[] {4}, mapped)) {
+          assertArrayEquals(new double[] {1d, 2d, 3d, 4d}, t.copyTo(new double[4]), EPSILON);
+        }
+      }
+    } finally {
+      assertTrue(file.delete());
+    }
+  }
+
+  @Test
+  public void failWrapOnInvalidBuffer() {
+    try {
+      Tensor.wrap(Integer.class, new long[] {2}, ByteBuffer.allocate(2 * 4));
+      fail("heap buffers should not be wrapped");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    try {
+      Tensor.wrap(Integer.class, new long[] {3}, ByteBuffer.allocateDirect(2 * 4));
+      fail("buffer size should match the tensor shape");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    try {
+      Tensor.wrap(String.class, new long[] {2}, ByteBuffer.allocateDirect(2));
+      fail("string tensors should not be wrapped");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    final AtomicBoolean released = new AtomicBoolean();
+    try {
+      Tensor.wrap(
+          Float.class,
+          new long[] {2},
+          ByteBuffer.allocateDirect(3),
+          new Runnable() {
+            @Override
+            public void run() {
+              released.set(true);
+            }
+          });
+      fail("buffer size should be a multiple of the element size");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+    assertFalse(released.get());
+  }
+
+  @Test
+  public void readIntoFlatArrays() {
+    try (Tensor<Float> f = Tensors.create(new float[][] {{1f, 2f}, {3f, 4f}});
+        Tensor<Double> d = Tensors.create(new double[][][] {{{1d}, {2d}}});
+        Tensor<Integer> i = Tensors.create(new int[] {1, 2, 3});
+        Tensor<Long> l = Tensors.create(5L)) {
+      float[] floats = new float[5];
+      f.readFloats(floats, 1);
+      assertArrayEquals(new float[] {0f, 1f, 2f, 3f, 4f}, floats, EPSILON_F);
+
+      double[] doubles = new double[2];
+      d.readDoubles(doubles, 0);
+      assertArrayEquals(new double[] {1d, 2d}, doubles, EPSILON);
+
+      int[] ints = new int[3];
+      i.readInts(ints, 0);
+      assertArrayEquals(new int[] {1, 2, 3}, ints);
+
+      long[] longs = new long[1];
+      l.readLongs(longs, 0);
+      assertArrayEquals(new long[] {5L}, longs);
+
+      try {
+        f.readFloats(new float[4], 1);
+        fail("should fail when the array is too small");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+      try {
+        i.readFloats(new float[3], 0);
+        fail("should fail on a data type mismatch");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+
+  @Test
+  public void viewElements() {
+    float[][][] values = {{{1f, 2f, 3f}, {4f, 5f, 6f}}, {{7f, 8f, 9f}, {10f, 11f, 12f}}};
+    try (Tensor<Float> t = Tensors.create(values)) {
+      FloatNdView view = t.floatView();
+      assertEquals(3, view.numDimensions());
+      assertEquals(12, view.numElements());
+      assertArrayEquals(new long[] {2, 2, 3}, view.shape());
+      for (int i = 0; i < 2; ++i) {
+        for (int j = 0; j < 2; ++j) {
+          for (int k = 0; k < 3; ++k) {
+            assertEquals(values[i][j][k], view.get(i, j, k), EPSILON_F);
+          }
+        }
+      }
+      try {
+        view.get(0, 2, 0);
+        fail("should fail on an out of bounds index");
+      } catch (IndexOutOfBoundsException e) {
+        // expected exception
+      }
+      try {
+        view.get(0, 0);
+        fail("should fail on a missing index");
+      } catch (IndexOutOfBoundsException e) {
+        // expected exception
+      }
+      try {
+        t.intView();
+        fail("should fail on a data type mismatch");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+    try (Tensor<Integer> i = Tensors.create(42);
+        Tensor<Long> l = Tensors.create(new long[] {1L, 2L});
+        Tensor<Double> d = Tensors.create(new double[][] {{1d}, {2d}})) {
+      assertEquals(42, i.intView().get());
+      assertEquals(2L, l.longView().get(1));
+      assertEquals(2d, d.doubleView().get(1, 0), EPSILON);
+    }
+  }
+
+  @Test
+  public void failViewAfterClose() {
+    Tensor<Integer> t = Tensors.create(new int[] {1, 2});
+    IntNdView view = t.intView();
+    t.close();
+    try {
+      view.get(0);
+      fail("should fail to read a closed tensor");
+    } catch (IllegalStateException e) {
+      // expected exception
+    }
+  }
+
+  @Test
+  public void iterateOverStrings() {
+    byte[][][] values = {{{1}, {2, 3}}, {{}, {4, 5, 6}}};
+    try (Tensor<String> t = Tensors.create(values)) {
+      Iterator<byte[]> it = t.stringIterator();
+      for (byte[][] row : values) {
+        for (byte[] value : row) {
+          assertTrue(it.hasNext());
+          assertArrayEquals(value, it.next());
+        }
+      }
+      assertFalse(it.hasNext());
+      try {
+        it.next();
+        fail("should fail after the last element");
+      } catch (NoSuchElementException e) {
+        // expected exception
+      }
+    }
+    try (Tensor<String> t = Tensors.create("scalar")) {
+      Iterator<byte[]> it = t.stringIterator();
+      assertArrayEquals("scalar".getBytes(UTF_8), it.next());
+      assertFalse(it.hasNext());
+    }
+    try (Tensor<Integer> t = Tensors.create(1)) {
+      t.stringIterator();
+      fail("should fail on non-string tensors");
+    } catch (IllegalArgumentException e) {
+      // expected exception
+    }
+  }
+
   @Test
   public void gracefullyFailCreationFromNullArrayForStringTensor() {
     // Motivated by: https://github.com/tensorflow/tensorflow/issues/17130
@@ -0,0 +1,196 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link org.tensorflow.VersionedModel}. */
+@RunWith(JUnit4.class)
+public class VersionedModelTest {
+
+  private static final String SAVED_MODEL_PATH =
+      "tensorflow/cc/saved_model/testdata/half_plus_two/00000123";
+
+  @Test
+  public void swapDrainsPreviousVersion() {
+    try (VersionedModel model =
+        new VersionedModel(SavedModelBundle.load(SAVED_MODEL_PATH, "serve"), 1)) {
+      assertEquals(-1, model.lastSwapNanos());
+      assertEquals(-1, model.lastDrainNanos());
+      try (VersionedModel.Handle h1 = model.acquire()) {
+        model.swap(SavedModelBundle.load(SAVED_MODEL_PATH, "serve"), 2);
+        assertEquals(2, model.version());
+        assertTrue(model.lastSwapNanos() >= 0);
+        // The previous version is still used by h1
+        assertEquals(1, model.drainingVersions());
+        assertEquals(-1, model.lastDrainNanos());
+        assertEquals(1, h1.version());
+        assertEquals(2.5f, run(h1.bundle(), 1.0f), 0.0f);
+        try (VersionedModel.Handle h2 = model.acquire()) {
+          assertEquals(2, h2.version());
+          assertNotSame(h1.bundle(), h2.bundle());
+        }
+      }
+      assertEquals(0, model.drainingVersions());
+      assertTrue(model.lastDrainNanos() >= 0);
+    }
+  }
+
+  @Test
+  public void loadAndSwap() throws Exception {
+    try (VersionedModel model =
+        new VersionedModel(SavedModelBundle.load(SAVED_MODEL_PATH, "serve"), 1)) {
+      Future<Void> swapped =
+          model.loadAndSwap(SavedModelBundle.loader(SAVED_MODEL_PATH).withTags("serve"), 2);
+      swapped.get();
+      assertEquals(2, model.version());
+      assertEquals(0, model.drainingVersions());
+      try (VersionedModel.Handle h = model.acquire()) {
+        assertEquals(2, h.version());
+        assertEquals(3.0f, run(h.bundle(), 2.0f), 0.0f);
+      }
+
+      Future<Void> failed =
+          model.loadAndSwap(SavedModelBundle.loader("__BAD__").withTags("serve"), 3);
+      try {
+        failed.get();
+        fail();
+      } catch (ExecutionException e) {
+        // expected exception
+        assertTrue(e.getCause() instanceof TensorFlowException);
+      }
+      assertEquals(2, model.version());
+    }
+  }
+
+  @Test
+  public void closeWhileAcquired() {
+    VersionedModel model =
+        new VersionedModel(SavedModelBundle.load(SAVED_MODEL_PATH, "serve"), 1);
+    try (VersionedModel.Handle h = model.acquire()) {
+      model.close();
+      assertEquals(1, model.drainingVersions());
+      // The version remains usable until released
+      assertEquals(2.5f, run(h.bundle(), 1.0f), 0.0f);
+    }
+    assertEquals(0, model.drainingVersions());
+    try {
+      model.acquire();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected exception
+    }
+    try {
+      model.loadAndSwap(SavedModelBundle.loader(SAVED_MODEL_PATH).withTags("serve"), 2);
+      fail();
+    } catch (IllegalStateException e) {
+      // expected exception
+    }
+  }
+
+  @Test
+  public void closeCancelsQueuedLoads() throws Exception {
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    SavedModelBundle.WarmupRequest blocking =
+        new SavedModelBundle.WarmupRequest() {
+          @Override
+          public void run(SavedModelBundle bundle) {
+            loading.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        };
+    VersionedModel model =
+        new VersionedModel(SavedModelBundle.load(SAVED_MODEL_PATH, "serve"), 1);
+    Future<Void> first =
+        model.loadAndSwap(
+            SavedModelBundle.loader(SAVED_MODEL_PATH)
+                .withTags("serve")
+                .withWarmup(Collections.singletonList(blocking), 1, 0.0f),
+            2);
+    Future<Void> second =
+        model.loadAndSwap(SavedModelBundle.loader(SAVED_MODEL_PATH).withTags("serve"), 3);
+    loading.await();
+    model.close();
+    release.countDown();
+
+    try {
+      first.get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      // expected exception
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertTrue(second.isCancelled());
+    try {
+      second.get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (CancellationException e) {
+      // expected exception
+    }
+    assertEquals(0, model.drainingVersions());
+  }
+
+  @Test
+  public void failOnClosedHandle() {
+    try (VersionedModel model =
+        new VersionedModel(SavedModelBundle.load(SAVED_MODEL_PATH, "serve"), 1)) {
+      VersionedModel.Handle h = model.acquire();
+      h.close();
+      h.close();
+      try {
+        h.bundle();
+        fail();
+      } catch (IllegalStateException e) {
+        // expected exception
+      }
+    }
+  }
+
+  private static float run(SavedModelBundle bundle, float x) {
+    try (Tensor<Float> input = Tensors.create(new float[] {x});
+        Tensor<Float> output =
+            bundle
+                .session()
+                .runner()
+                .feed("x", input)
+                .fetch("y")
+                .run()
+                .get(0)
+                .expect(Float.class)) {
+      float[] y = new float[1];
+      output.copyTo(y);
+      return y[0];
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/* Copyright 2019 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+==============================================================================*/
+
+package org.tensorflow.op;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.tensorflow.DataType;
+import org.tensorflow.EagerSession;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Tensor;
+import org.tensorflow.Tensors;
+
+/** Unit tests for {@link org.tensorflow.op.GraphFunction}. */
+@RunWith(JUnit4.class)
+public class GraphFunctionTest {
+
+  // Computes x * x + y
+  private static final GraphFunction.Body SQUARE_AND_ADD =
+      new GraphFunction.Body() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<Operand<?>> build(Ops tf, List<Output<?>> inputs) {
+          Operand<Float> x = (Operand<Float>) inputs.get(0);
+          Operand<Float> y = (Operand<Float>) inputs.get(1);
+          return Arrays.<Operand<?>>asList(tf.math().add(tf.math().mul(x, x), y));
+        }
+      };
+
+  @Test
+  public void callTracedFunction() {
+    try (GraphFunction f = GraphFunction.trace(SQUARE_AND_ADD, DataType.FLOAT, DataType.FLOAT)) {
+      assertEquals(2, f.numInputs());
+      assertEquals(1, f.numOutputs());
+      for (float x = 1.0f; x < 4.0f; x += 1.0f) {
+        try (Tensor<Float> tx = Tensors.create(x);
+            Tensor<Float> ty = Tensors.create(0.5f);
+            Tensor<?> result = f.call(tx, ty).get(0)) {
+          assertEquals(x * x + 0.5f, result.floatValue(), 0.0f);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void sameResultAsEagerExecution() {
+    try (EagerSession session = EagerSession.create();
+        GraphFunction f = GraphFunction.trace(SQUARE_AND_ADD, DataType.FLOAT, DataType.FLOAT)) {
+      Ops tf = Ops.create(session);
+      List<Output<?>> eagerInputs =
+          Arrays.<Output<?>>asList(tf.constant(3.0f).asOutput(), tf.constant(1.0f).asOutput());
+      Output<?> eagerResult = SQUARE_AND_ADD.build(tf, eagerInputs).get(0).asOutput();
+      try (Tensor<Float> tx = Tensors.create(3.0f);
+          Tensor<Float> ty = Tensors.create(1.0f);
+          Tensor<?> result = f.call(tx, ty).get(0)) {
+        assertEquals(eagerResult.tensor().floatValue(), result.floatValue(), 0.0f);
+      }
+    }
+  }
+
+  @Test
+  public void failOnInvalidArguments() {
+    try (GraphFunction f = GraphFunction.trace(SQUARE_AND_ADD, DataType.FLOAT, DataType.FLOAT);
+        Tensor<Float> tx = Tensors.create(1.0f);
+        Tensor<Integer> ty = Tensors.create(1)) {
+      try {
+        f.call(tx);
+        fail("should not call a function with a missing argument");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+      try {
+        f.call(tx, ty);
+        fail("should not call a function with an argument of the wrong type");
+      } catch (IllegalArgumentException e) {
+        // expected exception
+      }
+    }
+  }
+}